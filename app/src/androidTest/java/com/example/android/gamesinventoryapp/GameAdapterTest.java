@@ -0,0 +1,102 @@
+package com.example.android.gamesinventoryapp;
+
+import android.content.Context;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import com.example.android.gamesinventoryapp.data.Game;
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests for the bind path of {@link GameAdapter}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GameAdapterTest {
+
+    /** Number of games in the bound list */
+    private static final int GAME_COUNT = 200;
+
+    /** Number of times the whole list is bound while allocations are counted */
+    private static final int BIND_ROUNDS = 10;
+
+    @Test
+    public void bind_inSteadyState_allocatesNothing() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                GameAdapter adapter = new GameAdapter(context, null);
+
+                List<Game> games = new ArrayList<>();
+                for (int i = 0; i < GAME_COUNT; i++) {
+                    games.add(new Game(i + 1, "Game " + i, i % 6, i % 5, 999 + i % 10 * 100, i * 37));
+                }
+                // The first submitted list is set synchronously
+                adapter.submitList(games);
+                assertEquals(GAME_COUNT, adapter.getItemCount());
+
+                GameAdapter.GameViewHolder holder = adapter.onCreateViewHolder(new FrameLayout(context), 0);
+
+                // Warm up the label and price caches
+                for (int position = 0; position < GAME_COUNT; position++) {
+                    adapter.onBindViewHolder(holder, position);
+                }
+
+                Debug.resetThreadAllocCount();
+                Debug.startAllocCounting();
+                try {
+                    for (int round = 0; round < BIND_ROUNDS; round++) {
+                        for (int position = 0; position < GAME_COUNT; position++) {
+                            adapter.onBindViewHolder(holder, position);
+                        }
+                    }
+                } finally {
+                    Debug.stopAllocCounting();
+                }
+                assertEquals(0, Debug.getThreadAllocCount());
+            }
+        });
+    }
+
+    @Test
+    public void bind_invalidGenreAndPlatform_showsUnknownGenre() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                GameAdapter adapter = new GameAdapter(context, null);
+                List<Game> games = new ArrayList<>();
+                games.add(new Game(1, "Game", 42, 42, 100, 3));
+                games.add(new Game(2, "Game", GameEntry.GENRE_SPORT, GameEntry.PLATFORM_PS4, 100, 3));
+                adapter.submitList(games);
+
+                GameAdapter.GameViewHolder holder = adapter.onCreateViewHolder(new FrameLayout(context), 0);
+                adapter.onBindViewHolder(holder, 0);
+                TextView genreTextView = holder.itemView.findViewById(R.id.game_genre);
+                TextView platformTextView = holder.itemView.findViewById(R.id.game_platform);
+                TextView stockTextView = holder.itemView.findViewById(R.id.game_stock);
+                assertEquals(context.getString(R.string.before_genre_text) + context.getString(R.string.genre_unknown),
+                        genreTextView.getText().toString());
+                assertEquals(context.getString(R.string.before_platform_text), platformTextView.getText().toString());
+                assertEquals(context.getString(R.string.before_stock_text) + 3, stockTextView.getText().toString());
+
+                adapter.onBindViewHolder(holder, 1);
+                assertEquals(context.getString(R.string.before_genre_text) + context.getString(R.string.genre_sport),
+                        genreTextView.getText().toString());
+                assertEquals(context.getString(R.string.before_platform_text) + context.getString(R.string.platform_ps4),
+                        platformTextView.getText().toString());
+            }
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.android.gamesinventoryapp;
+
+import android.content.ContentUris;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.gamesinventoryapp.data.Game;
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameContract.LowStockEntry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests for the eviction and invalidation of {@link GameRecordCache}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GameRecordCacheTest {
+
+    private static Game createGame(long id, int quantity) {
+        return new Game(id, "Game " + id, 1, 0, 1999, quantity);
+    }
+
+    @Test
+    public void put_beyondCapacity_evictsLeastRecentlyUsed() {
+        GameRecordCache cache = new GameRecordCache(2);
+        Game first = createGame(1, 10);
+        Game second = createGame(2, 10);
+        cache.put(first);
+        cache.put(second);
+
+        // Using the first game makes the second one the least recently used
+        assertSame(first, cache.get(1));
+        cache.put(createGame(3, 10));
+
+        assertSame(first, cache.get(1));
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(3));
+    }
+
+    @Test
+    public void invalidate_ignoresStaleGameUntilReloaded() {
+        GameRecordCache cache = new GameRecordCache(4);
+        Game game = createGame(1, 10);
+        cache.put(game);
+        cache.invalidate(1);
+        assertNull(cache.get(1));
+
+        // The catalog binds its previous list again before reloading it
+        cache.put(game);
+        assertNull(cache.get(1));
+
+        // The reloaded game replaces the stale one
+        Game reloadedGame = createGame(1, 9);
+        cache.put(reloadedGame);
+        assertSame(reloadedGame, cache.get(1));
+    }
+
+    @Test
+    public void invalidateAll_marksEveryGameStale() {
+        GameRecordCache cache = new GameRecordCache(4);
+        cache.put(createGame(1, 10));
+        cache.put(createGame(2, 10));
+        cache.invalidateAll();
+
+        assertNull(cache.get(1));
+        assertNull(cache.get(2));
+    }
+
+    @Test
+    public void onChange_invalidatesOnlyTheNotifiedGames() {
+        GameRecordCache cache = new GameRecordCache(4);
+        cache.put(createGame(1, 10));
+        cache.put(createGame(2, 10));
+
+        // A change of the low stock watchlist doesn't change any cached game
+        cache.onChange(LowStockEntry.CONTENT_URI);
+        assertNotNull(cache.get(1));
+        assertNotNull(cache.get(2));
+
+        cache.onChange(ContentUris.withAppendedId(GameEntry.CONTENT_URI, 1));
+        assertNull(cache.get(1));
+        assertNotNull(cache.get(2));
+
+        cache.onChange(GameEntry.CONTENT_URI);
+        assertNull(cache.get(2));
+    }
+}
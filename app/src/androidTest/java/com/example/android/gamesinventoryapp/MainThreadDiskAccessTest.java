@@ -0,0 +1,184 @@
+package com.example.android.gamesinventoryapp;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.StrictMode;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static android.support.test.espresso.Espresso.onView;
+import static android.support.test.espresso.Espresso.openActionBarOverflowOrOptionsMenu;
+import static android.support.test.espresso.action.ViewActions.click;
+import static android.support.test.espresso.action.ViewActions.replaceText;
+import static android.support.test.espresso.matcher.ViewMatchers.withId;
+import static android.support.test.espresso.matcher.ViewMatchers.withText;
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests of the catalog and the editor in a StrictMode test mode: any disk access,
+ * or any use of the provider's database, on the main thread kills the process and so fails the run.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MainThreadDiskAccessTest {
+
+    /** Maximum number of milliseconds to wait for a background load or write */
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    /** Name of the games created by the tests, deleted once they are finished */
+    private static final String TEST_GAME_NAME = "StrictMode test game";
+
+    private Instrumentation mInstrumentation;
+
+    private ContentResolver mContentResolver;
+
+    /** Thread policy of the main thread before the test */
+    private StrictMode.ThreadPolicy mPreviousPolicy;
+
+    @Before
+    public void setUp() {
+        mInstrumentation = InstrumentationRegistry.getInstrumentation();
+        mContentResolver = InstrumentationRegistry.getTargetContext().getContentResolver();
+        deleteTestGames();
+
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mPreviousPolicy = StrictMode.getThreadPolicy();
+                StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                        .detectDiskReads()
+                        .detectDiskWrites()
+                        .detectCustomSlowCalls()
+                        .penaltyLog()
+                        .penaltyDeath()
+                        .build());
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                StrictMode.setThreadPolicy(mPreviousPolicy);
+            }
+        });
+        deleteTestGames();
+    }
+
+    private void deleteTestGames() {
+        mContentResolver.delete(GameEntry.CONTENT_URI, GameEntry.COLUMN_GAME_NAME + "=?",
+                new String[]{TEST_GAME_NAME});
+    }
+
+    private Uri insertTestGame(int quantity) {
+        ContentValues values = new ContentValues();
+        values.put(GameEntry.COLUMN_GAME_NAME, TEST_GAME_NAME);
+        values.put(GameEntry.COLUMN_GAME_GENRE, GameEntry.GENRE_ACTION);
+        values.put(GameEntry.COLUMN_GAME_PLATFORM, GameEntry.PLATFORM_PC);
+        values.put(GameEntry.COLUMN_GAME_PRICE, 1999);
+        values.put(GameEntry.COLUMN_QUANTITY, quantity);
+        values.put(GameEntry.COLUMN_SUPPLIER_NAME, "Supplier");
+        Uri uri = mContentResolver.insert(GameEntry.CONTENT_URI, values);
+        assertNotNull(uri);
+        return uri;
+    }
+
+    /**
+     * Returns the stock quantity of the given game, or -1 if it doesn't exist.
+     */
+    private int queryQuantity(Uri uri) {
+        Cursor cursor = mContentResolver.query(uri, new String[]{GameEntry.COLUMN_QUANTITY}, null, null, null);
+        assertNotNull(cursor);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private Activity startActivity(Class<? extends Activity> activityClass, Uri data) {
+        Intent intent = new Intent(InstrumentationRegistry.getTargetContext(), activityClass);
+        intent.setData(data);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        return mInstrumentation.startActivitySync(intent);
+    }
+
+    private static void waitUntilFinishing(Activity activity) throws InterruptedException {
+        long deadline = SystemClock.elapsedRealtime() + TIMEOUT_MILLIS;
+        while (!activity.isFinishing() && SystemClock.elapsedRealtime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(activity.isFinishing());
+    }
+
+    @Test
+    public void catalog_loadsGamesOffTheMainThread() throws InterruptedException {
+        insertTestGame(3);
+        final Activity activity = startActivity(CatalogActivity.class, null);
+        try {
+            final int[] itemCount = new int[1];
+            long deadline = SystemClock.elapsedRealtime() + TIMEOUT_MILLIS;
+            while (itemCount[0] == 0 && SystemClock.elapsedRealtime() < deadline) {
+                Thread.sleep(10);
+                mInstrumentation.runOnMainSync(new Runnable() {
+                    @Override
+                    public void run() {
+                        RecyclerView list = activity.findViewById(R.id.list);
+                        itemCount[0] = list.getAdapter().getItemCount();
+                    }
+                });
+            }
+            assertTrue(itemCount[0] > 0);
+        } finally {
+            activity.finish();
+        }
+    }
+
+    @Test
+    public void editor_savesGameOffTheMainThread() throws InterruptedException {
+        Uri uri = insertTestGame(3);
+        Activity activity = startActivity(EditorActivity.class, uri);
+        try {
+            onView(withId(R.id.edit_game_stock)).perform(replaceText("7"));
+            onView(withId(R.id.action_save)).perform(click());
+
+            // The editor is closed once the game is written
+            waitUntilFinishing(activity);
+            assertEquals(7, queryQuantity(uri));
+        } finally {
+            activity.finish();
+        }
+    }
+
+    @Test
+    public void editor_deletesGameOffTheMainThread() throws InterruptedException {
+        Uri uri = insertTestGame(3);
+        Activity activity = startActivity(EditorActivity.class, uri);
+        try {
+            openActionBarOverflowOrOptionsMenu(activity);
+            onView(withText(R.string.action_delete)).perform(click());
+            onView(withText(R.string.delete_option)).perform(click());
+
+            // The editor is closed once the game is deleted
+            waitUntilFinishing(activity);
+            assertEquals(-1, queryQuantity(uri));
+        } finally {
+            activity.finish();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.android.gamesinventoryapp;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.ProviderTestCase2;
+import android.test.mock.MockContentResolver;
+
+import com.example.android.gamesinventoryapp.data.Game;
+import com.example.android.gamesinventoryapp.data.GameContract;
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests for the write-behind sales of {@link SellQueue}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SellQueueTest extends ProviderTestCase2<GameProvider> {
+
+    private MockContentResolver mResolver;
+
+    private SellQueue mSellQueue;
+
+    public SellQueueTest() {
+        super(GameProvider.class, GameContract.CONTENT_AUTHORITY);
+    }
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        setContext(InstrumentationRegistry.getTargetContext());
+        super.setUp();
+        mResolver = getMockContentResolver();
+        mSellQueue = new SellQueue(mResolver);
+    }
+
+    @After
+    @Override
+    public void tearDown() throws Exception {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mSellQueue.close();
+            }
+        });
+        super.tearDown();
+    }
+
+    /**
+     * Insert a game with the given quantity in stock and return it as loaded by the catalog.
+     */
+    private Game insertGame(int quantity) {
+        ContentValues values = new ContentValues();
+        values.put(GameEntry.COLUMN_GAME_NAME, "Game");
+        values.put(GameEntry.COLUMN_GAME_GENRE, GameEntry.GENRE_ACTION);
+        values.put(GameEntry.COLUMN_GAME_PLATFORM, GameEntry.PLATFORM_PC);
+        values.put(GameEntry.COLUMN_GAME_PRICE, 999);
+        values.put(GameEntry.COLUMN_QUANTITY, quantity);
+        values.put(GameEntry.COLUMN_SUPPLIER_NAME, "Supplier");
+        Uri uri = mResolver.insert(GameEntry.CONTENT_URI, values);
+        assertNotNull(uri);
+        return new Game(ContentUris.parseId(uri), "Game", GameEntry.GENRE_ACTION, GameEntry.PLATFORM_PC, 999, quantity);
+    }
+
+    private int readQuantity(long id) {
+        Cursor cursor = mResolver.query(ContentUris.withAppendedId(GameEntry.CONTENT_URI, id),
+                new String[]{GameEntry.COLUMN_QUANTITY}, null, null, null);
+        assertNotNull(cursor);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Run the given task on the main thread, where the queue is used.
+     */
+    private static void runOnMainSync(Runnable task) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(task);
+    }
+
+    @Test
+    public void sell_showsSalesRightAwayAndCoalescesTaps() throws Exception {
+        final Game game = insertGame(3);
+        final AtomicInteger displayedQuantity = new AtomicInteger();
+        final AtomicInteger accepted = new AtomicInteger();
+
+        // Tap five times: only three copies can be sold, and they are shown before being written
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (int tap = 0; tap < 5; tap++) {
+                    if (mSellQueue.sell(mSellQueue.apply(game))) {
+                        accepted.incrementAndGet();
+                    }
+                }
+                displayedQuantity.set(mSellQueue.apply(game).quantity);
+            }
+        });
+        assertEquals(3, accepted.get());
+        assertEquals(0, displayedQuantity.get());
+        assertEquals(3, readQuantity(game.id));
+
+        // The taps are written once the coalescing window is over
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (readQuantity(game.id) != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, readQuantity(game.id));
+
+        // Once the sale is visible in the loaded data, it leaves the overlay
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        final Game reloaded = new Game(game.id, game.name, game.genre, game.platform, game.priceCents, 0);
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mSellQueue.onGamesLoaded(Collections.singletonList(reloaded));
+                displayedQuantity.set(mSellQueue.apply(reloaded).quantity);
+            }
+        });
+        assertEquals(0, displayedQuantity.get());
+    }
+
+    @Test
+    public void sell_rejectedByProviderIsRolledBack() throws Exception {
+        final Game game = insertGame(1);
+
+        // Another device sells the last copy before the queue writes its sale
+        ContentValues values = new ContentValues();
+        values.put(GameEntry.COLUMN_QUANTITY, 0);
+        mResolver.update(ContentUris.withAppendedId(GameEntry.CONTENT_URI, game.id), values, null, null);
+
+        final CountDownLatch rejected = new CountDownLatch(1);
+        final AtomicInteger displayedQuantity = new AtomicInteger(-1);
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mSellQueue.setListener(new SellQueue.Listener() {
+                    @Override
+                    public void onOverlayChanged() {
+                        displayedQuantity.set(mSellQueue.apply(game).quantity);
+                    }
+
+                    @Override
+                    public void onSaleRejected(long id) {
+                        assertEquals(game.id, id);
+                        rejected.countDown();
+                    }
+                });
+                assertTrue(mSellQueue.sell(game));
+                mSellQueue.flushNow();
+            }
+        });
+        assertEquals(0, displayedQuantity.get());
+
+        assertTrue(rejected.await(5, TimeUnit.SECONDS));
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        // The overlay is back to the loaded quantity
+        assertEquals(1, displayedQuantity.get());
+        assertEquals(0, readQuantity(game.id));
+    }
+
+    @Test
+    public void sell_coalescedTapsSellTheCopiesLeft() throws Exception {
+        final Game game = insertGame(3);
+
+        // Another device sells a copy before the queue writes the three taps
+        ContentValues values = new ContentValues();
+        values.put(GameEntry.COLUMN_QUANTITY, 2);
+        mResolver.update(ContentUris.withAppendedId(GameEntry.CONTENT_URI, game.id), values, null, null);
+
+        final CountDownLatch rejected = new CountDownLatch(1);
+        final AtomicInteger displayedQuantity = new AtomicInteger(-1);
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mSellQueue.setListener(new SellQueue.Listener() {
+                    @Override
+                    public void onOverlayChanged() {
+                        displayedQuantity.set(mSellQueue.apply(game).quantity);
+                    }
+
+                    @Override
+                    public void onSaleRejected(long id) {
+                        assertEquals(game.id, id);
+                        rejected.countDown();
+                    }
+                });
+                for (int tap = 0; tap < 3; tap++) {
+                    assertTrue(mSellQueue.sell(mSellQueue.apply(game)));
+                }
+                mSellQueue.flushNow();
+            }
+        });
+        assertEquals(0, displayedQuantity.get());
+
+        // The two copies left are sold, and only the third tap is rolled back
+        assertTrue(rejected.await(5, TimeUnit.SECONDS));
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        assertEquals(0, readQuantity(game.id));
+        assertEquals(1, displayedQuantity.get());
+
+        // Once the sales are visible in the loaded data, they leave the overlay
+        final Game reloaded = game.withQuantity(0);
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mSellQueue.onGamesLoaded(Collections.singletonList(reloaded));
+                displayedQuantity.set(mSellQueue.apply(reloaded).quantity);
+            }
+        });
+        assertEquals(0, displayedQuantity.get());
+    }
+
+    @Test
+    public void onGamesLoaded_ignoresReloadsDuringAWrite() throws Exception {
+        final Game game = insertGame(5);
+        final Game reloaded = game.withQuantity(3);
+        final AtomicInteger displayedQuantity = new AtomicInteger(-1);
+
+        // Games loaded while the sale is handed to the writer, which can't have reported it yet
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                assertTrue(mSellQueue.sell(game));
+                assertTrue(mSellQueue.sell(mSellQueue.apply(game)));
+                mSellQueue.flushNow();
+                mSellQueue.onGamesLoaded(Collections.singletonList(reloaded));
+            }
+        });
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (readQuantity(game.id) != 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(3, readQuantity(game.id));
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        // The games loaded after the write include the sale, which leaves the overlay
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mSellQueue.onGamesLoaded(Collections.singletonList(reloaded));
+                displayedQuantity.set(mSellQueue.apply(reloaded).quantity);
+            }
+        });
+        assertEquals(3, displayedQuantity.get());
+    }
+}
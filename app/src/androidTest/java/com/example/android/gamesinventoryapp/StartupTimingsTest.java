@@ -0,0 +1,63 @@
+package com.example.android.gamesinventoryapp;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented test of the marks recorded by {@link StartupTimings} when {@link CatalogActivity} starts.
+ * The durations between the marks are only logged: they depend too much on the device to be asserted.
+ * <p>
+ * The catalog is started in the process of the test, which is already running, so this isn't a
+ * cold start: the process creation and the provider initialization aren't measured. Cold starts are
+ * measured on a device after {@code adb shell am force-stop}, with the launch time reported by
+ * {@code adb shell am start -W} and the "Fully drawn" line of the log.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupTimingsTest {
+
+    /** Tag for the log messages */
+    private static final String LOG_TAG = StartupTimingsTest.class.getSimpleName();
+
+    @Test
+    public void catalogStart_recordsOrderedMarks() throws Exception {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        Intent intent = new Intent(InstrumentationRegistry.getTargetContext(), CatalogActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        // Another test may already have started the catalog in this process and recorded its marks
+        StartupTimings.reset();
+        Activity activity = instrumentation.startActivitySync(intent);
+        try {
+            // Wait for the first page to be loaded and drawn
+            long deadline = SystemClock.elapsedRealtime() + 10000;
+            while (StartupTimings.getFirstDataFrameMillis() == StartupTimings.NOT_RECORDED
+                    && SystemClock.elapsedRealtime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            long created = StartupTimings.getActivityCreatedMillis();
+            long firstFrame = StartupTimings.getFirstFrameMillis();
+            long firstDataFrame = StartupTimings.getFirstDataFrameMillis();
+            assertNotEquals(StartupTimings.NOT_RECORDED, created);
+            assertNotEquals(StartupTimings.NOT_RECORDED, firstFrame);
+            assertNotEquals(StartupTimings.NOT_RECORDED, firstDataFrame);
+            Log.i(LOG_TAG, "First frame: +" + (firstFrame - created) + " ms, first data frame: +"
+                    + (firstDataFrame - created) + " ms after the catalog creation");
+
+            assertTrue(StartupTimings.getProcessStartMillis() <= created);
+            assertTrue(created <= firstFrame);
+            assertTrue(firstFrame <= firstDataFrame);
+        } finally {
+            activity.finish();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.android.gamesinventoryapp.data;
+
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link GameCsvParser}, which doesn't need a database.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GameCsvParserTest {
+
+    /** Tag for the log messages */
+    private static final String LOG_TAG = GameCsvParserTest.class.getSimpleName();
+
+    /** Number of rows of the generated price list, the size of a large supplier catalog */
+    private static final int ROW_COUNT = 50000;
+
+    private static final String HEADER = "Name,Genre,Platform,Price,Quantity,Supplier Name,Supplier Phone\n";
+
+    @Test
+    public void parse_readsQuotedFieldsAndNames() throws IOException {
+        GameCsvParser parser = new GameCsvParser(new StringReader("\uFEFF" + HEADER
+                + "\"Heroes, \"\"Gold\"\" Edition\",Strategy,Xbox One,19.99,3,Supplier,\"+1 (000)\r\n000-0000\"\r\n"
+                + "\n"
+                + "Doom,4,ps4,5,,Supplier,\n"));
+
+        assertTrue(parser.next());
+        assertNull(parser.getError());
+        assertEquals(2, parser.getLineNumber());
+        assertEquals("Heroes, \"Gold\" Edition", parser.getName());
+        assertEquals(GameEntry.GENRE_STRATEGY, parser.getGenre());
+        assertEquals(GameEntry.PLATFORM_XBOX_ONE, parser.getPlatform());
+        assertEquals(1999, parser.getPriceCents());
+        assertEquals(3, parser.getQuantity());
+        assertEquals("+1 (000)\r\n000-0000", parser.getSupplierPhone());
+
+        // The empty line is skipped, and the empty fields have no value
+        assertTrue(parser.next());
+        assertNull(parser.getError());
+        assertEquals(5, parser.getLineNumber());
+        assertEquals(GameEntry.GENRE_FPS, parser.getGenre());
+        assertEquals(GameEntry.PLATFORM_PS4, parser.getPlatform());
+        assertEquals(500, parser.getPriceCents());
+        assertFalse(parser.hasValue(GameEntry.COLUMN_QUANTITY));
+        assertFalse(parser.hasValue(GameEntry.COLUMN_SUPPLIER_PHONE));
+
+        assertFalse(parser.next());
+    }
+
+    @Test
+    public void parse_reportsInvalidRowsAndGoesOn() throws IOException {
+        GameCsvParser parser = new GameCsvParser(new StringReader(HEADER
+                + ",Action,PC,1,1,Supplier,\n"
+                + "Game,Action,Switch,1,1,Supplier,\n"
+                + "Game,Action,PC,1.999,1,Supplier,\n"
+                + "Game,Action,PC,1,-1,Supplier,\n"
+                + "Game,Action,PC,1,1,Supplier,\n"));
+
+        String[] errors = new String[5];
+        for (int i = 0; i < errors.length; i++) {
+            assertTrue(parser.next());
+            assertEquals(i + 2, parser.getLineNumber());
+            errors[i] = parser.getError();
+        }
+        assertEquals("Game requires a name", errors[0]);
+        assertNotNull(errors[1]);
+        assertEquals("Game requires a valid price", errors[2]);
+        assertNotNull(errors[3]);
+        assertNull(errors[4]);
+        assertFalse(parser.next());
+    }
+
+    @Test
+    public void header_withoutRequiredColumnIsRejected() {
+        try {
+            new GameCsvParser(new StringReader("Name,Price,Supplier Name\nGame,1,Supplier\n"));
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+            // Expected, the platform is part of the key of a game
+        }
+    }
+
+    @Test
+    public void benchmark_parseLargePriceList() throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        GameCsvParser parser = new GameCsvParser(new GeneratedPriceList(ROW_COUNT));
+        int validCount = 0;
+        while (parser.next()) {
+            if (parser.getError() == null) {
+                validCount++;
+            }
+        }
+        long millis = SystemClock.elapsedRealtime() - start;
+
+        Log.i(LOG_TAG, ROW_COUNT + " rows parsed in " + millis + " ms");
+        assertEquals(ROW_COUNT, validCount);
+    }
+
+    /**
+     * Price list generated as it is read, so that its size doesn't count in the memory of the test.
+     */
+    private static final class GeneratedPriceList extends Reader {
+        private final int mRowCount;
+        private int mRow = -1;
+        private String mLine = HEADER;
+        private int mPosition;
+
+        GeneratedPriceList(int rowCount) {
+            mRowCount = rowCount;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (mPosition == mLine.length()) {
+                if (++mRow == mRowCount) {
+                    return -1;
+                }
+                mLine = "Game " + mRow + "," + (mRow % 6) + "," + (mRow % 5) + ","
+                        + (mRow % 100) + ".99," + (mRow % 50) + ",\"Supplier " + (mRow % 20) + "\",\n";
+                mPosition = 0;
+            }
+            int count = Math.min(length, mLine.length() - mPosition);
+            mLine.getChars(mPosition, mPosition + count, buffer, offset);
+            mPosition += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
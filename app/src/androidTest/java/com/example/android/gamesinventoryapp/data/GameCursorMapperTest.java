@@ -0,0 +1,212 @@
+package com.example.android.gamesinventoryapp.data;
+
+import android.database.AbstractWindowedCursor;
+import android.database.CrossProcessCursorWrapper;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests and micro-benchmark of {@link GameCursorMapper}, on an in-memory database.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GameCursorMapperTest {
+
+    /** Tag for the log messages */
+    private static final String LOG_TAG = GameCursorMapperTest.class.getSimpleName();
+
+    /** Number of games in the database, more than a cursor window holds */
+    private static final int ROW_COUNT = 5000;
+
+    /** Number of times each way of reading the games is measured, keeping the fastest */
+    private static final int BENCHMARK_ROUNDS = 5;
+
+    private SQLiteDatabase mDatabase;
+
+    @Before
+    public void setUp() {
+        mDatabase = SQLiteDatabase.create(null);
+        GameDbHelper.createInitialSchema(mDatabase);
+        mDatabase.beginTransaction();
+        try {
+            for (int i = 0; i < ROW_COUNT; i++) {
+                mDatabase.insert(GameEntry.TABLE_NAME, null, GameProviderTest.createGame(i));
+            }
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+    }
+
+    private Cursor queryGames(String[] projection) {
+        return mDatabase.query(GameEntry.TABLE_NAME, projection, null, null, null, null, GameEntry._ID);
+    }
+
+    @Test
+    public void mapAll_readsEveryRowAndColumn() {
+        Cursor cursor = queryGames(Game.PROJECTION);
+        try {
+            List<Game> games = GameCursorMapper.mapAll(cursor);
+            assertEquals(ROW_COUNT, games.size());
+            for (int i = 0; i < ROW_COUNT; i++) {
+                Game game = games.get(i);
+                assertEquals(i + 1, game.id);
+                assertEquals("Game " + i, game.name);
+                assertEquals(i % 6, game.genre);
+                assertEquals(i % 5, game.platform);
+                assertEquals(1999, game.priceCents);
+                assertEquals(i % 100, game.quantity);
+                assertEquals("Supplier " + (i % 20), game.supplierName);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void mapWindow_fillsReusedArrayUpToTheEndOfEachWindow() {
+        Cursor cursor = queryGames(Game.PROJECTION);
+        try {
+            GameCursorMapper mapper = new GameCursorMapper(cursor);
+            Game[] games = new Game[256];
+            int position = 0;
+            int mapped;
+            while ((mapped = mapper.mapWindow(cursor, position, games)) > 0) {
+                assertTrue(mapped <= games.length);
+                for (int i = 0; i < mapped; i++) {
+                    assertEquals(position + i + 1, games[i].id);
+                }
+                position += mapped;
+            }
+            assertEquals(ROW_COUNT, position);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void mapWindow_readsTheWindowThroughTheResolverWrapper() {
+        Cursor cursor = queryGames(Game.PROJECTION);
+        try {
+            Cursor wrapper = new CrossProcessCursorWrapper(cursor);
+            Game[] games = new Game[ROW_COUNT];
+            int mapped = new GameCursorMapper(wrapper).mapWindow(wrapper, 0, games);
+
+            // The games are read up to the end of the first window, not row by row to the end of the cursor
+            assertEquals(((AbstractWindowedCursor) cursor).getWindow().getNumRows(), mapped);
+            assertTrue(mapped < ROW_COUNT);
+            assertEquals(mapped, games[mapped - 1].id);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void map_missingColumnsKeepTheirDefaultValue() {
+        Cursor cursor = queryGames(new String[]{GameEntry._ID, GameEntry.COLUMN_SUPPLIER_NAME});
+        try {
+            assertTrue(cursor.moveToFirst());
+            Game game = new GameCursorMapper(cursor).map(cursor);
+            assertEquals(1, game.id);
+            assertNull(game.name);
+            assertEquals(0, game.quantity);
+            assertEquals("Supplier 0", game.supplierName);
+            assertNull(game.supplierPhone);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Read the games the way the list and the editor used to: looking the columns up on every row,
+     * and reading the numbers as strings.
+     */
+    private static int readWithPerRowLookup(Cursor cursor) {
+        int count = 0;
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            Game game = new Game(
+                    cursor.getLong(cursor.getColumnIndex(GameEntry._ID)),
+                    cursor.getString(cursor.getColumnIndex(GameEntry.COLUMN_GAME_NAME)),
+                    cursor.getInt(cursor.getColumnIndex(GameEntry.COLUMN_GAME_GENRE)),
+                    cursor.getInt(cursor.getColumnIndex(GameEntry.COLUMN_GAME_PLATFORM)),
+                    Long.valueOf(cursor.getString(cursor.getColumnIndex(GameEntry.COLUMN_GAME_PRICE))),
+                    Integer.valueOf(cursor.getString(cursor.getColumnIndex(GameEntry.COLUMN_QUANTITY))),
+                    cursor.getString(cursor.getColumnIndex(GameEntry.COLUMN_SUPPLIER_NAME)),
+                    cursor.getString(cursor.getColumnIndex(GameEntry.COLUMN_SUPPLIER_PHONE)));
+            count += game.quantity >= 0 ? 1 : 0;
+        }
+        return count;
+    }
+
+    private static int readWithMapper(Cursor cursor) {
+        GameCursorMapper mapper = new GameCursorMapper(cursor);
+        int count = 0;
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            Game game = mapper.map(cursor);
+            count += game.quantity >= 0 ? 1 : 0;
+        }
+        return count;
+    }
+
+    private static int readWithWindowMapper(Cursor cursor, Game[] games) {
+        GameCursorMapper mapper = new GameCursorMapper(cursor);
+        int count = 0;
+        int mapped;
+        while ((mapped = mapper.mapWindow(cursor, count, games)) > 0) {
+            count += mapped;
+        }
+        return count;
+    }
+
+    @Test
+    public void benchmark_mapperVsPerRowLookup() {
+        Cursor cursor = queryGames(Game.PROJECTION);
+        try {
+            // Warm up the code paths before measuring them
+            readWithPerRowLookup(cursor);
+
+            long lookupNanos = Long.MAX_VALUE;
+            long mapperNanos = Long.MAX_VALUE;
+            long windowNanos = Long.MAX_VALUE;
+            Game[] games = new Game[256];
+            for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+                long start = SystemClock.elapsedRealtimeNanos();
+                assertEquals(ROW_COUNT, readWithPerRowLookup(cursor));
+                lookupNanos = Math.min(lookupNanos, SystemClock.elapsedRealtimeNanos() - start);
+
+                start = SystemClock.elapsedRealtimeNanos();
+                assertEquals(ROW_COUNT, readWithMapper(cursor));
+                mapperNanos = Math.min(mapperNanos, SystemClock.elapsedRealtimeNanos() - start);
+
+                start = SystemClock.elapsedRealtimeNanos();
+                assertEquals(ROW_COUNT, readWithWindowMapper(cursor, games));
+                windowNanos = Math.min(windowNanos, SystemClock.elapsedRealtimeNanos() - start);
+            }
+
+            Log.i(LOG_TAG, "Per-row lookup: " + lookupNanos / ROW_COUNT + " ns/row, mapper: "
+                    + mapperNanos / ROW_COUNT + " ns/row, window mapper: " + windowNanos / ROW_COUNT + " ns/row");
+        } finally {
+            cursor.close();
+        }
+    }
+}
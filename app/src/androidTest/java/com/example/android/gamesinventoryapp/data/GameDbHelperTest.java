@@ -0,0 +1,204 @@
+package com.example.android.gamesinventoryapp.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameContract.StatsEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests for the schema migrations of {@link GameDbHelper}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GameDbHelperTest {
+
+    /** Name of the database file used by the tests */
+    private static final String TEST_DATABASE_NAME = "test_inventory.db";
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mContext.deleteDatabase(TEST_DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        mContext.deleteDatabase(TEST_DATABASE_NAME);
+    }
+
+    /**
+     * Create a database file with the schema of the given version and one game in it.
+     */
+    private void createDatabase(int version) {
+        SQLiteDatabase db = mContext.openOrCreateDatabase(TEST_DATABASE_NAME, Context.MODE_PRIVATE, null);
+        try {
+            GameDbHelper.createInitialSchema(db);
+            new GameDbHelper(mContext, TEST_DATABASE_NAME).onUpgrade(db, GameSchema.VERSION_INITIAL, version);
+            db.setVersion(version);
+
+            ContentValues values = GameProviderTest.createGame(1);
+            assertTrue(db.insert(GameEntry.TABLE_NAME, null, values) != -1);
+        } finally {
+            db.close();
+        }
+    }
+
+    /**
+     * Return the EXPLAIN QUERY PLAN details of the given query.
+     */
+    private static String queryPlan(SQLiteDatabase db, String sql, String[] args) {
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        try {
+            int detailColumnIndex = cursor.getColumnIndex("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detailColumnIndex)).append('\n');
+            }
+        } finally {
+            cursor.close();
+        }
+        return plan.toString();
+    }
+
+    private static final String SQL_FILTER_GENRE_PLATFORM = "SELECT * FROM " + GameEntry.TABLE_NAME
+            + " WHERE " + GameEntry.COLUMN_GAME_GENRE + "=? AND " + GameEntry.COLUMN_GAME_PLATFORM + "=?";
+
+    private static final String SQL_FILTER_SUPPLIER = "SELECT * FROM " + GameEntry.TABLE_NAME
+            + " WHERE " + GameEntry.COLUMN_SUPPLIER_NAME + "=?";
+
+    private static final String SQL_FILTER_PLATFORM_PAGE = "SELECT * FROM " + GameEntry.TABLE_NAME
+            + " WHERE " + GameEntry.COLUMN_GAME_PLATFORM + "=? AND " + GameEntry._ID + ">? ORDER BY " + GameEntry._ID
+            + " LIMIT 50";
+
+    private static final String SQL_OUT_OF_STOCK = "SELECT * FROM " + GameEntry.TABLE_NAME
+            + " WHERE " + GameEntry.COLUMN_QUANTITY + " = 0";
+
+    @Test
+    public void upgradeFromInitialVersion_keepsDataAndUsesIndexes() {
+        createDatabase(GameSchema.VERSION_INITIAL);
+
+        SQLiteDatabase db = mContext.openOrCreateDatabase(TEST_DATABASE_NAME, Context.MODE_PRIVATE, null);
+        try {
+            assertTrue(queryPlan(db, SQL_FILTER_GENRE_PLATFORM, new String[]{"1", "1"}).contains("SCAN"));
+            assertTrue(queryPlan(db, SQL_FILTER_SUPPLIER, new String[]{"Supplier 1"}).contains("SCAN"));
+            assertTrue(queryPlan(db, SQL_OUT_OF_STOCK, null).contains("SCAN"));
+        } finally {
+            db.close();
+        }
+
+        GameDbHelper helper = new GameDbHelper(mContext, TEST_DATABASE_NAME);
+        try {
+            db = helper.getReadableDatabase();
+            assertEquals(GameDbHelper.DATABASE_VERSION, db.getVersion());
+
+            // The existing game survived the migration
+            Cursor cursor = db.query(GameEntry.TABLE_NAME, null, null, null, null, null, null);
+            try {
+                assertEquals(1, cursor.getCount());
+                assertTrue(cursor.moveToFirst());
+                assertEquals("Game 1", cursor.getString(cursor.getColumnIndex(GameEntry.COLUMN_GAME_NAME)));
+            } finally {
+                cursor.close();
+            }
+
+            assertTrue(queryPlan(db, SQL_FILTER_GENRE_PLATFORM, new String[]{"1", "1"})
+                    .contains(GameEntry.INDEX_GENRE_PLATFORM));
+            assertTrue(queryPlan(db, SQL_FILTER_SUPPLIER, new String[]{"Supplier 1"})
+                    .contains(GameEntry.INDEX_SUPPLIER));
+            // The quantity of the table is a snapshot of the stock, which is no longer indexed
+            assertFalse(queryPlan(db, SQL_OUT_OF_STOCK, null)
+                    .contains(GameEntry.INDEX_OUT_OF_STOCK));
+            // A page of one platform is read from its index, already sorted by id
+            String platformPagePlan = queryPlan(db, SQL_FILTER_PLATFORM_PAGE, new String[]{"1", "0"});
+            assertTrue(platformPagePlan.contains(GameEntry.INDEX_PLATFORM));
+            assertFalse(platformPagePlan.contains("TEMP B-TREE"));
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    public void upgradeToPriceCents_convertsPricesExactly() {
+        createDatabase(GameSchema.VERSION_FACETS);
+
+        // Prices of the previous versions are floating point amounts, some of them not exactly representable
+        SQLiteDatabase db = mContext.openOrCreateDatabase(TEST_DATABASE_NAME, Context.MODE_PRIVATE, null);
+        try {
+            ContentValues values = GameProviderTest.createGame(2);
+            values.put(GameEntry.COLUMN_GAME_PRICE, 0.1 + 0.2);
+            values.put(GameEntry.COLUMN_QUANTITY, 10);
+            db.insert(GameEntry.TABLE_NAME, null, values);
+            values = new ContentValues();
+            values.put(GameEntry.COLUMN_GAME_PRICE, 19.99);
+            db.update(GameEntry.TABLE_NAME, values, GameEntry.COLUMN_GAME_NAME + "=?", new String[]{"Game 1"});
+        } finally {
+            db.close();
+        }
+
+        GameDbHelper helper = new GameDbHelper(mContext, TEST_DATABASE_NAME);
+        try {
+            db = helper.getReadableDatabase();
+            assertEquals(GameDbHelper.DATABASE_VERSION, db.getVersion());
+
+            Cursor cursor = db.query(GameEntry.TABLE_NAME, new String[]{GameEntry.COLUMN_GAME_PRICE,
+                    "typeof(" + GameEntry.COLUMN_GAME_PRICE + ")"}, null, null, null, null, GameEntry._ID);
+            try {
+                assertTrue(cursor.moveToNext());
+                assertEquals(1999, cursor.getLong(0));
+                assertEquals("integer", cursor.getString(1));
+                assertTrue(cursor.moveToNext());
+                assertEquals(30, cursor.getLong(0));
+            } finally {
+                cursor.close();
+            }
+
+            // Game 1: 19.99 x 1, game 2: 0.30 x 10
+            cursor = db.query(StatsEntry.TABLE_NAME, new String[]{StatsEntry.COLUMN_TOTAL_VALUE,
+                            "typeof(" + StatsEntry.COLUMN_TOTAL_VALUE + ")"},
+                    StatsEntry.COLUMN_DIMENSION + "=?", new String[]{StatsEntry.DIMENSION_TOTAL}, null, null, null);
+            try {
+                assertTrue(cursor.moveToFirst());
+                assertEquals(1999 + 300, cursor.getLong(0));
+                assertEquals("integer", cursor.getString(1));
+            } finally {
+                cursor.close();
+            }
+
+            // The search table still finds the games of the rebuilt table
+            cursor = db.rawQuery(GameSchema.SQL_SELECT_SEARCH_MATCHES, new String[]{"Game"});
+            try {
+                assertEquals(2, cursor.getCount());
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    public void freshDatabase_matchesUpgradedDatabase() {
+        GameDbHelper helper = new GameDbHelper(mContext, TEST_DATABASE_NAME);
+        try {
+            SQLiteDatabase db = helper.getReadableDatabase();
+            assertEquals(GameDbHelper.DATABASE_VERSION, db.getVersion());
+            assertTrue(queryPlan(db, SQL_FILTER_SUPPLIER, new String[]{"Supplier 1"})
+                    .contains(GameEntry.INDEX_SUPPLIER));
+        } finally {
+            helper.close();
+        }
+    }
+}
@@ -0,0 +1,918 @@
+package com.example.android.gamesinventoryapp.data;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.ProviderTestCase2;
+import android.test.mock.MockContentResolver;
+import android.util.Log;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameContract.LowStockEntry;
+import com.example.android.gamesinventoryapp.data.GameContract.StatsEntry;
+import com.example.android.gamesinventoryapp.data.GameContract.StockMovementEntry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented tests for {@link GameProvider}, run against an isolated copy of the database.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GameProviderTest extends ProviderTestCase2<GameProvider> {
+
+    /** Tag for the log messages */
+    private static final String LOG_TAG = GameProviderTest.class.getSimpleName();
+
+    /** Number of rows used by the throughput tests */
+    private static final int ROW_COUNT = 2000;
+
+    private MockContentResolver mResolver;
+
+    public GameProviderTest() {
+        super(GameProvider.class, GameContract.CONTENT_AUTHORITY);
+    }
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        setContext(InstrumentationRegistry.getTargetContext());
+        super.setUp();
+        mResolver = getMockContentResolver();
+    }
+
+    @After
+    @Override
+    public void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    /**
+     * Build the content values for a valid test game.
+     */
+    static ContentValues createGame(int i) {
+        ContentValues values = new ContentValues();
+        values.put(GameEntry.COLUMN_GAME_NAME, "Game " + i);
+        values.put(GameEntry.COLUMN_GAME_GENRE, i % 6);
+        values.put(GameEntry.COLUMN_GAME_PLATFORM, i % 5);
+        values.put(GameEntry.COLUMN_GAME_PRICE, 1999);
+        values.put(GameEntry.COLUMN_QUANTITY, i % 100);
+        values.put(GameEntry.COLUMN_SUPPLIER_NAME, "Supplier " + (i % 20));
+        values.put(GameEntry.COLUMN_SUPPLIER_PHONE, "+1 (000) 000-0000");
+        return values;
+    }
+
+    static ContentValues[] createGames(int count) {
+        ContentValues[] valuesArray = new ContentValues[count];
+        for (int i = 0; i < count; i++) {
+            valuesArray[i] = createGame(i);
+        }
+        return valuesArray;
+    }
+
+    private int countGames() {
+        Cursor cursor = mResolver.query(GameEntry.CONTENT_URI, new String[]{GameEntry._ID}, null, null, null);
+        assertNotNull(cursor);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void bulkInsert_insertsAllRows() {
+        int rowsInserted = mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(ROW_COUNT));
+        assertEquals(ROW_COUNT, rowsInserted);
+        assertEquals(ROW_COUNT, countGames());
+    }
+
+    @Test
+    public void bulkInsert_invalidRowInsertsNothing() {
+        ContentValues[] valuesArray = createGames(10);
+        valuesArray[5].remove(GameEntry.COLUMN_GAME_NAME);
+        try {
+            mResolver.bulkInsert(GameEntry.CONTENT_URI, valuesArray);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Expected, the whole batch must be rejected
+        }
+        assertEquals(0, countGames());
+    }
+
+    @Test
+    public void insert_rejectsPriceNotInCents() {
+        ContentValues values = createGame(0);
+        values.put(GameEntry.COLUMN_GAME_PRICE, 19.99);
+        try {
+            mResolver.insert(GameEntry.CONTENT_URI, values);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Expected, the price would have been truncated
+        }
+        assertEquals(0, countGames());
+    }
+
+    @Test
+    public void import_upsertsByNamePlatform() {
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(2));
+
+        // Game 0 gets a new price and keeps its quantity, game 2 is new
+        ContentValues changed = new ContentValues();
+        changed.put(GameEntry.COLUMN_GAME_NAME, "Game 0");
+        changed.put(GameEntry.COLUMN_GAME_PLATFORM, 0);
+        changed.put(GameEntry.COLUMN_SUPPLIER_NAME, "Supplier 0");
+        changed.put(GameEntry.COLUMN_GAME_PRICE, 2499);
+        ContentValues unchanged = createGame(1);
+        ContentValues added = new ContentValues();
+        added.put(GameEntry.COLUMN_GAME_NAME, "Game 2");
+        added.put(GameEntry.COLUMN_GAME_PLATFORM, 2);
+        added.put(GameEntry.COLUMN_SUPPLIER_NAME, "Supplier 2");
+
+        int rowsWritten = mResolver.bulkInsert(GameEntry.CONTENT_IMPORT_URI,
+                new ContentValues[]{changed, unchanged, added});
+        assertEquals(2, rowsWritten);
+        assertEquals(3, countGames());
+
+        Cursor cursor = mResolver.query(GameEntry.CONTENT_URI,
+                new String[]{GameEntry.COLUMN_GAME_PRICE, GameEntry.COLUMN_QUANTITY},
+                GameEntry.COLUMN_GAME_NAME + "=?", new String[]{"Game 0"}, null);
+        assertNotNull(cursor);
+        try {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(2499, cursor.getLong(0));
+            assertEquals(0, cursor.getInt(1));
+        } finally {
+            cursor.close();
+        }
+
+        // The batch adds the new game to the statistics and the search table once it is written
+        assertEquals(3, readStat(StatsEntry.DIMENSION_TOTAL, "0", StatsEntry.COLUMN_GAME_COUNT));
+        assertEquals(1, readStat(StatsEntry.DIMENSION_TOTAL, "0", StatsEntry.COLUMN_TOTAL_STOCK));
+        assertEquals(1999, readStat(StatsEntry.DIMENSION_TOTAL, "0", StatsEntry.COLUMN_TOTAL_VALUE));
+        cursor = mResolver.query(GameEntry.buildSearchUri("game"), null, null, null, null);
+        assertNotNull(cursor);
+        try {
+            assertEquals(3, cursor.getCount());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void exportCsv_streamsAllGamesAndImportsBack() throws IOException {
+        ContentValues[] valuesArray = createGames(ROW_COUNT);
+        valuesArray[1].put(GameEntry.COLUMN_GAME_NAME, "Heroes, \"Gold\" Edition");
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, valuesArray);
+
+        InputStream input = mResolver.openInputStream(GameEntry.CONTENT_EXPORT_CSV_URI);
+        assertNotNull(input);
+        try (GameCsvParser parser = new GameCsvParser(new InputStreamReader(input, "UTF-8"))) {
+            for (int i = 0; i < ROW_COUNT; i++) {
+                assertTrue(parser.next());
+                assertNull(parser.getError());
+                assertEquals(valuesArray[i].getAsString(GameEntry.COLUMN_GAME_NAME), parser.getName());
+                assertEquals(1999, parser.getPriceCents());
+                assertEquals(i % 100, parser.getQuantity());
+            }
+            assertFalse(parser.next());
+        }
+    }
+
+    @Test
+    public void exportJsonl_writesOneObjectPerGame() throws IOException {
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(2));
+        assertArrayEquals(new String[]{GameEntry.EXPORT_JSONL_TYPE},
+                mResolver.getStreamTypes(GameEntry.CONTENT_EXPORT_JSONL_URI, "application/*"));
+
+        InputStream input = mResolver.openInputStream(GameEntry.CONTENT_EXPORT_JSONL_URI);
+        assertNotNull(input);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, "UTF-8"))) {
+            String line = reader.readLine();
+            assertNotNull(line);
+            assertTrue(line, line.matches("\\{\"_id\":\\d+,\"name\":\"Game 0\",\"genre\":0,\"platform\":0,"
+                    + "\"price\":1999,\"quantity\":0,\"supplier_name\":\"Supplier 0\","
+                    + "\"supplier_phone\":\"\\+1 \\(000\\) 000-0000\"\\}"));
+            assertNotNull(reader.readLine());
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    public void bulkInsert_insertsTheSameRowsAsSingleInserts() {
+        ContentValues[] valuesArray = createGames(ROW_COUNT);
+
+        long start = SystemClock.elapsedRealtime();
+        for (ContentValues values : valuesArray) {
+            mResolver.insert(GameEntry.CONTENT_URI, values);
+        }
+        long singleMillis = Math.max(1, SystemClock.elapsedRealtime() - start);
+        assertEquals(ROW_COUNT, countGames());
+
+        mResolver.delete(GameEntry.CONTENT_URI, null, null);
+
+        start = SystemClock.elapsedRealtime();
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, valuesArray);
+        long bulkMillis = Math.max(1, SystemClock.elapsedRealtime() - start);
+
+        // The timings depend too much on the device to be asserted, they are only logged
+        Log.i(LOG_TAG, "insert: " + (ROW_COUNT * 1000L / singleMillis) + " rows/s, bulkInsert: "
+                + (ROW_COUNT * 1000L / bulkMillis) + " rows/s");
+        assertEquals(ROW_COUNT, countGames());
+    }
+
+    @Test
+    public void applyBatch_appliesAllOperations() throws Exception {
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(3));
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        operations.add(ContentProviderOperation.newUpdate(GameEntry.CONTENT_URI)
+                .withSelection(GameEntry.COLUMN_GAME_NAME + "=?", new String[]{"Game 1"})
+                .withValue(GameEntry.COLUMN_QUANTITY, 42)
+                .build());
+        operations.add(ContentProviderOperation.newDelete(GameEntry.CONTENT_URI)
+                .withSelection(GameEntry.COLUMN_GAME_NAME + "=?", new String[]{"Game 2"})
+                .withYieldAllowed(true)
+                .build());
+        operations.add(ContentProviderOperation.newInsert(GameEntry.CONTENT_URI)
+                .withValues(createGame(3))
+                .build());
+
+        ContentProviderResult[] results = mResolver.applyBatch(GameContract.CONTENT_AUTHORITY, operations);
+        assertEquals(3, results.length);
+        assertEquals(Integer.valueOf(1), results[0].count);
+        assertEquals(Integer.valueOf(1), results[1].count);
+        assertNotNull(results[2].uri);
+        assertEquals(3, countGames());
+    }
+
+    @Test
+    public void applyBatch_failingOperationRollsBackEverything() throws Exception {
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(3));
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        operations.add(ContentProviderOperation.newDelete(GameEntry.CONTENT_URI).build());
+        operations.add(ContentProviderOperation.newUpdate(GameEntry.CONTENT_URI)
+                .withValue(GameEntry.COLUMN_QUANTITY, -1)
+                .build());
+        try {
+            mResolver.applyBatch(GameContract.CONTENT_AUTHORITY, operations);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Expected, the delete must be rolled back
+        }
+        assertEquals(3, countGames());
+    }
+
+    @Test
+    public void applyBatch_commitsAtYieldPointWhenContended() throws Exception {
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(3));
+
+        // Another thread waits to write while the batch reaches its yield point. Readers have their
+        // own connections, so only a writer waiting for the connection of the batch makes it yield.
+        final CountDownLatch written = new CountDownLatch(1);
+        final Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mResolver.insert(GameEntry.CONTENT_URI, createGame(10));
+                written.countDown();
+            }
+        });
+        final AtomicBoolean writtenDuringBatch = new AtomicBoolean();
+        ArrayList<ContentProviderOperation> operations = new ArrayList<ContentProviderOperation>() {
+            @Override
+            public ContentProviderOperation get(int index) {
+                try {
+                    if (index == 1) {
+                        // Read just before the yield point, start the writer and wait until it is blocked
+                        writer.start();
+                        long deadline = SystemClock.elapsedRealtime() + 5000;
+                        while (writer.getState() != Thread.State.WAITING
+                                && writer.getState() != Thread.State.TIMED_WAITING
+                                && SystemClock.elapsedRealtime() < deadline) {
+                            Thread.sleep(10);
+                        }
+                    } else if (index == 2) {
+                        // The writer only gets the connection if the batch yielded it
+                        writtenDuringBatch.set(written.await(5, TimeUnit.SECONDS));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.get(index);
+            }
+        };
+        operations.add(ContentProviderOperation.newUpdate(GameEntry.CONTENT_URI)
+                .withSelection(GameEntry.COLUMN_GAME_NAME + "=?", new String[]{"Game 1"})
+                .withValue(GameEntry.COLUMN_QUANTITY, 42)
+                .build());
+        operations.add(ContentProviderOperation.newDelete(GameEntry.CONTENT_URI)
+                .withSelection(GameEntry.COLUMN_GAME_NAME + "=?", new String[]{"Game 2"})
+                .withYieldAllowed(true)
+                .build());
+        operations.add(ContentProviderOperation.newUpdate(GameEntry.CONTENT_URI)
+                .withValue(GameEntry.COLUMN_QUANTITY, -1)
+                .build());
+
+        // The list is given to the provider itself, the resolver would copy it
+        try {
+            getProvider().applyBatch(operations);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Expected, the operations after the yield point must be rolled back
+        }
+        writer.join();
+        assertTrue(writtenDuringBatch.get());
+
+        // The update before the yield point was committed, the delete after it wasn't
+        assertEquals(42, readQuantity(2));
+        assertEquals(4, countGames());
+    }
+
+    @Test
+    public void search_matchesPrefixesAndRanksNameMatchesFirst() {
+        ContentValues byName = createGame(1);
+        byName.put(GameEntry.COLUMN_GAME_NAME, "Zelda Breath of the Wild");
+        ContentValues bySupplier = createGame(2);
+        bySupplier.put(GameEntry.COLUMN_GAME_NAME, "Another Game");
+        bySupplier.put(GameEntry.COLUMN_SUPPLIER_NAME, "Zeldaland Distribution");
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, new ContentValues[]{bySupplier, byName, createGame(3)});
+
+        Cursor cursor = mResolver.query(GameEntry.buildSearchUri("zeld"),
+                new String[]{GameEntry._ID, GameEntry.COLUMN_GAME_NAME}, null, null, null);
+        assertNotNull(cursor);
+        try {
+            assertEquals(2, cursor.getCount());
+            assertTrue(cursor.moveToFirst());
+            assertEquals("Zelda Breath of the Wild", cursor.getString(1));
+        } finally {
+            cursor.close();
+        }
+
+        // The search table follows renames through the triggers
+        ContentValues rename = new ContentValues();
+        rename.put(GameEntry.COLUMN_GAME_NAME, "Mario Kart");
+        mResolver.update(GameEntry.CONTENT_URI, rename, GameEntry.COLUMN_GAME_NAME + "=?",
+                new String[]{"Zelda Breath of the Wild"});
+        cursor = mResolver.query(GameEntry.buildSearchUri("zeld"), null, null, null, null);
+        assertNotNull(cursor);
+        try {
+            assertEquals(1, cursor.getCount());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void search_canceledQueryIsNotRun() {
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(10));
+
+        CancellationSignal cancellationSignal = new CancellationSignal();
+        cancellationSignal.cancel();
+        try {
+            Cursor cursor = getProvider().query(GameEntry.buildSearchUri("game"), null, null, null, null,
+                    cancellationSignal);
+            if (cursor != null) {
+                cursor.close();
+            }
+            fail("A canceled query must throw OperationCanceledException");
+        } catch (OperationCanceledException expected) {
+        }
+
+        // A query that isn't canceled still returns the matches
+        Cursor cursor = getProvider().query(GameEntry.buildSearchUri("game"), null, null, null, null,
+                new CancellationSignal());
+        assertNotNull(cursor);
+        try {
+            assertEquals(10, cursor.getCount());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void pageQuery_returnsConsecutivePagesByKey() {
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(25));
+
+        long afterId = 0;
+        int total = 0;
+        while (true) {
+            Cursor cursor = mResolver.query(GameEntry.buildPageUri(afterId, 10),
+                    new String[]{GameEntry._ID}, null, null, null);
+            assertNotNull(cursor);
+            try {
+                if (cursor.getCount() == 0) {
+                    break;
+                }
+                assertTrue(cursor.getCount() <= 10);
+                while (cursor.moveToNext()) {
+                    long id = cursor.getLong(0);
+                    assertTrue("Pages must be sorted by id", id > afterId);
+                    afterId = id;
+                    total++;
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        assertEquals(25, total);
+    }
+
+    @Test
+    public void sell_losesNoDecrementsUnderConcurrentLoad() throws Exception {
+        final int initialStock = 500;
+        final int threadCount = 8;
+        final int sellsPerThread = 100;
+
+        ContentValues values = createGame(1);
+        values.put(GameEntry.COLUMN_QUANTITY, initialStock);
+        final long id = ContentUris.parseId(mResolver.insert(GameEntry.CONTENT_URI, values));
+
+        final AtomicInteger sold = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < sellsPerThread; i++) {
+                        sold.addAndGet(mResolver.update(GameEntry.buildSellUri(id, 1), new ContentValues(), null, null));
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // More sells were attempted than copies were available: exactly the stock was sold
+        assertEquals(initialStock, sold.get());
+        Cursor cursor = mResolver.query(ContentUris.withAppendedId(GameEntry.CONTENT_URI, id),
+                new String[]{GameEntry.COLUMN_QUANTITY}, null, null, null);
+        assertNotNull(cursor);
+        try {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(0, cursor.getInt(0));
+        } finally {
+            cursor.close();
+        }
+
+        // Restocking brings copies back
+        assertEquals(1, mResolver.update(GameEntry.buildRestockUri(id, 3), new ContentValues(), null, null));
+        assertEquals(1, mResolver.update(GameEntry.buildSellUri(id, 3), new ContentValues(), null, null));
+        assertEquals(0, mResolver.update(GameEntry.buildSellUri(id, 1), new ContentValues(), null, null));
+    }
+
+    @Test
+    public void sell_rejectsAmountBeyondTheIntegerRange() {
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(10));
+
+        // 2^32 + 1 copies, which would be 1 copy once narrowed to an int
+        Uri uri = ContentUris.withAppendedId(GameEntry.CONTENT_URI, 10).buildUpon()
+                .appendPath(GameContract.PATH_SELL)
+                .appendQueryParameter(GameEntry.QUERY_PARAMETER_AMOUNT, String.valueOf((1L << 32) + 1))
+                .build();
+        try {
+            mResolver.update(uri, new ContentValues(), null, null);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Expected, the stock must not change
+        }
+        assertEquals(9, readQuantity(10));
+    }
+
+    @Test
+    public void query_starProjectionReadsCurrentStock() {
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(10));
+        assertEquals(1, mResolver.update(GameEntry.buildSellUri(10, 2), new ContentValues(), null, null));
+
+        // The sale is a pending stock movement, which the games table doesn't hold yet
+        Cursor cursor = mResolver.query(ContentUris.withAppendedId(GameEntry.CONTENT_URI, 10),
+                new String[]{"*"}, null, null, null);
+        assertNotNull(cursor);
+        try {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(7, cursor.getInt(cursor.getColumnIndexOrThrow(GameEntry.COLUMN_QUANTITY)));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void query_isNotBlockedByOpenWriteTransaction() throws Exception {
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(100));
+
+        final SQLiteDatabase database = getProvider().getDbHelper().getWritableDatabase();
+        final CountDownLatch transactionStarted = new CountDownLatch(1);
+        final CountDownLatch readDone = new CountDownLatch(1);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                database.beginTransaction();
+                try {
+                    database.insert(GameEntry.TABLE_NAME, null, createGame(100));
+                    transactionStarted.countDown();
+                    readDone.await(5, TimeUnit.SECONDS);
+                    database.setTransactionSuccessful();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    database.endTransaction();
+                }
+            }
+        });
+        writer.start();
+        assertTrue(transactionStarted.await(5, TimeUnit.SECONDS));
+
+        // The reader sees the last committed data without waiting for the writer, which only
+        // commits once the read is done
+        long start = SystemClock.elapsedRealtime();
+        assertEquals(100, countGames());
+        long readMillis = SystemClock.elapsedRealtime() - start;
+        readDone.countDown();
+        writer.join();
+
+        Log.i(LOG_TAG, "Read during an open write transaction: " + readMillis + "ms");
+        assertEquals(101, countGames());
+    }
+
+    @Test
+    public void benchmark_readLatencyUnderWriteLoad() throws Exception {
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(ROW_COUNT));
+
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int i = 0;
+                while (writing.get()) {
+                    mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(200));
+                    mResolver.update(GameEntry.buildRestockUri(1 + (i++ % ROW_COUNT), 1), new ContentValues(), null, null);
+                }
+            }
+        });
+        writer.start();
+
+        final int reads = 200;
+        long[] latencies = new long[reads];
+        try {
+            for (int i = 0; i < reads; i++) {
+                long start = SystemClock.elapsedRealtimeNanos();
+                Cursor cursor = mResolver.query(GameEntry.buildPageUri(i, 50), null, null, null, null);
+                assertNotNull(cursor);
+                cursor.getCount();
+                cursor.close();
+                latencies[i] = SystemClock.elapsedRealtimeNanos() - start;
+            }
+        } finally {
+            writing.set(false);
+            writer.join();
+        }
+
+        Arrays.sort(latencies);
+        Log.i(LOG_TAG, "Read latency under write load: p50=" + latencies[reads / 2] / 1000 + "us, p99="
+                + latencies[reads * 99 / 100] / 1000 + "us, max=" + latencies[reads - 1] / 1000 + "us");
+    }
+
+    @Test
+    public void notifications_areCoalescedAcrossBursts() throws Exception {
+        ContentValues values = createGame(1);
+        values.put(GameEntry.COLUMN_QUANTITY, 50);
+        long id = ContentUris.parseId(mResolver.insert(GameEntry.CONTENT_URI, values));
+        Bundle before = mResolver.call(GameEntry.CONTENT_URI, GameContract.METHOD_GET_NOTIFICATION_STATS, null, null);
+
+        for (int i = 0; i < 20; i++) {
+            mResolver.update(GameEntry.buildSellUri(id, 1), new ContentValues(), null, null);
+        }
+        // Let the coalescing window elapse
+        Thread.sleep(500);
+
+        Bundle after = mResolver.call(GameEntry.CONTENT_URI, GameContract.METHOD_GET_NOTIFICATION_STATS, null, null);
+        assertNotNull(before);
+        assertNotNull(after);
+        long reported = after.getLong(GameContract.KEY_CHANGES_REPORTED) - before.getLong(GameContract.KEY_CHANGES_REPORTED);
+        long sent = after.getLong(GameContract.KEY_NOTIFICATIONS_SENT) - before.getLong(GameContract.KEY_NOTIFICATIONS_SENT);
+        Log.i(LOG_TAG, "Changes reported: " + reported + ", notifications sent: " + sent);
+        assertEquals(20, reported);
+        assertTrue(sent >= 1 && sent < reported);
+    }
+
+    @Test
+    public void purge_deletesBoundedChunksWithoutNotifying() throws Exception {
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(450));
+        // Let the notification of the insertion be sent
+        Thread.sleep(500);
+        Bundle before = mResolver.call(GameEntry.CONTENT_URI, GameContract.METHOD_GET_NOTIFICATION_STATS, null, null);
+
+        assertEquals(200, mResolver.delete(GameEntry.buildPurgeUri(200), null, null));
+        assertEquals(250, countGames());
+        assertEquals(200, mResolver.delete(GameEntry.buildPurgeUri(200), null, null));
+        assertEquals(50, mResolver.delete(GameEntry.buildPurgeUri(200), null, null));
+        assertEquals(0, countGames());
+        assertEquals(0, readStat(StatsEntry.DIMENSION_TOTAL, "0", StatsEntry.COLUMN_GAME_COUNT));
+        Thread.sleep(500);
+
+        // The purging caller notifies the listeners once it is done
+        Bundle after = mResolver.call(GameEntry.CONTENT_URI, GameContract.METHOD_GET_NOTIFICATION_STATS, null, null);
+        assertNotNull(before);
+        assertNotNull(after);
+        assertEquals(before.getLong(GameContract.KEY_CHANGES_REPORTED), after.getLong(GameContract.KEY_CHANGES_REPORTED));
+    }
+
+    @Test
+    public void changedIds_areParsedFromNotificationUris() {
+        assertArrayEquals(new long[]{7}, GameEntry.getChangedIds(ContentUris.withAppendedId(GameEntry.CONTENT_URI, 7)));
+        Uri uri = GameEntry.CONTENT_URI.buildUpon()
+                .appendQueryParameter(GameEntry.QUERY_PARAMETER_CHANGED_IDS, "3,5,8")
+                .build();
+        assertArrayEquals(new long[]{3, 5, 8}, GameEntry.getChangedIds(uri));
+        assertNull(GameEntry.getChangedIds(GameEntry.CONTENT_URI));
+        assertArrayEquals(new long[0], GameEntry.getChangedIds(StatsEntry.CONTENT_URI));
+        assertArrayEquals(new long[0], GameEntry.getChangedIds(LowStockEntry.CONTENT_URI));
+
+        // Sales and restocks only change the stock of the game
+        assertArrayEquals(new long[]{7}, GameEntry.getChangedIds(GameEntry.buildStockChangeUri(7)));
+        assertTrue(GameEntry.isStockChange(GameEntry.buildStockChangeUri(7)));
+        assertFalse(GameEntry.isStockChange(ContentUris.withAppendedId(GameEntry.CONTENT_URI, 7)));
+        assertFalse(GameEntry.isStockChange(uri));
+    }
+
+    /**
+     * Read one statistic of the given group, or 0 if the group doesn't exist.
+     */
+    private long readStat(String dimension, String groupKey, String column) {
+        Cursor cursor = mResolver.query(StatsEntry.CONTENT_URI, new String[]{column},
+                StatsEntry.COLUMN_DIMENSION + "=? AND " + StatsEntry.COLUMN_GROUP_KEY + "=?",
+                new String[]{dimension, groupKey}, null);
+        assertNotNull(cursor);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void stats_followInsertsUpdatesAndDeletes() {
+        // Games 0 to 9: genre i % 6, quantity i
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(10));
+        assertEquals(10, readStat(StatsEntry.DIMENSION_TOTAL, "0", StatsEntry.COLUMN_GAME_COUNT));
+        assertEquals(45, readStat(StatsEntry.DIMENSION_TOTAL, "0", StatsEntry.COLUMN_TOTAL_STOCK));
+        assertEquals(45 * 1999, readStat(StatsEntry.DIMENSION_TOTAL, "0", StatsEntry.COLUMN_TOTAL_VALUE));
+        // Games 1 and 7 are action games
+        assertEquals(2, readStat(StatsEntry.DIMENSION_GENRE, String.valueOf(GameEntry.GENRE_ACTION), StatsEntry.COLUMN_GAME_COUNT));
+        assertEquals(8, readStat(StatsEntry.DIMENSION_GENRE, String.valueOf(GameEntry.GENRE_ACTION), StatsEntry.COLUMN_TOTAL_STOCK));
+
+        // Move game 1 to the RPG genre
+        ContentValues values = new ContentValues();
+        values.put(GameEntry.COLUMN_GAME_GENRE, GameEntry.GENRE_RPG);
+        mResolver.update(GameEntry.CONTENT_URI, values, GameEntry.COLUMN_GAME_NAME + "=?", new String[]{"Game 1"});
+        assertEquals(1, readStat(StatsEntry.DIMENSION_GENRE, String.valueOf(GameEntry.GENRE_ACTION), StatsEntry.COLUMN_GAME_COUNT));
+        assertEquals(3, readStat(StatsEntry.DIMENSION_GENRE, String.valueOf(GameEntry.GENRE_RPG), StatsEntry.COLUMN_GAME_COUNT));
+
+        // Delete everything, the groups disappear
+        mResolver.delete(GameEntry.CONTENT_URI, null, null);
+        Cursor cursor = mResolver.query(StatsEntry.CONTENT_URI, null, null, null, null);
+        assertNotNull(cursor);
+        try {
+            assertEquals(0, cursor.getCount());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void stats_countGenreAndPlatformPairs() {
+        // Games 0 to 59: genre i % 6 and platform i % 5, so every pair has 2 games
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(60));
+        String actionOnXboxOne = String.valueOf(StatsEntry.buildGenrePlatformKey(GameEntry.GENRE_ACTION, GameEntry.PLATFORM_XBOX_ONE));
+        String actionOnPs4 = String.valueOf(StatsEntry.buildGenrePlatformKey(GameEntry.GENRE_ACTION, GameEntry.PLATFORM_PS4));
+        assertEquals(2, readStat(StatsEntry.DIMENSION_GENRE_PLATFORM, actionOnXboxOne, StatsEntry.COLUMN_GAME_COUNT));
+        assertEquals(2, readStat(StatsEntry.DIMENSION_GENRE_PLATFORM, actionOnPs4, StatsEntry.COLUMN_GAME_COUNT));
+
+        // Game 1 is an action game on Xbox One, move it to PS4
+        ContentValues values = new ContentValues();
+        values.put(GameEntry.COLUMN_GAME_PLATFORM, GameEntry.PLATFORM_PS4);
+        mResolver.update(GameEntry.CONTENT_URI, values, GameEntry.COLUMN_GAME_NAME + "=?", new String[]{"Game 1"});
+        assertEquals(1, readStat(StatsEntry.DIMENSION_GENRE_PLATFORM, actionOnXboxOne, StatsEntry.COLUMN_GAME_COUNT));
+        assertEquals(3, readStat(StatsEntry.DIMENSION_GENRE_PLATFORM, actionOnPs4, StatsEntry.COLUMN_GAME_COUNT));
+
+        // The filtered catalog has as many games as the facet count
+        Cursor cursor = mResolver.query(GameEntry.buildPageUri(0, 50), new String[]{GameEntry._ID},
+                GameEntry.COLUMN_GAME_GENRE + "=? AND " + GameEntry.COLUMN_GAME_PLATFORM + "=?",
+                new String[]{String.valueOf(GameEntry.GENRE_ACTION), String.valueOf(GameEntry.PLATFORM_PS4)}, null);
+        assertNotNull(cursor);
+        try {
+            assertEquals(3, cursor.getCount());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void stockMovements_areFoldedWithoutChangingStockOrStats() {
+        // Game 5: quantity 5 at 19.99
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(10));
+        long id = 6;
+        assertEquals(1, mResolver.update(GameEntry.buildSellUri(id, 2), new ContentValues(), null, null));
+        assertEquals(1, mResolver.update(GameEntry.buildRestockUri(id, 10), new ContentValues(), null, null));
+        ContentValues values = new ContentValues();
+        values.put(GameEntry.COLUMN_QUANTITY, 20);
+        assertEquals(1, mResolver.update(ContentUris.withAppendedId(GameEntry.CONTENT_URI, id), values, null, null));
+
+        // The ledger has the three movements, most recent first
+        Cursor cursor = mResolver.query(StockMovementEntry.CONTENT_URI, new String[]{StockMovementEntry.COLUMN_KIND,
+                        StockMovementEntry.COLUMN_DELTA}, StockMovementEntry.COLUMN_GAME_ID + "=?",
+                new String[]{String.valueOf(id)}, null);
+        assertNotNull(cursor);
+        try {
+            assertEquals(3, cursor.getCount());
+            assertTrue(cursor.moveToFirst());
+            assertEquals(StockMovementEntry.KIND_ADJUSTMENT, cursor.getInt(0));
+            assertEquals(7, cursor.getInt(1));
+            assertTrue(cursor.moveToLast());
+            assertEquals(StockMovementEntry.KIND_SALE, cursor.getInt(0));
+            assertEquals(-2, cursor.getInt(1));
+        } finally {
+            cursor.close();
+        }
+        assertEquals(20, readQuantity(id));
+        assertEquals(45 - 5 + 20, readStat(StatsEntry.DIMENSION_TOTAL, "0", StatsEntry.COLUMN_TOTAL_STOCK));
+
+        // Folding the movements neither changes the stock read nor the statistics
+        Bundle result = mResolver.call(GameEntry.CONTENT_URI, GameContract.METHOD_COMPACT_STOCK, null, null);
+        assertNotNull(result);
+        assertEquals(3, result.getInt(GameContract.KEY_MOVEMENTS_COMPACTED));
+        assertEquals(20, readQuantity(id));
+        assertEquals(60, readStat(StatsEntry.DIMENSION_TOTAL, "0", StatsEntry.COLUMN_TOTAL_STOCK));
+        assertEquals(60 * 1999, readStat(StatsEntry.DIMENSION_TOTAL, "0", StatsEntry.COLUMN_TOTAL_VALUE));
+
+        // A sale after the compaction only counts from the snapshot, and a selection sees the current stock
+        assertEquals(1, mResolver.update(GameEntry.buildSellUri(id, 20), new ContentValues(), null, null));
+        assertEquals(0, mResolver.update(GameEntry.buildSellUri(id, 1), new ContentValues(), null, null));
+        assertEquals(0, readQuantity(id));
+        assertEquals(1, mResolver.delete(GameEntry.CONTENT_URI, GameEntry.COLUMN_QUANTITY + "=0 AND "
+                + GameEntry._ID + "=?", new String[]{String.valueOf(id)}));
+        assertEquals(40, readStat(StatsEntry.DIMENSION_TOTAL, "0", StatsEntry.COLUMN_TOTAL_STOCK));
+
+        // The movements of the deleted game are deleted with it, so nothing is left to fold
+        cursor = mResolver.query(StockMovementEntry.CONTENT_URI, new String[]{StockMovementEntry._ID},
+                StockMovementEntry.COLUMN_GAME_ID + "=?", new String[]{String.valueOf(id)}, null);
+        assertNotNull(cursor);
+        try {
+            assertEquals(0, cursor.getCount());
+        } finally {
+            cursor.close();
+        }
+        assertEquals(0, mResolver.call(GameEntry.CONTENT_URI, GameContract.METHOD_COMPACT_STOCK, null, null)
+                .getInt(GameContract.KEY_MOVEMENTS_COMPACTED));
+    }
+
+    @Test
+    public void lowStock_listsGamesBelowTheirThreshold() {
+        // Games 0 to 9 have a stock of i, games 2 and 8 are watched below 5 copies
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(10));
+        ContentValues values = new ContentValues();
+        values.put(GameEntry.COLUMN_REORDER_THRESHOLD, 5);
+        assertEquals(2, mResolver.update(GameEntry.CONTENT_URI, values, GameEntry.COLUMN_GAME_NAME + " IN (?, ?)",
+                new String[]{"Game 2", "Game 8"}));
+        assertArrayEquals(new long[]{3}, readLowStockIds());
+
+        // Game 8 crosses its threshold on a sale, and comes back with a restock
+        long id = 9;
+        assertEquals(1, mResolver.update(GameEntry.buildSellUri(id, 4), new ContentValues(), null, null));
+        assertArrayEquals(new long[]{3, 9}, readLowStockIds());
+        mResolver.call(GameEntry.CONTENT_URI, GameContract.METHOD_COMPACT_STOCK, null, null);
+        assertArrayEquals(new long[]{3, 9}, readLowStockIds());
+        assertEquals(1, mResolver.update(GameEntry.buildRestockUri(id, 1), new ContentValues(), null, null));
+        assertArrayEquals(new long[]{3}, readLowStockIds());
+
+        // A new game below its threshold is listed, a deleted or unwatched one isn't
+        values = createGame(10);
+        values.put(GameEntry.COLUMN_QUANTITY, 1);
+        values.put(GameEntry.COLUMN_REORDER_THRESHOLD, 2);
+        long newId = ContentUris.parseId(mResolver.insert(GameEntry.CONTENT_URI, values));
+        assertArrayEquals(new long[]{newId, 3}, readLowStockIds());
+        mResolver.delete(ContentUris.withAppendedId(GameEntry.CONTENT_URI, newId), null, null);
+        values = new ContentValues();
+        values.put(GameEntry.COLUMN_REORDER_THRESHOLD, 0);
+        mResolver.update(ContentUris.withAppendedId(GameEntry.CONTENT_URI, 3), values, null, null);
+        assertArrayEquals(new long[0], readLowStockIds());
+    }
+
+    @Test
+    public void lowStock_isOnlyCheckedAfterWritesToWatchedGames() {
+        // Game 8 is watched below 5 copies, and has 8 copies
+        mResolver.bulkInsert(GameEntry.CONTENT_URI, createGames(10));
+        ContentValues values = new ContentValues();
+        values.put(GameEntry.COLUMN_REORDER_THRESHOLD, 5);
+        assertEquals(1, mResolver.update(ContentUris.withAppendedId(GameEntry.CONTENT_URI, 9), values, null, null));
+        long reported = readChangesReported();
+
+        // The sale of an unwatched game only reports the game
+        assertEquals(1, mResolver.update(GameEntry.buildSellUri(2, 1), new ContentValues(), null, null));
+        assertEquals(reported + 1, readChangesReported());
+
+        // The sale of the watched game reports the watchlist too once the game is listed
+        assertEquals(1, mResolver.update(GameEntry.buildSellUri(9, 1), new ContentValues(), null, null));
+        assertEquals(reported + 2, readChangesReported());
+        assertEquals(1, mResolver.update(GameEntry.buildSellUri(9, 3), new ContentValues(), null, null));
+        assertEquals(reported + 4, readChangesReported());
+        assertArrayEquals(new long[]{9}, readLowStockIds());
+    }
+
+    @Test
+    public void bulkInsert_keepsReorderThresholds() {
+        // Game 1 has 1 copy and is watched below 5 copies, game 2 isn't watched
+        ContentValues[] valuesArray = createGames(3);
+        valuesArray[1].put(GameEntry.COLUMN_REORDER_THRESHOLD, 5);
+        assertEquals(3, mResolver.bulkInsert(GameEntry.CONTENT_URI, valuesArray));
+        assertArrayEquals(new long[]{2}, readLowStockIds());
+    }
+
+    @Test
+    public void insert_rejectsNegativeReorderThreshold() {
+        ContentValues values = createGame(1);
+        values.put(GameEntry.COLUMN_REORDER_THRESHOLD, -1);
+        try {
+            mResolver.insert(GameEntry.CONTENT_URI, values);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Expected, a threshold is a number of copies
+        }
+        assertEquals(0, countGames());
+    }
+
+    /**
+     * Returns the number of changes reported to the notifier of the provider so far.
+     */
+    private long readChangesReported() {
+        Bundle stats = mResolver.call(GameEntry.CONTENT_URI, GameContract.METHOD_GET_NOTIFICATION_STATS, null, null);
+        assertNotNull(stats);
+        return stats.getLong(GameContract.KEY_CHANGES_REPORTED);
+    }
+
+    /**
+     * Returns the ids of the games of the low stock watchlist, in its default order.
+     */
+    private long[] readLowStockIds() {
+        Cursor cursor = mResolver.query(LowStockEntry.CONTENT_URI, new String[]{LowStockEntry._ID}, null, null, null);
+        assertNotNull(cursor);
+        try {
+            long[] ids = new long[cursor.getCount()];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                ids[i] = cursor.getLong(0);
+            }
+            return ids;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Returns the current stock of the game of the given id, as read from the provider.
+     */
+    private int readQuantity(long id) {
+        Cursor cursor = mResolver.query(ContentUris.withAppendedId(GameEntry.CONTENT_URI, id),
+                new String[]{GameEntry.COLUMN_QUANTITY}, null, null, null);
+        assertNotNull(cursor);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -1,25 +1,46 @@
 package com.example.android.gamesinventoryapp;
 
+import android.app.AlertDialog;
 import android.app.LoaderManager;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.CursorLoader;
 import android.content.Intent;
 import android.content.Loader;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
 import android.support.design.widget.FloatingActionButton;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.DividerItemDecoration;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
 import android.support.v7.widget.Toolbar;
-import android.util.Log;
+import android.text.TextUtils;
+import android.util.SparseArray;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.AdapterView;
-import android.widget.ListView;
+import android.widget.ArrayAdapter;
+import android.widget.Button;
+import android.widget.ProgressBar;
+import android.widget.Spinner;
+import android.widget.TextView;
+import android.widget.Toast;
 
+import com.example.android.gamesinventoryapp.data.Game;
 import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameContract.StatsEntry;
+import com.example.android.gamesinventoryapp.data.GameCursorMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Displays list of games that were entered and stored in the app.
@@ -32,15 +53,214 @@ public class CatalogActivity extends AppCompatActivity implements LoaderManager.
     public static final String LOG_TAG = CatalogActivity.class.getSimpleName();
 
     /**
-     * Identifier for the games data loader
+     * Identifier for the games data loader of the first page, the following pages use the next identifiers
      */
     private static final int GAMES_LOADER = 0;
 
-    GameCursorAdapter mCursorAdapter;
+    /**
+     * Identifier for the search results loader, the page loaders only use non-negative identifiers
+     */
+    private static final int SEARCH_LOADER = -1;
+
+    /**
+     * Identifier for the facet counts loader
+     */
+    private static final int FACETS_LOADER = -2;
+
+    /**
+     * Value of a facet filter that keeps the games of every genre or platform
+     */
+    private static final int NO_FILTER = -1;
+
+    /**
+     * Number of milliseconds without typing after which the search query is run
+     */
+    private static final long SEARCH_DEBOUNCE_MILLIS = 300;
+
+    /**
+     * Number of games loaded in each page of the catalog
+     */
+    private static final int PAGE_SIZE = 50;
+
+    /**
+     * Number of remaining rows below the last visible one at which the next page is loaded
+     */
+    private static final int PREFETCH_DISTANCE = 10;
+
+    /**
+     * Loader argument with the id of the game after which a page starts
+     */
+    private static final String ARG_AFTER_ID = "after_id";
+
+    /**
+     * Loader argument with the id of the last game of a page, or -1 for the last page
+     */
+    private static final String ARG_MAX_ID = "max_id";
+
+    /**
+     * Loader argument with the search terms
+     */
+    private static final String ARG_SEARCH_QUERY = "search_query";
+
+    /**
+     * Saved instance state key for {@link #mPageKeys}
+     */
+    private static final String STATE_PAGE_KEYS = "page_keys";
+
+    /**
+     * Saved instance state key for {@link #mSearchQuery}
+     */
+    private static final String STATE_SEARCH_QUERY = "search_query";
+
+    /**
+     * Saved instance state key for {@link #mGenreFilter}
+     */
+    private static final String STATE_GENRE_FILTER = "genre_filter";
+
+    /**
+     * Saved instance state key for {@link #mPlatformFilter}
+     */
+    private static final String STATE_PLATFORM_FILTER = "platform_filter";
+
+    /**
+     * Request code of the picking of a CSV file to import
+     */
+    private static final int REQUEST_IMPORT_CSV = 1;
+
+    /**
+     * Types of the files that can be imported, CSV files often being typed as plain text
+     */
+    private static final String[] IMPORT_MIME_TYPES = {"text/csv", "text/comma-separated-values", "text/plain"};
+
+    GameAdapter mAdapter;
+
+    /**
+     * View shown instead of the list when there is no game
+     */
+    private View mEmptyView;
+
+    /**
+     * Id of the game after which each loaded page starts. The last id of a page is the key of the next one.
+     */
+    private final ArrayList<Long> mPageKeys = new ArrayList<>();
+
+    /**
+     * Loaded games of each page, indexed by page number
+     */
+    private final SparseArray<List<Game>> mPages = new SparseArray<>();
+
+    /**
+     * Search terms the catalog is filtered with, empty when showing all the games
+     */
+    private String mSearchQuery = "";
+
+    /**
+     * Loaded games matching {@link #mSearchQuery}, or null while they are loading
+     */
+    private List<Game> mSearchResults;
+
+    /**
+     * Genre the catalog is filtered with, or {@link #NO_FILTER}
+     */
+    private int mGenreFilter = NO_FILTER;
+
+    /**
+     * Platform the catalog is filtered with, or {@link #NO_FILTER}
+     */
+    private int mPlatformFilter = NO_FILTER;
+
+    /**
+     * Labels of the genres and of the platforms, indexed by their value
+     */
+    private String[] mGenreLabels;
+    private String[] mPlatformLabels;
+
+    /**
+     * Number of games of each genre (first index) and platform (second index)
+     */
+    private int[][] mFacetCounts;
+
+    /**
+     * Adapters of the filter spinners, showing the number of games of each value
+     */
+    private ArrayAdapter<String> mGenreFilterAdapter;
+    private ArrayAdapter<String> mPlatformFilterAdapter;
+
+    /**
+     * Background work of the catalog, handed over to the next instance on configuration changes
+     */
+    private static class RetainedWork {
+        SellQueue sellQueue;
+        GamePurger gamePurger;
+        GameImporter gameImporter;
+    }
+
+    /**
+     * Queue writing the sales in the background, retained across configuration changes
+     */
+    private SellQueue mSellQueue;
+
+    /**
+     * Deletion of all the games, retained across configuration changes
+     */
+    private GamePurger mGamePurger;
+
+    /**
+     * Import of a CSV file of games, retained across configuration changes
+     */
+    private GameImporter mGameImporter;
+
+    /**
+     * Views showing the progress of the deletion of all the games, or of an import
+     */
+    private View mPurgeBar;
+    private ProgressBar mPurgeProgressBar;
+    private TextView mPurgeTextView;
+
+    /**
+     * Copy of the first page, shown while the catalog starts
+     */
+    private FirstPageCache mFirstPageCache;
+
+    private RecyclerView mRecyclerView;
+
+    private final Handler mHandler = new Handler();
+
+    /**
+     * Observes the changes of the games, to only reload the loaders showing the changed games.
+     * See {@link CatalogCursorLoader}.
+     */
+    private final ContentObserver mGamesObserver = new ContentObserver(mHandler) {
+        @Override
+        public void onChange(boolean selfChange) {
+            onChange(selfChange, null);
+        }
+
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            onGamesChanged(uri);
+        }
+    };
+
+    /**
+     * Search terms typed by the user, waiting to be run by {@link #mSearchRunnable}
+     */
+    private String mPendingSearchQuery;
+
+    /**
+     * Runs the search once the user stopped typing for {@link #SEARCH_DEBOUNCE_MILLIS}
+     */
+    private final Runnable mSearchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            search(mPendingSearchQuery);
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTimings.markActivityCreated();
         setContentView(R.layout.activity_catalog);
         Toolbar toolbar = findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
@@ -55,22 +275,22 @@ public class CatalogActivity extends AppCompatActivity implements LoaderManager.
             }
         });
 
-        // Find the ListView which will be populated with the games data
-        ListView gamesListView = findViewById(R.id.list);
-
-        // Find and set empty view on the ListView, so that it only shows when the list has 0 items.
-        View emptyView = findViewById(R.id.empty_view);
-        gamesListView.setEmptyView(emptyView);
+        // Find the RecyclerView which will be populated with the games data
+        mRecyclerView = findViewById(R.id.list);
+        RecyclerView gamesRecyclerView = mRecyclerView;
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        gamesRecyclerView.setLayoutManager(layoutManager);
+        gamesRecyclerView.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
+        gamesRecyclerView.setHasFixedSize(true);
 
-        // Setup an Adapter to create a list item for each row of game data in Cursor.
-        // There is no game data yet (until the loader finishes) so pass in null for the Cursor
-        mCursorAdapter = new GameCursorAdapter(this, null);
-        gamesListView.setAdapter(mCursorAdapter);
+        // Find the empty view, it is only shown when the list has 0 items.
+        mEmptyView = findViewById(R.id.empty_view);
 
-        // Setup item click listener
-        gamesListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+        // Setup an Adapter to create a list item for each game, which opens the clicked game in the editor.
+        // There is no game data yet (until the loader finishes) so the list starts empty
+        mAdapter = new GameAdapter(this, new GameAdapter.OnGameClickListener() {
             @Override
-            public void onItemClick(AdapterView<?> adapterView, View view, int position, long id) {
+            public void onGameClick(long id) {
                 // Create new intent to go to {@link EditorActivity}
                 Intent intent = new Intent(CatalogActivity.this, EditorActivity.class);
 
@@ -85,24 +305,645 @@ public class CatalogActivity extends AppCompatActivity implements LoaderManager.
                 // Launch the {@link EditorActivity] to display tha data for the current game.
                 startActivity(intent);
             }
+
+            @Override
+            public void onSellClick(Game game) {
+                // Sell one copy right away in the catalog, the database is updated in the background.
+                // If nothing was sold, or the last copy was sold, then inform the user
+                if (!mSellQueue.sell(game) || game.quantity == 1) {
+                    Toast.makeText(CatalogActivity.this, R.string.out_of_stock_msg, Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+        gamesRecyclerView.setAdapter(mAdapter);
+
+        // Load the next page when the user scrolls close to the end of the loaded games
+        gamesRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                int totalItemCount = layoutManager.getItemCount();
+                if (!isSearching() && totalItemCount > 0 && layoutManager.findLastVisibleItemPosition() >= totalItemCount - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
+
+        // Reuse the sell queue of the previous instance, so that no sale is lost,
+        // and the running deletion of all the games or import
+        RetainedWork retainedWork = (RetainedWork) getLastCustomNonConfigurationInstance();
+        if (retainedWork != null) {
+            mSellQueue = retainedWork.sellQueue;
+            mGamePurger = retainedWork.gamePurger;
+            mGameImporter = retainedWork.gameImporter;
+        } else {
+            mSellQueue = new SellQueue(getContentResolver());
+            mGamePurger = new GamePurger(getContentResolver());
+            mGameImporter = new GameImporter(getContentResolver());
+        }
+        mSellQueue.setListener(new SellQueue.Listener() {
+            @Override
+            public void onOverlayChanged() {
+                updateCatalog();
+            }
+
+            @Override
+            public void onSaleRejected(long id) {
+                Toast.makeText(CatalogActivity.this, R.string.out_of_stock_msg, Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        // Show the progress of the deletion of all the games, or of an import, while it runs
+        mPurgeBar = findViewById(R.id.purge_bar);
+        mPurgeProgressBar = findViewById(R.id.purge_progress);
+        mPurgeTextView = findViewById(R.id.purge_text);
+        Button purgeCancelButton = findViewById(R.id.purge_cancel_button);
+        purgeCancelButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                mGamePurger.cancel();
+                mGameImporter.cancel();
+            }
+        });
+        mGamePurger.setListener(new GamePurger.Listener() {
+            @Override
+            public void onPurgeProgress(int deletedCount, int totalCount) {
+                showPurgeProgress(deletedCount, totalCount);
+            }
+
+            @Override
+            public void onPurgeFinished(int deletedCount, boolean cancelled) {
+                mPurgeBar.setVisibility(View.GONE);
+                String message = getString(cancelled ? R.string.purge_cancelled : R.string.purge_finished, deletedCount);
+                Toast.makeText(CatalogActivity.this, message, Toast.LENGTH_SHORT).show();
+            }
+        });
+        mGameImporter.setListener(new GameImporter.Listener() {
+            @Override
+            public void onImportProgress(int rowCount, int percent) {
+                showImportProgress(rowCount, percent);
+            }
+
+            @Override
+            public void onImportFinished(GameImporter.Report report) {
+                mPurgeBar.setVisibility(View.GONE);
+                showImportReport(report);
+            }
+        });
+
+        // Restore the facet filters before the pages, which are filtered with them
+        if (savedInstanceState != null) {
+            mGenreFilter = savedInstanceState.getInt(STATE_GENRE_FILTER, NO_FILTER);
+            mPlatformFilter = savedInstanceState.getInt(STATE_PLATFORM_FILTER, NO_FILTER);
+        }
+        setupFilterSpinners();
+        getContentResolver().registerContentObserver(GameEntry.CONTENT_URI, true, mGamesObserver);
+        getLoaderManager().initLoader(FACETS_LOADER, null, this);
+
+        // Restore the pages that were already loaded, or start with the first page
+        if (savedInstanceState != null && savedInstanceState.getLongArray(STATE_PAGE_KEYS) != null) {
+            for (long pageKey : savedInstanceState.getLongArray(STATE_PAGE_KEYS)) {
+                mPageKeys.add(pageKey);
+            }
+        } else {
+            mPageKeys.add(0L);
+        }
+
+        // Kick off the loaders
+        for (int page = 0; page < mPageKeys.size(); page++) {
+            getLoaderManager().initLoader(GAMES_LOADER + page, buildPageArgs(page), this);
+        }
+
+        // Restore the search, reconnecting to its loader if it is still running
+        if (savedInstanceState != null && !TextUtils.isEmpty(savedInstanceState.getString(STATE_SEARCH_QUERY))) {
+            mSearchQuery = savedInstanceState.getString(STATE_SEARCH_QUERY);
+            getLoaderManager().initLoader(SEARCH_LOADER, buildSearchArgs(mSearchQuery), this);
+        }
+
+        // On a fresh start, show the cached first page until the loader delivers the actual one
+        mFirstPageCache = new FirstPageCache(this);
+        if (savedInstanceState == null) {
+            mFirstPageCache.read(new FirstPageCache.OnReadListener() {
+                @Override
+                public void onFirstPageRead(List<Game> games) {
+                    // The cache is read in the background, and may come after the loaded games
+                    if (games != null && !games.isEmpty() && mPages.size() == 0 && !isSearching()
+                            && !isDestroyed()) {
+                        mAdapter.submitList(games);
+                        mEmptyView.setVisibility(View.GONE);
+                    }
+                }
+            });
+        }
+
+        // Record the first frame of the catalog, whatever it shows
+        final View contentView = findViewById(android.R.id.content);
+        contentView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                contentView.getViewTreeObserver().removeOnPreDrawListener(this);
+                StartupTimings.markFirstFrame();
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Record the first frame showing the given number of games loaded from the database, once the
+     * adapter applied them, and report the activity as fully drawn.
+     */
+    private void watchFirstDataFrame(final int itemCount) {
+        mRecyclerView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                // The difference with the displayed games is computed in the background
+                if (mAdapter.getItemCount() == itemCount) {
+                    mRecyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+                    StartupTimings.markFirstDataFrame();
+                    reportFullyDrawn();
+                }
+                return true;
+            }
         });
+        // Make sure a frame is drawn even if the loaded games are the cached ones
+        mRecyclerView.invalidate();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        getContentResolver().unregisterContentObserver(mGamesObserver);
+        mHandler.removeCallbacks(mSearchRunnable);
+        if (isFinishing()) {
+            // Write the remaining sales
+            mSellQueue.close();
+        } else {
+            mSellQueue.setListener(null);
+        }
+        // A running deletion of all the games or import goes on without the catalog
+        mGamePurger.setListener(null);
+        mGameImporter.setListener(null);
+    }
 
-        // Kick off the loader
-        getLoaderManager().initLoader(GAMES_LOADER, null, this);
+    @Override
+    public Object onRetainCustomNonConfigurationInstance() {
+        RetainedWork retainedWork = new RetainedWork();
+        retainedWork.sellQueue = mSellQueue;
+        retainedWork.gamePurger = mGamePurger;
+        retainedWork.gameImporter = mGameImporter;
+        return retainedWork;
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        long[] pageKeys = new long[mPageKeys.size()];
+        for (int page = 0; page < pageKeys.length; page++) {
+            pageKeys[page] = mPageKeys.get(page);
+        }
+        outState.putLongArray(STATE_PAGE_KEYS, pageKeys);
+        outState.putString(STATE_SEARCH_QUERY, mSearchQuery);
+        outState.putInt(STATE_GENRE_FILTER, mGenreFilter);
+        outState.putInt(STATE_PLATFORM_FILTER, mPlatformFilter);
     }
 
     /**
-     * Helper method to delete all games in the database.
+     * Setup the spinners filtering the catalog by genre and by platform. The first entry of each
+     * spinner keeps all the games, the following ones are indexed by the genre or platform values.
+     */
+    private void setupFilterSpinners() {
+        mGenreLabels = getResources().getStringArray(R.array.array_genre_options);
+        mPlatformLabels = getResources().getStringArray(R.array.array_platform_options);
+        mFacetCounts = new int[mGenreLabels.length][mPlatformLabels.length];
+
+        mGenreFilterAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item);
+        mGenreFilterAdapter.setDropDownViewResource(android.R.layout.simple_dropdown_item_1line);
+        mPlatformFilterAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item);
+        mPlatformFilterAdapter.setDropDownViewResource(android.R.layout.simple_dropdown_item_1line);
+        updateFacetLabels();
+
+        Spinner genreSpinner = findViewById(R.id.spinner_genre_filter);
+        genreSpinner.setAdapter(mGenreFilterAdapter);
+        genreSpinner.setSelection(mGenreFilter + 1);
+        genreSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                setFilters(position - 1, mPlatformFilter);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        Spinner platformSpinner = findViewById(R.id.spinner_platform_filter);
+        platformSpinner.setAdapter(mPlatformFilterAdapter);
+        platformSpinner.setSelection(mPlatformFilter + 1);
+        platformSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                setFilters(mGenreFilter, position - 1);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+    }
+
+    /**
+     * Update the labels of the filter spinners with the number of games of each value. The counts of
+     * a facet take the filter of the other facet into account, so they match the filtered catalog.
+     */
+    private void updateFacetLabels() {
+        int[] genreCounts = new int[mGenreLabels.length];
+        int[] platformCounts = new int[mPlatformLabels.length];
+        int genreTotal = 0;
+        int platformTotal = 0;
+        for (int genre = 0; genre < mGenreLabels.length; genre++) {
+            for (int platform = 0; platform < mPlatformLabels.length; platform++) {
+                int count = mFacetCounts[genre][platform];
+                if (mPlatformFilter == NO_FILTER || platform == mPlatformFilter) {
+                    genreCounts[genre] += count;
+                    genreTotal += count;
+                }
+                if (mGenreFilter == NO_FILTER || genre == mGenreFilter) {
+                    platformCounts[platform] += count;
+                    platformTotal += count;
+                }
+            }
+        }
+
+        // Replace the labels without notifying the spinner for each of them
+        mGenreFilterAdapter.setNotifyOnChange(false);
+        mGenreFilterAdapter.clear();
+        mGenreFilterAdapter.add(getString(R.string.facet_label, getString(R.string.filter_all_genres), genreTotal));
+        for (int genre = 0; genre < mGenreLabels.length; genre++) {
+            mGenreFilterAdapter.add(getString(R.string.facet_label, mGenreLabels[genre], genreCounts[genre]));
+        }
+        mGenreFilterAdapter.notifyDataSetChanged();
+
+        mPlatformFilterAdapter.setNotifyOnChange(false);
+        mPlatformFilterAdapter.clear();
+        mPlatformFilterAdapter.add(getString(R.string.facet_label, getString(R.string.filter_all_platforms), platformTotal));
+        for (int platform = 0; platform < mPlatformLabels.length; platform++) {
+            mPlatformFilterAdapter.add(getString(R.string.facet_label, mPlatformLabels[platform], platformCounts[platform]));
+        }
+        mPlatformFilterAdapter.notifyDataSetChanged();
+    }
+
+    /**
+     * Filter the catalog with the given genre and platform, each of them being {@link #NO_FILTER} to keep all the games.
+     */
+    private void setFilters(int genre, int platform) {
+        if (genre == mGenreFilter && platform == mPlatformFilter) {
+            return;
+        }
+        mGenreFilter = genre;
+        mPlatformFilter = platform;
+        updateFacetLabels();
+
+        // Reload the catalog from its first page
+        for (int page = 1; page < mPageKeys.size(); page++) {
+            getLoaderManager().destroyLoader(GAMES_LOADER + page);
+        }
+        mPageKeys.clear();
+        mPageKeys.add(0L);
+        getLoaderManager().restartLoader(GAMES_LOADER, buildPageArgs(0), this);
+        if (isSearching()) {
+            mSearchResults = null;
+            getLoaderManager().restartLoader(SEARCH_LOADER, buildSearchArgs(mSearchQuery), this);
+        }
+    }
+
+    /**
+     * Returns whether or not the catalog is filtered by genre or platform.
+     */
+    private boolean isFiltered() {
+        return mGenreFilter != NO_FILTER || mPlatformFilter != NO_FILTER;
+    }
+
+    /**
+     * Returns the selection of the games matching the facet filters, or null if there is no filter.
+     * The provider runs it on the genre, platform or genre and platform index.
+     */
+    private String getFilterSelection() {
+        if (!isFiltered()) {
+            return null;
+        }
+        if (mPlatformFilter == NO_FILTER) {
+            return GameEntry.COLUMN_GAME_GENRE + "=?";
+        }
+        if (mGenreFilter == NO_FILTER) {
+            return GameEntry.COLUMN_GAME_PLATFORM + "=?";
+        }
+        return GameEntry.COLUMN_GAME_GENRE + "=? AND " + GameEntry.COLUMN_GAME_PLATFORM + "=?";
+    }
+
+    /**
+     * Returns the arguments of {@link #getFilterSelection()}.
+     */
+    private String[] getFilterSelectionArgs() {
+        List<String> args = new ArrayList<>(2);
+        if (mGenreFilter != NO_FILTER) {
+            args.add(String.valueOf(mGenreFilter));
+        }
+        if (mPlatformFilter != NO_FILTER) {
+            args.add(String.valueOf(mPlatformFilter));
+        }
+        return args.isEmpty() ? null : args.toArray(new String[args.size()]);
+    }
+
+    /**
+     * Build the loader arguments of the given page. Every page but the last one is closed,
+     * it ends where the next page starts.
+     */
+    private Bundle buildPageArgs(int page) {
+        Bundle args = new Bundle();
+        args.putLong(ARG_AFTER_ID, mPageKeys.get(page));
+        args.putLong(ARG_MAX_ID, page + 1 < mPageKeys.size() ? mPageKeys.get(page + 1) : -1);
+        return args;
+    }
+
+    /**
+     * Build the loader arguments of the search for the given terms.
+     */
+    private static Bundle buildSearchArgs(String query) {
+        Bundle args = new Bundle();
+        args.putString(ARG_SEARCH_QUERY, query);
+        return args;
+    }
+
+    /**
+     * Returns whether or not the catalog is filtered by search terms.
+     */
+    private boolean isSearching() {
+        return !mSearchQuery.isEmpty();
+    }
+
+    /**
+     * Filter the catalog with the given search terms, or show all the games if there are none.
+     * Restarting the search loader cancels the query it is still running, through the
+     * {@link android.os.CancellationSignal} given by the {@link CursorLoader} to the provider,
+     * and the results of an abandoned query are never delivered.
+     */
+    private void search(String query) {
+        query = query.trim();
+        if (query.equals(mSearchQuery)) {
+            return;
+        }
+        mSearchQuery = query;
+        mSearchResults = null;
+        if (isSearching()) {
+            getLoaderManager().restartLoader(SEARCH_LOADER, buildSearchArgs(query), this);
+        } else {
+            getLoaderManager().destroyLoader(SEARCH_LOADER);
+            updateCatalog();
+        }
+    }
+
+    /**
+     * Start loading the page following the last one, if the last page is full and already loaded.
+     */
+    private void loadNextPage() {
+        int lastPage = mPageKeys.size() - 1;
+        List<Game> lastPageGames = mPages.get(lastPage);
+        if (lastPageGames == null || lastPageGames.size() < PAGE_SIZE) {
+            // Still loading, or there are no more games to load
+            return;
+        }
+
+        // The next page starts right after the last game of the last page
+        mPageKeys.add(lastPageGames.get(lastPageGames.size() - 1).id);
+
+        // Close the last page, so that its content stays the same when it is reloaded
+        getLoaderManager().restartLoader(GAMES_LOADER + lastPage, buildPageArgs(lastPage), this);
+        getLoaderManager().initLoader(GAMES_LOADER + lastPage + 1, buildPageArgs(lastPage + 1), this);
+    }
+
+    /**
+     * Reload the loaders showing the games changed according to the given change notification URI,
+     * or all of them if the URI is null. A page is reloaded when a changed game is in its range of
+     * ids, and the facet counts and the search results when the changes may have added, removed or
+     * moved games, not only when the stock of their games changed.
+     */
+    private void onGamesChanged(Uri uri) {
+        long[] ids = uri != null ? GameEntry.getChangedIds(uri) : null;
+        if (ids != null && ids.length == 0) {
+            // The notification isn't about the games
+            return;
+        }
+        boolean stockOnly = uri != null && GameEntry.isStockChange(uri);
+
+        if (!stockOnly) {
+            reloadLoader(FACETS_LOADER);
+        }
+        if (isSearching() && (!stockOnly || ids == null || mSearchResults == null
+                || containsAny(mSearchResults, ids))) {
+            reloadLoader(SEARCH_LOADER);
+        }
+        for (int page = 0; page < mPageKeys.size(); page++) {
+            if (ids == null || pageContainsAny(page, ids)) {
+                reloadLoader(GAMES_LOADER + page);
+            }
+        }
+    }
+
+    /**
+     * Reload the loader of the given id, if it exists.
+     */
+    private void reloadLoader(int id) {
+        Loader<Cursor> loader = getLoaderManager().getLoader(id);
+        if (loader != null) {
+            ((CatalogCursorLoader) loader).reload();
+        }
+    }
+
+    /**
+     * Returns whether or not one of the given ids is in the range of ids of the given page.
+     * The last page is open, it gets the games added after the others.
+     */
+    private boolean pageContainsAny(int page, long[] ids) {
+        long afterId = mPageKeys.get(page);
+        long maxId = page + 1 < mPageKeys.size() ? mPageKeys.get(page + 1) : Long.MAX_VALUE;
+        for (long id : ids) {
+            if (id > afterId && id <= maxId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether or not one of the given games has one of the given ids.
+     */
+    private static boolean containsAny(List<Game> games, long[] ids) {
+        for (Game game : games) {
+            for (long id : ids) {
+                if (game.id == id) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the given loaded games with the sales that aren't written yet removed from their stock.
+     */
+    private List<Game> applySales(List<Game> games) {
+        List<Game> displayedGames = new ArrayList<>(games.size());
+        for (Game game : games) {
+            displayedGames.add(mSellQueue.apply(game));
+        }
+        return displayedGames;
+    }
+
+    /**
+     * Submit all the consecutive pages loaded so far to the adapter, and only show the empty view
+     * once the first page is loaded without any game.
+     */
+    private void updateCatalog() {
+        if (isSearching()) {
+            // Keep showing the previous games until the search results are loaded
+            if (mSearchResults != null) {
+                mAdapter.submitList(applySales(mSearchResults));
+                mEmptyView.setVisibility(View.GONE);
+            }
+            return;
+        }
+
+        List<Game> games = new ArrayList<>();
+        for (int page = 0; page < mPageKeys.size() && mPages.get(page) != null; page++) {
+            games.addAll(mPages.get(page));
+        }
+        mAdapter.submitList(applySales(games));
+        mEmptyView.setVisibility(games.isEmpty() ? View.VISIBLE : View.GONE);
+    }
+
+    /**
+     * Helper method to delete all games in the database. They are deleted in chunks in the background,
+     * and the catalog is reloaded once they are all deleted.
      */
     private void deleteAllGames() {
-        int rowsDeleted = getContentResolver().delete(GameEntry.CONTENT_URI, null, null);
-        Log.v(LOG_TAG, rowsDeleted + " rows deleted from games database");
+        if (!mGamePurger.isRunning() && !mGameImporter.isRunning()) {
+            mGamePurger.start();
+            showPurgeProgress(0, 0);
+        }
+    }
+
+    /**
+     * Show the number of games deleted so far by the deletion of all the games.
+     */
+    private void showPurgeProgress(int deletedCount, int totalCount) {
+        mPurgeBar.setVisibility(View.VISIBLE);
+        mPurgeProgressBar.setIndeterminate(totalCount == 0);
+        mPurgeProgressBar.setMax(totalCount);
+        mPurgeProgressBar.setProgress(deletedCount);
+        mPurgeTextView.setText(getString(R.string.purge_progress, deletedCount, totalCount));
+    }
+
+    /**
+     * Let the user pick a CSV file of games to import.
+     */
+    private void pickImportFile() {
+        if (mGamePurger.isRunning() || mGameImporter.isRunning()) {
+            return;
+        }
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("*/*");
+        intent.putExtra(Intent.EXTRA_MIME_TYPES, IMPORT_MIME_TYPES);
+        startActivityForResult(intent, REQUEST_IMPORT_CSV);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        if (requestCode == REQUEST_IMPORT_CSV) {
+            if (resultCode == RESULT_OK && data != null && data.getData() != null
+                    && !mGamePurger.isRunning() && !mGameImporter.isRunning()) {
+                mGameImporter.start(data.getData());
+                showImportProgress(0, -1);
+            }
+            return;
+        }
+        super.onActivityResult(requestCode, resultCode, data);
+    }
+
+    /**
+     * Show the number of rows read so far by the import.
+     */
+    private void showImportProgress(int rowCount, int percent) {
+        mPurgeBar.setVisibility(View.VISIBLE);
+        mPurgeProgressBar.setIndeterminate(percent < 0);
+        mPurgeProgressBar.setMax(100);
+        mPurgeProgressBar.setProgress(Math.max(percent, 0));
+        mPurgeTextView.setText(getString(R.string.import_progress, rowCount));
+    }
+
+    /**
+     * Tell the user how the import went, listing the rows that couldn't be imported if any.
+     */
+    private void showImportReport(GameImporter.Report report) {
+        String message;
+        if (report.failure != null) {
+            message = getString(R.string.import_failed, report.writtenCount, report.failure);
+        } else if (report.cancelled) {
+            message = getString(R.string.import_cancelled, report.writtenCount);
+        } else {
+            message = getString(R.string.import_finished, report.writtenCount, report.rowCount);
+        }
+        if (report.errorCount == 0) {
+            Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        StringBuilder details = new StringBuilder(message);
+        details.append("\n\n").append(getString(R.string.import_rejected_rows, report.errorCount));
+        for (String error : report.errors) {
+            details.append('\n').append(error);
+        }
+        if (report.errorCount > report.errors.size()) {
+            details.append('\n').append(getString(R.string.import_more_rejected_rows,
+                    report.errorCount - report.errors.size()));
+        }
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.import_report_title)
+                .setMessage(details)
+                .setPositiveButton(android.R.string.ok, null)
+                .show();
     }
 
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         // Inflate the menu; this adds items to the action bar if it is present.
         getMenuInflater().inflate(R.menu.menu_catalog, menu);
+
+        // Setup the search view to filter the catalog as the user types
+        MenuItem searchItem = menu.findItem(R.id.action_search);
+        SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+        if (isSearching()) {
+            searchItem.expandActionView();
+            searchView.setQuery(mSearchQuery, false);
+        }
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                // Search right away
+                mHandler.removeCallbacks(mSearchRunnable);
+                search(query);
+                return false;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                // Only search once the user stopped typing
+                mPendingSearchQuery = newText;
+                mHandler.removeCallbacks(mSearchRunnable);
+                mHandler.postDelayed(mSearchRunnable, SEARCH_DEBOUNCE_MILLIS);
+                return true;
+            }
+        });
         return true;
     }
 
@@ -118,6 +959,10 @@ public class CatalogActivity extends AppCompatActivity implements LoaderManager.
             case R.id.action_delete_all_entries:
                 deleteAllGames();
                 return true;
+            // Respond to a click on the "Import CSV" menu option
+            case R.id.action_import_csv:
+                pickImportFile();
+                return true;
         }
         return super.onOptionsItemSelected(item);
     }
@@ -132,47 +977,120 @@ public class CatalogActivity extends AppCompatActivity implements LoaderManager.
         values.put(GameEntry.COLUMN_GAME_NAME, getString(R.string.tools_game_name));
         values.put(GameEntry.COLUMN_GAME_GENRE, GameEntry.GENRE_ACTION);
         values.put(GameEntry.COLUMN_GAME_PLATFORM, GameEntry.PLATFORM_XBOX_ONE);
-        values.put(GameEntry.COLUMN_GAME_PRICE, 19.22);
+        values.put(GameEntry.COLUMN_GAME_PRICE, 1922);
         values.put(GameEntry.COLUMN_QUANTITY, 5);
         values.put(GameEntry.COLUMN_SUPPLIER_NAME, "2K");
         values.put(GameEntry.COLUMN_SUPPLIER_PHONE, "+1 (000) 000-0000");
 
-        // Insert the new row and receive the new content URI
-        Uri newUri = getContentResolver().insert(GameEntry.CONTENT_URI, values);
+        // Insert the new row in the background, the catalog is reloaded once it is inserted
+        new GameWriter(getContentResolver()).insert(values);
+    }
+
+    /**
+     * Read the number of games of every genre and platform pair, and show the updated counts.
+     */
+    private void readFacetCounts(Cursor cursor) {
+        for (int[] genreCounts : mFacetCounts) {
+            Arrays.fill(genreCounts, 0);
+        }
+        int groupKeyColumnIndex = cursor.getColumnIndex(StatsEntry.COLUMN_GROUP_KEY);
+        int countColumnIndex = cursor.getColumnIndex(StatsEntry.COLUMN_GAME_COUNT);
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            long groupKey = cursor.getLong(groupKeyColumnIndex);
+            int genre = StatsEntry.getGenre(groupKey);
+            int platform = StatsEntry.getPlatform(groupKey);
+            if (genre >= 0 && genre < mGenreLabels.length && platform >= 0 && platform < mPlatformLabels.length) {
+                mFacetCounts[genre][platform] = cursor.getInt(countColumnIndex);
+            }
+        }
+        updateFacetLabels();
     }
 
     @Override
     public Loader<Cursor> onCreateLoader(int i, Bundle bundle) {
+        if (i == FACETS_LOADER) {
+            // Read the number of games of every genre and platform pair in one query. The statistics
+            // are maintained by the database as games change, so the query doesn't count the games.
+            return new CatalogCursorLoader(this,
+                    StatsEntry.CONTENT_URI,
+                    new String[]{StatsEntry.COLUMN_GROUP_KEY, StatsEntry.COLUMN_GAME_COUNT},
+                    StatsEntry.COLUMN_DIMENSION + "=?",
+                    new String[]{StatsEntry.DIMENSION_GENRE_PLATFORM},
+                    null);
+        }
+        if (i == SEARCH_LOADER) {
+            // Query the games matching the search terms and the facet filters, ranked by the provider
+            return new CatalogCursorLoader(this,
+                    GameEntry.buildSearchUri(bundle.getString(ARG_SEARCH_QUERY)),
+                    Game.SUMMARY_PROJECTION,
+                    getFilterSelection(),
+                    getFilterSelectionArgs(),
+                    null);
+        }
+
+        // Only query the games of the requested page
+        long afterId = bundle.getLong(ARG_AFTER_ID);
+        long maxId = bundle.getLong(ARG_MAX_ID);
+        Uri pageUri = maxId < 0
+                ? GameEntry.buildPageUri(afterId, PAGE_SIZE)
+                : GameEntry.buildRangeUri(afterId, maxId);
 
-        // Define a projection that specifies the columns from the table we care about.
-        String[] projection = {
-                GameEntry._ID,
-                GameEntry.COLUMN_GAME_NAME,
-                GameEntry.COLUMN_GAME_GENRE,
-                GameEntry.COLUMN_GAME_PLATFORM,
-                GameEntry.COLUMN_GAME_PRICE,
-                GameEntry.COLUMN_QUANTITY};
-
-        // This loader will execute the ContentProvider's query method on a background thread
-        return new CursorLoader(this,
-                GameEntry.CONTENT_URI,
-                projection,
-                null,
-                null,
+        // This loader will execute the ContentProvider's query method on a background thread,
+        // only for the columns displayed by the {@link GameAdapter}
+        return new CatalogCursorLoader(this,
+                pageUri,
+                Game.SUMMARY_PROJECTION,
+                getFilterSelection(),
+                getFilterSelectionArgs(),
                 null);
 
     }
 
     @Override
     public void onLoadFinished(Loader<Cursor> loader, Cursor cursor) {
-        // Update {@link GameCursorAdapter} with this new cursor containing updated games data
-        mCursorAdapter.swapCursor(cursor);
+        if (loader.getId() == FACETS_LOADER) {
+            readFacetCounts(cursor);
+            return;
+        }
+        if (loader.getId() == SEARCH_LOADER) {
+            mSearchResults = GameCursorMapper.mapAll(cursor);
+            mSellQueue.onGamesLoaded(mSearchResults);
+            updateCatalog();
+            return;
+        }
+
+        // Update {@link GameAdapter} with the updated games data of this page. The cursor is owned and
+        // closed by its loader, so its rows are copied: the adapter compares them with the displayed
+        // ones on a background thread, and only binds the games that changed.
+        List<Game> games = GameCursorMapper.mapAll(cursor);
+        mSellQueue.onGamesLoaded(games);
+        int page = loader.getId() - GAMES_LOADER;
+        boolean firstData = mPages.size() == 0;
+        mPages.put(page, games);
+        updateCatalog();
+
+        if (page == 0 && !isFiltered()) {
+            // Keep the first page of the whole catalog for the next start
+            mFirstPageCache.write(games);
+        }
+        if (firstData && !isSearching() && StartupTimings.getFirstDataFrameMillis() == StartupTimings.NOT_RECORDED) {
+            watchFirstDataFrame(games.size());
+        }
     }
 
 
     @Override
     public void onLoaderReset(Loader<Cursor> loader) {
         // Callback called when the data needs to be deleted
-        mCursorAdapter.swapCursor(null);
+        if (loader.getId() == SEARCH_LOADER) {
+            mSearchResults = null;
+            return;
+        }
+        if (loader.getId() == FACETS_LOADER) {
+            return;
+        }
+        mPages.remove(loader.getId() - GAMES_LOADER);
+        updateCatalog();
     }
 }
@@ -0,0 +1,30 @@
+package com.example.android.gamesinventoryapp;
+
+import android.content.Context;
+import android.content.CursorLoader;
+import android.net.Uri;
+
+/**
+ * {@link CursorLoader} of the catalog, which isn't reloaded by the change notifications of its cursor.
+ * The cursors of the games are notified of any change of any game, so the catalog observes the
+ * changes itself and only reloads, with {@link #reload()}, the loaders showing the changed games.
+ */
+public class CatalogCursorLoader extends CursorLoader {
+
+    public CatalogCursorLoader(Context context, Uri uri, String[] projection, String selection,
+                               String[] selectionArgs, String sortOrder) {
+        super(context, uri, projection, selection, selectionArgs, sortOrder);
+    }
+
+    @Override
+    public void onContentChanged() {
+        // Ignore the notifications of the cursor, the catalog calls reload() when needed
+    }
+
+    /**
+     * Load the data again: right away if the loader is started, or once it is started again.
+     */
+    public void reload() {
+        super.onContentChanged();
+    }
+}
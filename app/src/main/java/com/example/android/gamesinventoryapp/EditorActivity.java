@@ -2,6 +2,7 @@ package com.example.android.gamesinventoryapp;
 
 import android.app.AlertDialog;
 import android.app.LoaderManager;
+import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.CursorLoader;
 import android.content.DialogInterface;
@@ -25,7 +26,9 @@ import android.widget.ImageButton;
 import android.widget.Spinner;
 import android.widget.Toast;
 
+import com.example.android.gamesinventoryapp.data.Game;
 import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameCursorMapper;
 
 public class EditorActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<Cursor> {
 
@@ -34,11 +37,40 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
      */
     private static final int EXISTING_GAME_LOADER = 0;
 
+    /**
+     * Loader argument telling that only the supplier columns need to be read, the other ones being cached
+     */
+    private static final String ARG_SUPPLIER_ONLY = "supplier_only";
+
+    /**
+     * Projection of the columns that the catalog doesn't display, and so aren't in {@link GameRecordCache}
+     */
+    private static final String[] SUPPLIER_PROJECTION = {
+            GameEntry._ID,
+            GameEntry.COLUMN_SUPPLIER_NAME,
+            GameEntry.COLUMN_SUPPLIER_PHONE};
+
     /**
      * Content URI for the existing game (null if it's a new game)
      */
     private Uri mCurrentGameUri;
 
+    /**
+     * Cache of the games displayed by the catalog
+     */
+    private GameRecordCache mRecordCache;
+
+    /**
+     * Cached game currently displayed by the editor, if any
+     */
+    private Game mDisplayedGame;
+
+    /**
+     * Writer of the game, retained across configuration changes so that a running save or delete
+     * reports its result to the new activity
+     */
+    private GameWriter mGameWriter;
+
     /**
      * EditText field to enter the game name
      */
@@ -105,10 +137,25 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
         // Find the call supplier button
         Button callSupplierButton = findViewById(R.id.call_supplier_button);
 
+        // Get back the writer of the previous configuration, if a write was running, and show the
+        // result of the writes once they finish
+        mGameWriter = (GameWriter) getLastCustomNonConfigurationInstance();
+        if (mGameWriter == null) {
+            mGameWriter = new GameWriter(getContentResolver());
+        }
+        mGameWriter.setListener(new GameWriter.Listener() {
+            @Override
+            public void onWriteFinished(int operation, boolean succeeded) {
+                onGameWritten(operation, succeeded);
+            }
+        });
+
         // Examine the intent that was used to launch this activity,
         // in order to figure out if we're creating a new game or editing an existing one.
         Intent intent = getIntent();
         mCurrentGameUri = intent.getData();
+        mRecordCache = GameRecordCache.getInstance(this);
+        Game cachedGame = null;
 
         // If the intent DOES NOT contain a game content URI, then we know that we are creating a new game.
         if (mCurrentGameUri == null) {
@@ -121,9 +168,15 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
             // Otherwise this is an existing game, so change app bar to say "Edit Game"
             setTitle(getString(R.string.editor_activity_title_edit_game));
 
+            // If the game was just displayed by the catalog, it is shown right away from the cache
+            // and only its supplier is read from the database
+            cachedGame = mRecordCache.get(ContentUris.parseId(mCurrentGameUri));
+            Bundle args = new Bundle();
+            args.putBoolean(ARG_SUPPLIER_ONLY, cachedGame != null);
+
             // Initialize a loader to read the game data from the database
             // and display the current values in the editor
-            getLoaderManager().initLoader(EXISTING_GAME_LOADER, null, this);
+            getLoaderManager().initLoader(EXISTING_GAME_LOADER, args, this);
 
             // Set the call supplier button to be visible
             callSupplierButton.setVisibility(View.VISIBLE);
@@ -199,6 +252,10 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
                 callSupplier(mProviderPhoneEditText.getText().toString().trim());
             }
         });
+
+        if (cachedGame != null) {
+            displayCachedGame(cachedGame);
+        }
     }
 
     /**
@@ -327,12 +384,17 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
         values.put(GameEntry.COLUMN_GAME_GENRE, mGenre);
         values.put(GameEntry.COLUMN_GAME_PLATFORM, mPlatform);
         // If the price is not provided by the user, don't try to parse the string into an
-        // integer value. Use 0 by default.
-        Double price = 0.00;
+        // amount in cents. Use 0 by default.
+        long priceCents = 0;
         if (!TextUtils.isEmpty(priceString)) {
-            price = Double.parseDouble(priceString);
+            try {
+                priceCents = Game.parsePriceCents(priceString);
+            } catch (NumberFormatException e) {
+                mPriceEditText.setError("Price must have at most two decimals");
+                return;
+            }
         }
-        values.put(GameEntry.COLUMN_GAME_PRICE, price);
+        values.put(GameEntry.COLUMN_GAME_PRICE, priceCents);
         // If the stock quantity is not provided by the user, don't try to parse the string into an
         // integer value. Use 0 by default.
         int stock = 0;
@@ -343,34 +405,36 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
         values.put(GameEntry.COLUMN_SUPPLIER_NAME, supplierNameString);
         values.put(GameEntry.COLUMN_SUPPLIER_PHONE, supplierPhoneString);
 
-        // Determine if this is a new or existing game by checking if mCurrentGameUri is null or not
+        // Determine if this is a new or existing game by checking if mCurrentGameUri is null or not.
+        // The game is written in the background, and the editor closed once it is written.
         if (mCurrentGameUri == null) {
-            // This is a new game, so insert a new game into the provider,
-            // returning the content URI for the new game.
-            Uri newUri = getContentResolver().insert(GameEntry.CONTENT_URI, values);
-
-            // Show a toast message depending on whether or not the insertion was successful
-            if (newUri == null) {
-                // If the new content URI is null, then there was an error with insertion.
-                Toast.makeText(this, R.string.editor_insert_game_failed, Toast.LENGTH_SHORT).show();
-            } else {
-                // Otherwise, the insertion was successful and display a toast
-                Toast.makeText(this, R.string.editor_insert_game_successful, Toast.LENGTH_SHORT).show();
-            }
+            // This is a new game, so insert a new game into the provider
+            mGameWriter.insert(values);
         } else {
-            // Otherwise this is an existing game, so update the game with content URI: mCurrentPetUri
-            int rowsAffected = getContentResolver().update(mCurrentGameUri, values, null, null);
-
-            // Show a toast message depending on whether or not the update was successful.
-            if (rowsAffected == 0) {
-                // If no rows were affected, then there was an error with the update.
-                Toast.makeText(this, R.string.editor_update_game_failed, Toast.LENGTH_SHORT).show();
-            } else {
-                // Otherwise, the update was successful and we can display a toast.
-                Toast.makeText(this, R.string.editor_update_game_successful, Toast.LENGTH_SHORT).show();
-            }
+            // Otherwise this is an existing game, so update the game with content URI: mCurrentGameUri
+            mGameWriter.update(mCurrentGameUri, values);
+        }
+    }
 
+    /**
+     * Show a toast message depending on whether or not the write of the game was successful,
+     * and exit the editor.
+     */
+    private void onGameWritten(int operation, boolean succeeded) {
+        int messageId;
+        switch (operation) {
+            case GameWriter.OPERATION_INSERT:
+                messageId = succeeded ? R.string.editor_insert_game_successful : R.string.editor_insert_game_failed;
+                break;
+            case GameWriter.OPERATION_UPDATE:
+                messageId = succeeded ? R.string.editor_update_game_successful : R.string.editor_update_game_failed;
+                break;
+            default:
+                messageId = succeeded ? R.string.editor_delete_game_successful : R.string.editor_delete_game_failed;
+                break;
         }
+        Toast.makeText(this, messageId, Toast.LENGTH_SHORT).show();
+
         // Exit editor activity
         finish();
     }
@@ -396,8 +460,14 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
 
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
+        // Ignore the "Save" and "Delete" menu options while the game is being written
+        int itemId = item.getItemId();
+        if ((itemId == R.id.action_save || itemId == R.id.action_delete) && mGameWriter.isWriting()) {
+            return true;
+        }
+
         // User clicked on a menu option in the app bar overflow menu
-        switch (item.getItemId()) {
+        switch (itemId) {
             // Respond to a click on the "Save" menu option
             case R.id.action_save:
                 // Save the game into database
@@ -435,16 +505,9 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
 
     @Override
     public Loader<Cursor> onCreateLoader(int i, Bundle bundle) {
-        // Define a projection that contains all columns from the games table.
-        String[] projection = {
-                GameEntry._ID,
-                GameEntry.COLUMN_GAME_NAME,
-                GameEntry.COLUMN_GAME_GENRE,
-                GameEntry.COLUMN_GAME_PLATFORM,
-                GameEntry.COLUMN_GAME_PRICE,
-                GameEntry.COLUMN_QUANTITY,
-                GameEntry.COLUMN_SUPPLIER_NAME,
-                GameEntry.COLUMN_SUPPLIER_PHONE};
+        // Read all the columns, unless the game is already displayed from the cache
+        boolean supplierOnly = bundle != null && bundle.getBoolean(ARG_SUPPLIER_ONLY);
+        String[] projection = supplierOnly ? SUPPLIER_PROJECTION : Game.PROJECTION;
 
         // This loader will execute the ContentProvider's query method on a background thread
         return new CursorLoader(this,
@@ -464,70 +527,84 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
 
         // Proceed with moving to the first row of the cursor and reading data from it
         if (cursor.moveToFirst()) {
-            // Find the columns of game attributes that we're interested in
-            int nameColumnIndex = cursor.getColumnIndex(GameEntry.COLUMN_GAME_NAME);
-            int genreColumnIndex = cursor.getColumnIndex(GameEntry.COLUMN_GAME_GENRE);
-            int platformColumnIndex = cursor.getColumnIndex(GameEntry.COLUMN_GAME_PLATFORM);
-            int priceColumnIndex = cursor.getColumnIndex(GameEntry.COLUMN_GAME_PRICE);
-            int stockColumnIndex = cursor.getColumnIndex(GameEntry.COLUMN_QUANTITY);
-            int providerNameColumnIndex = cursor.getColumnIndex(GameEntry.COLUMN_SUPPLIER_NAME);
-            int providerPhoneColumnIndex = cursor.getColumnIndex(GameEntry.COLUMN_SUPPLIER_PHONE);
-
-            // Extract out the value from the Cursor for the given column index
-            String gameName = cursor.getString(nameColumnIndex);
-            int gameGenre = cursor.getInt(genreColumnIndex);
-            int gamePlatform = cursor.getInt(platformColumnIndex);
-            String gamePrice = cursor.getString(priceColumnIndex);
-            String gameStock = cursor.getString(stockColumnIndex);
-            String providerName = cursor.getString(providerNameColumnIndex);
-            String providerPhone = cursor.getString(providerPhoneColumnIndex);
-
-            // Update the views on the screen with the values from the database
-            mNameEditText.setText(gameName);
-            mPriceEditText.setText(gamePrice);
-            mStockEditText.setText(gameStock);
-            mProviderNameEditText.setText(providerName);
-            mProviderPhoneEditText.setText(providerPhone);
-
-            switch (gameGenre) {
-                case GameEntry.GENRE_ACTION:
-                    mGenreSpinner.setSelection(1);
-                    break;
-                case GameEntry.GENRE_STRATEGY:
-                    mGenreSpinner.setSelection(2);
-                    break;
-                case GameEntry.GENRE_RPG:
-                    mGenreSpinner.setSelection(3);
-                    break;
-                case GameEntry.GENRE_FPS:
-                    mGenreSpinner.setSelection(4);
-                    break;
-                case GameEntry.GENRE_SPORT:
-                    mGenreSpinner.setSelection(5);
-                    break;
-                default:
-                    mGenreSpinner.setSelection(0);
-                    break;
+            Game game = new GameCursorMapper(cursor).map(cursor);
+
+            if (cursor.getColumnIndex(GameEntry.COLUMN_GAME_NAME) == -1) {
+                // Only the supplier was read. If the game changed since it was cached,
+                // read it again entirely.
+                Game cachedGame = mRecordCache.get(game.id);
+                if (cachedGame == null) {
+                    getLoaderManager().restartLoader(EXISTING_GAME_LOADER, null, this);
+                    return;
+                }
+                if (cachedGame != mDisplayedGame) {
+                    displayCachedGame(cachedGame);
+                }
+            } else {
+                // Update the views on the screen with the values from the database
+                displayGame(game);
+                mDisplayedGame = null;
             }
 
-            switch (gamePlatform) {
-                case GameEntry.PLATFORM_PC:
-                    mPlatformSpinner.setSelection(0);
-                    break;
-                case GameEntry.PLATFORM_XBOX_ONE:
-                    mPlatformSpinner.setSelection(1);
-                    break;
-                case GameEntry.PLATFORM_XBOX_360:
-                    mPlatformSpinner.setSelection(2);
-                    break;
-                case GameEntry.PLATFORM_PS3:
-                    mPlatformSpinner.setSelection(3);
-                    break;
-                case GameEntry.PLATFORM_PS4:
-                    mPlatformSpinner.setSelection(4);
-                    break;
-            }
+            // Update the supplier views with the values from the database
+            mProviderNameEditText.setText(game.supplierName);
+            mProviderPhoneEditText.setText(game.supplierPhone);
+        }
+    }
+
+    /**
+     * Display the attributes of the given game, as cached from the catalog.
+     */
+    private void displayCachedGame(Game game) {
+        displayGame(game);
+        mDisplayedGame = game;
+    }
+
+    /**
+     * Update the views on the screen with the attributes of the given game, except its supplier.
+     */
+    private void displayGame(Game game) {
+        mNameEditText.setText(game.name);
+        mPriceEditText.setText(Game.formatPrice(game.priceCents));
+        mStockEditText.setText(String.valueOf(game.quantity));
+
+        switch (game.genre) {
+            case GameEntry.GENRE_ACTION:
+                mGenreSpinner.setSelection(1);
+                break;
+            case GameEntry.GENRE_STRATEGY:
+                mGenreSpinner.setSelection(2);
+                break;
+            case GameEntry.GENRE_RPG:
+                mGenreSpinner.setSelection(3);
+                break;
+            case GameEntry.GENRE_FPS:
+                mGenreSpinner.setSelection(4);
+                break;
+            case GameEntry.GENRE_SPORT:
+                mGenreSpinner.setSelection(5);
+                break;
+            default:
+                mGenreSpinner.setSelection(0);
+                break;
+        }
 
+        switch (game.platform) {
+            case GameEntry.PLATFORM_PC:
+                mPlatformSpinner.setSelection(0);
+                break;
+            case GameEntry.PLATFORM_XBOX_ONE:
+                mPlatformSpinner.setSelection(1);
+                break;
+            case GameEntry.PLATFORM_XBOX_360:
+                mPlatformSpinner.setSelection(2);
+                break;
+            case GameEntry.PLATFORM_PS3:
+                mPlatformSpinner.setSelection(3);
+                break;
+            case GameEntry.PLATFORM_PS4:
+                mPlatformSpinner.setSelection(4);
+                break;
         }
     }
 
@@ -594,23 +671,14 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
      * Perform the deletion of the game in the database.
      */
     private void deleteGame() {
-        // Only perform the delete if this is an existing game.
+        // Only perform the delete if this is an existing game. The activity is closed once the game
+        // is deleted in the background.
         if (mCurrentGameUri != null) {
-            // Call the ContentResolver to delete the game at the given content URI.
-            int rowsDeleted = getContentResolver().delete(mCurrentGameUri, null, null);
-
-            // Show a toast message depending on whether or not the delete was successful.
-            if (rowsDeleted == 0) {
-                // If no rows were deleted, then there was an error with the delete.
-                Toast.makeText(this, R.string.editor_delete_game_failed, Toast.LENGTH_SHORT).show();
-            } else {
-                // Otherwise, the delete was successful and we can display a toast.
-                Toast.makeText(this, R.string.editor_delete_game_successful, Toast.LENGTH_SHORT).show();
-            }
+            mGameWriter.delete(mCurrentGameUri);
+        } else {
+            // Close the activity
+            finish();
         }
-
-        // Close the activity
-        finish();
     }
 
     /**
@@ -642,6 +710,18 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
         alertDialog.show();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // A running write still finishes, but only reports its result to a recreated editor
+        mGameWriter.setListener(null);
+    }
+
+    @Override
+    public Object onRetainCustomNonConfigurationInstance() {
+        return mGameWriter;
+    }
+
     /**
      * Open phone app to call the game supplier
      */
@@ -0,0 +1,148 @@
+package com.example.android.gamesinventoryapp;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import com.example.android.gamesinventoryapp.data.Game;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Copy of the first page of the catalog in a small file, so that the catalog can show it when it
+ * starts, while the database is opened and queried. The copy is read and written in the background,
+ * and written each time the first page changes.
+ */
+public final class FirstPageCache {
+
+    /** Tag for the log messages */
+    private static final String LOG_TAG = FirstPageCache.class.getSimpleName();
+
+    /** Name of the cache file */
+    private static final String FILE_NAME = "catalog_first_page";
+
+    /** Version of the file format, a file of another version is ignored */
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * Interface to be notified of the cached first page, on the main thread.
+     */
+    public interface OnReadListener {
+        /**
+         * Called with the cached first page, or null if there is none.
+         */
+        void onFirstPageRead(List<Game> games);
+    }
+
+    /** Thread reading and writing the cache file, so that a read never sees a file being replaced */
+    private static final Executor sExecutor = Executors.newSingleThreadExecutor();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private final File mFile;
+
+    /** Last games written to or read from the file */
+    private List<Game> mCachedGames;
+
+    public FirstPageCache(Context context) {
+        mFile = new File(context.getCacheDir(), FILE_NAME);
+    }
+
+    /**
+     * Read the cached first page in the background, and hand it to the given listener.
+     */
+    @MainThread
+    public void read(final OnReadListener listener) {
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<Game> games = readFile();
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Games written in the meantime are more recent than the file
+                        if (mCachedGames == null) {
+                            mCachedGames = games;
+                        }
+                        listener.onFirstPageRead(games);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns the games of the cache file, or null if there is none.
+     */
+    @WorkerThread
+    private List<Game> readFile() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            int count = in.readInt();
+            List<Game> games = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                games.add(new Game(in.readLong(), in.readUTF(), in.readInt(), in.readInt(),
+                        in.readLong(), in.readInt()));
+            }
+            return games;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Failed to read the cached first page", e);
+            return null;
+        }
+    }
+
+    /**
+     * Replace the cached first page with the given games, if they changed.
+     */
+    @MainThread
+    public void write(final List<Game> games) {
+        if (games.equals(mCachedGames)) {
+            return;
+        }
+        mCachedGames = games;
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Write a temporary file first, so that the cache is never read half written
+                File tempFile = new File(mFile.getPath() + ".tmp");
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeInt(games.size());
+                    for (Game game : games) {
+                        out.writeLong(game.id);
+                        out.writeUTF(game.name);
+                        out.writeInt(game.genre);
+                        out.writeInt(game.platform);
+                        out.writeLong(game.priceCents);
+                        out.writeInt(game.quantity);
+                    }
+                } catch (IOException e) {
+                    Log.w(LOG_TAG, "Failed to write the cached first page", e);
+                    return;
+                }
+                if (!tempFile.renameTo(mFile)) {
+                    Log.w(LOG_TAG, "Failed to replace the cached first page");
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.android.gamesinventoryapp;
+
+import android.content.Context;
+import android.os.Trace;
+import android.support.annotation.NonNull;
+import android.support.v7.recyclerview.extensions.ListAdapter;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
+import android.util.LongSparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+
+import com.example.android.gamesinventoryapp.data.Game;
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * {@link GameAdapter} is an adapter for a {@link RecyclerView} that uses a list of {@link Game}
+ * as its data source. When a new list is submitted, the difference with the current one is computed
+ * on a background thread, so that only the games that actually changed are bound again.
+ * <p>
+ * The creation and binding of the holders are traced in the "GameAdapter.onCreateViewHolder" and
+ * "GameAdapter.onBindViewHolder" sections, to measure them with systrace on a device.
+ */
+public class GameAdapter extends ListAdapter<Game, GameAdapter.GameViewHolder> {
+
+    /**
+     * Interface to be notified when a game of the list or its sell button is clicked.
+     */
+    public interface OnGameClickListener {
+        void onGameClick(long id);
+
+        void onSellClick(Game game);
+    }
+
+    /**
+     * Games are the same if they have the same id, and unchanged if all their displayed attributes are equal.
+     */
+    private static final DiffUtil.ItemCallback<Game> DIFF_CALLBACK = new DiffUtil.ItemCallback<Game>() {
+        @Override
+        public boolean areItemsTheSame(Game oldItem, Game newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(Game oldItem, Game newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    /**
+     * Genre labels resources, indexed by the {@code GENRE_*} constants of {@link GameEntry}
+     */
+    private static final int[] GENRE_LABELS = {
+            R.string.genre_unknown,
+            R.string.genre_action,
+            R.string.genre_strategy,
+            R.string.genre_rpg,
+            R.string.genre_fps,
+            R.string.genre_sport};
+
+    /**
+     * Platform labels resources, indexed by the {@code PLATFORM_*} constants of {@link GameEntry}
+     */
+    private static final int[] PLATFORM_LABELS = {
+            R.string.platform_pc,
+            R.string.platform_xbox_one,
+            R.string.platform_xbox_360,
+            R.string.platform_ps3,
+            R.string.platform_ps4};
+
+    /**
+     * Maximum number of formatted prices kept in {@link #mPriceTexts}
+     */
+    private static final int MAX_CACHED_PRICES = 256;
+
+    private final Context mContext;
+
+    private final OnGameClickListener mListener;
+
+    /**
+     * Cache of the bound games, from which the editor opens them
+     */
+    private final GameRecordCache mRecordCache;
+
+    /**
+     * Full genre texts of the list items, indexed by genre
+     */
+    private final String[] mGenreTexts;
+
+    /**
+     * Full platform texts of the list items, indexed by platform
+     */
+    private final String[] mPlatformTexts;
+
+    /**
+     * Genre text of a game with an invalid genre
+     */
+    private final String mUnknownGenreText;
+
+    /**
+     * Platform text of a game with an invalid platform
+     */
+    private final String mUnknownPlatformText;
+
+    private final String mBeforePriceText;
+
+    private final String mBeforeStockText;
+
+    /**
+     * Locale of {@link #mCurrencyFormat}
+     */
+    private Locale mFormatLocale;
+
+    private NumberFormat mCurrencyFormat;
+
+    /**
+     * Full price texts of the list items, keyed by the price in cents
+     */
+    private final LongSparseArray<String> mPriceTexts = new LongSparseArray<>();
+
+    /**
+     * Single click listener of all the list items and sell buttons, which are tagged with their holder
+     */
+    private final View.OnClickListener mClickListener = new View.OnClickListener() {
+        @Override
+        public void onClick(View view) {
+            GameViewHolder holder = (GameViewHolder) view.getTag();
+            int position = holder.getAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            if (view.getId() == R.id.sell_button) {
+                mListener.onSellClick(getItem(position));
+            } else {
+                mListener.onGameClick(holder.getItemId());
+            }
+        }
+    };
+
+    /**
+     * Constructs a new {@link GameAdapter}.
+     *
+     * @param context  The context
+     * @param listener The listener notified when a game is clicked
+     */
+    public GameAdapter(Context context, OnGameClickListener listener) {
+        super(DIFF_CALLBACK);
+        mContext = context;
+        mListener = listener;
+        mRecordCache = GameRecordCache.getInstance(context);
+        setHasStableIds(true);
+
+        // Build the labels once, so that binding a game doesn't concatenate strings
+        String beforeGenreText = context.getString(R.string.before_genre_text);
+        mGenreTexts = new String[GENRE_LABELS.length];
+        for (int genre = 0; genre < GENRE_LABELS.length; genre++) {
+            mGenreTexts[genre] = beforeGenreText + context.getString(GENRE_LABELS[genre]);
+        }
+        mUnknownGenreText = mGenreTexts[GameEntry.GENRE_UNKNOWN];
+
+        String beforePlatformText = context.getString(R.string.before_platform_text);
+        mPlatformTexts = new String[PLATFORM_LABELS.length];
+        for (int platform = 0; platform < PLATFORM_LABELS.length; platform++) {
+            mPlatformTexts[platform] = beforePlatformText + context.getString(PLATFORM_LABELS[platform]);
+        }
+        mUnknownPlatformText = beforePlatformText;
+
+        mBeforePriceText = context.getString(R.string.before_price_text);
+        mBeforeStockText = context.getString(R.string.before_stock_text);
+    }
+
+    /**
+     * Returns the text of the given genre.
+     */
+    private String getGenreText(int genre) {
+        return genre >= 0 && genre < mGenreTexts.length ? mGenreTexts[genre] : mUnknownGenreText;
+    }
+
+    /**
+     * Returns the text of the given platform.
+     */
+    private String getPlatformText(int platform) {
+        return platform >= 0 && platform < mPlatformTexts.length ? mPlatformTexts[platform] : mUnknownPlatformText;
+    }
+
+    /**
+     * Returns the text of the given price in cents, formatted with the currency of the current locale.
+     * Each price is only formatted once, until the locale changes.
+     */
+    private String getPriceText(long priceCents) {
+        Locale locale = Locale.getDefault();
+        if (!locale.equals(mFormatLocale)) {
+            mFormatLocale = locale;
+            mCurrencyFormat = NumberFormat.getCurrencyInstance(locale);
+            mPriceTexts.clear();
+        }
+
+        String priceText = mPriceTexts.get(priceCents);
+        if (priceText == null) {
+            if (mPriceTexts.size() >= MAX_CACHED_PRICES) {
+                mPriceTexts.clear();
+            }
+            // Format the exact decimal amount, without rounding through a double
+            priceText = mBeforePriceText + mCurrencyFormat.format(BigDecimal.valueOf(priceCents, 2));
+            mPriceTexts.put(priceCents, priceText);
+        }
+        return priceText;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).id;
+    }
+
+    /**
+     * Makes a new list item view and its holder. No data is set (or bound) to the views yet.
+     */
+    @NonNull
+    @Override
+    public GameViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        Trace.beginSection("GameAdapter.onCreateViewHolder");
+        try {
+            // Inflate a list item view using the layout specified in list_item.xml
+            View view = LayoutInflater.from(mContext).inflate(R.layout.list_item, parent, false);
+            return new GameViewHolder(view);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * This method binds the game data at the given position to the views of the holder,
+     * and caches the game so that the editor can open it right away.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull GameViewHolder holder, int position) {
+        Trace.beginSection("GameAdapter.onBindViewHolder");
+        try {
+            Game game = getItem(position);
+            holder.bind(game);
+            mRecordCache.put(game);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Holds the views of a list item, so that they are only looked up once.
+     */
+    class GameViewHolder extends RecyclerView.ViewHolder {
+
+        private final TextView mNameTextView;
+        private final TextView mGenreTextView;
+        private final TextView mPlatformTextView;
+        private final TextView mPriceTextView;
+        private final TextView mStockTextView;
+
+        /**
+         * Reusable buffer in which the stock text is built
+         */
+        private final StringBuilder mStockBuilder = new StringBuilder(32);
+
+        /**
+         * Characters of the stock text, owned by {@link #mStockTextView} which displays them without a copy
+         */
+        private char[] mStockChars = new char[32];
+
+        GameViewHolder(View itemView) {
+            super(itemView);
+
+            // Find the TextViews
+            mNameTextView = itemView.findViewById(R.id.game_name);
+            mGenreTextView = itemView.findViewById(R.id.game_genre);
+            mPlatformTextView = itemView.findViewById(R.id.game_platform);
+            mPriceTextView = itemView.findViewById(R.id.game_price);
+            mStockTextView = itemView.findViewById(R.id.game_stock);
+
+            // Open the clicked game, or sell a copy of it, with the shared click listener
+            Button sellButton = itemView.findViewById(R.id.sell_button);
+            itemView.setTag(this);
+            sellButton.setTag(this);
+            itemView.setOnClickListener(mClickListener);
+            sellButton.setOnClickListener(mClickListener);
+
+            mStockBuilder.append(mBeforeStockText);
+        }
+
+        /**
+         * Display the given game. Once the labels and prices are cached, nothing is allocated.
+         */
+        void bind(Game game) {
+            mNameTextView.setText(game.name);
+            mGenreTextView.setText(getGenreText(game.genre));
+            mPlatformTextView.setText(getPlatformText(game.platform));
+            mPriceTextView.setText(getPriceText(game.priceCents));
+
+            // Update the stock TextView with the available stock for the current game
+            mStockBuilder.setLength(mBeforeStockText.length());
+            mStockBuilder.append(game.quantity);
+            int length = mStockBuilder.length();
+            if (length > mStockChars.length) {
+                mStockChars = new char[length];
+            }
+            mStockBuilder.getChars(0, length, mStockChars, 0);
+            mStockTextView.setText(mStockChars, 0, length);
+        }
+    }
+}
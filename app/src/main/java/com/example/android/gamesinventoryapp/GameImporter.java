@@ -0,0 +1,360 @@
+package com.example.android.gamesinventoryapp;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.MainThread;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameCsvParser;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Imports a CSV list of games, such as a supplier price list, on a background thread. The file is
+ * parsed as a stream by {@link GameCsvParser}, and the valid rows are written in batches, each in
+ * its own transaction: a new game is inserted, and a game with the same name and platform is
+ * updated. Only one batch is held in memory at a time.
+ * <p>
+ * The progress is reported on the main thread, the import can be cancelled between two batches,
+ * and the listeners of the games are notified only once, at the end. The rows that couldn't be
+ * imported are listed in the {@link Report}. Like {@link GamePurger}, an importer is meant to be
+ * retained across the configuration changes of its activity.
+ */
+public class GameImporter {
+
+    /** Tag for the log messages */
+    private static final String LOG_TAG = GameImporter.class.getSimpleName();
+
+    /** Number of games written by each transaction */
+    private static final int BATCH_SIZE = 500;
+
+    /** Maximum number of rejected rows listed in a report, the others are only counted */
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    /**
+     * Interface to be notified of the progress of the import, on the main thread.
+     */
+    public interface Listener {
+        /**
+         * Called after each batch with the number of rows read so far, and the percentage of the
+         * file read, or -1 if the size of the file is unknown.
+         */
+        void onImportProgress(int rowCount, int percent);
+
+        /**
+         * Called once the import ended, because the whole file was read, because it was cancelled
+         * or because the file couldn't be read.
+         */
+        void onImportFinished(Report report);
+    }
+
+    /**
+     * Outcome of an import
+     */
+    public static final class Report {
+        /** Number of rows read, valid or not */
+        public final int rowCount;
+
+        /** Number of games inserted or changed */
+        public final int writtenCount;
+
+        /** Number of rows that couldn't be imported */
+        public final int errorCount;
+
+        /** The first rows that couldn't be imported, with their line in the file and why */
+        public final List<String> errors;
+
+        /** Why the file couldn't be read up to its end, or null if it was */
+        public final String failure;
+
+        public final boolean cancelled;
+
+        Report(int rowCount, int writtenCount, int errorCount, List<String> errors, String failure,
+               boolean cancelled) {
+            this.rowCount = rowCount;
+            this.writtenCount = writtenCount;
+            this.errorCount = errorCount;
+            this.errors = Collections.unmodifiableList(errors);
+            this.failure = failure;
+            this.cancelled = cancelled;
+        }
+    }
+
+    private final ContentResolver mContentResolver;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private Listener mListener;
+
+    /** Whether an import is running, or finished without having been reported */
+    private boolean mRunning;
+
+    private int mRowCount;
+
+    private int mPercent;
+
+    /** Outcome of the finished import, waiting to be reported to a listener */
+    private Report mReport;
+
+    /** Set on the main thread to stop the import before its next batch */
+    private volatile boolean mCancelled;
+
+    public GameImporter(ContentResolver contentResolver) {
+        mContentResolver = contentResolver;
+    }
+
+    /**
+     * Set the listener notified of the progress of the import, or null to stop being notified.
+     * The current progress of the import, or its end, is reported right away.
+     */
+    @MainThread
+    public void setListener(Listener listener) {
+        mListener = listener;
+        if (mListener != null && mRunning) {
+            if (mReport != null) {
+                reportFinished();
+            } else {
+                mListener.onImportProgress(mRowCount, mPercent);
+            }
+        }
+    }
+
+    /**
+     * Returns whether an import is running.
+     */
+    @MainThread
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * Start importing the CSV file of the given URI, unless an import is already running.
+     */
+    @MainThread
+    public void start(final Uri uri) {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mReport = null;
+        mCancelled = false;
+        mRowCount = 0;
+        mPercent = -1;
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                final Report report = importGames(uri);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mReport = report;
+                        if (mListener != null) {
+                            reportFinished();
+                        }
+                    }
+                });
+            }
+        }, "GameImporter").start();
+    }
+
+    /**
+     * Stop the running import once its current batch is written. The games already written stay written.
+     */
+    @MainThread
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    /**
+     * Import the CSV file of the given URI, and return the outcome of the import.
+     */
+    @VisibleForTesting
+    @WorkerThread
+    Report importGames(Uri uri) {
+        Tally tally = new Tally();
+        String failure = null;
+        ArrayList<ContentValues> batch = new ArrayList<>(BATCH_SIZE);
+        int[] batchLines = new int[BATCH_SIZE];
+
+        try (AssetFileDescriptor descriptor = mContentResolver.openAssetFileDescriptor(uri, "r")) {
+            if (descriptor == null) {
+                throw new IOException("The file can't be opened");
+            }
+            long length = descriptor.getLength();
+            CountingInputStream input = new CountingInputStream(descriptor.createInputStream());
+            try (GameCsvParser parser = new GameCsvParser(new InputStreamReader(input, "UTF-8"))) {
+                while (!mCancelled && parser.next()) {
+                    tally.rowCount++;
+                    if (parser.getError() != null) {
+                        tally.addError(parser.getLineNumber(), parser.getError());
+                        continue;
+                    }
+                    batchLines[batch.size()] = parser.getLineNumber();
+                    batch.add(toContentValues(parser));
+                    if (batch.size() == BATCH_SIZE) {
+                        writeBatch(batch, batchLines, tally);
+                        postProgress(tally.rowCount,
+                                length > 0 ? (int) Math.min(100, input.getCount() * 100 / length) : -1);
+                    }
+                }
+                if (!mCancelled && !batch.isEmpty()) {
+                    writeBatch(batch, batchLines, tally);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.e(LOG_TAG, "Failed to import " + uri + " after " + tally.rowCount + " rows", e);
+            failure = e.getMessage() != null ? e.getMessage() : e.toString();
+        } finally {
+            // Notify the listeners of the games once for the whole import
+            if (tally.writtenCount > 0) {
+                mContentResolver.notifyChange(GameEntry.CONTENT_URI, null);
+            }
+            Log.v(LOG_TAG, tally.writtenCount + " games imported from " + tally.rowCount + " rows");
+        }
+        return new Report(tally.rowCount, tally.writtenCount, tally.errorCount, tally.errors, failure,
+                mCancelled);
+    }
+
+    /**
+     * Write a batch of games in one transaction, and clear it. If the provider rejects the batch,
+     * its games are written one by one so that only the faulty rows are reported.
+     */
+    @WorkerThread
+    private void writeBatch(ArrayList<ContentValues> batch, int[] batchLines, Tally tally) {
+        ContentValues[] valuesArray = batch.toArray(new ContentValues[batch.size()]);
+        try {
+            tally.writtenCount += mContentResolver.bulkInsert(GameEntry.CONTENT_IMPORT_URI, valuesArray);
+        } catch (RuntimeException batchError) {
+            Log.w(LOG_TAG, "Batch rejected, importing its games one by one", batchError);
+            for (int i = 0; i < valuesArray.length; i++) {
+                try {
+                    tally.writtenCount += mContentResolver.bulkInsert(GameEntry.CONTENT_IMPORT_URI,
+                            new ContentValues[]{valuesArray[i]});
+                } catch (RuntimeException e) {
+                    // Any rejection of the row, not only its validation, is reported against it
+                    tally.addError(batchLines[i], e.getMessage() != null ? e.getMessage() : e.toString());
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    /**
+     * Returns the values of the current valid row of the parser, with only the attributes it has.
+     */
+    private static ContentValues toContentValues(GameCsvParser parser) {
+        ContentValues values = new ContentValues();
+        values.put(GameEntry.COLUMN_GAME_NAME, parser.getName());
+        values.put(GameEntry.COLUMN_GAME_PLATFORM, parser.getPlatform());
+        values.put(GameEntry.COLUMN_SUPPLIER_NAME, parser.getSupplierName());
+        if (parser.hasValue(GameEntry.COLUMN_GAME_GENRE)) {
+            values.put(GameEntry.COLUMN_GAME_GENRE, parser.getGenre());
+        }
+        if (parser.hasValue(GameEntry.COLUMN_GAME_PRICE)) {
+            values.put(GameEntry.COLUMN_GAME_PRICE, parser.getPriceCents());
+        }
+        if (parser.hasValue(GameEntry.COLUMN_QUANTITY)) {
+            values.put(GameEntry.COLUMN_QUANTITY, parser.getQuantity());
+        }
+        if (parser.hasValue(GameEntry.COLUMN_SUPPLIER_PHONE)) {
+            values.put(GameEntry.COLUMN_SUPPLIER_PHONE, parser.getSupplierPhone());
+        }
+        return values;
+    }
+
+    private void postProgress(final int rowCount, final int percent) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mRowCount = rowCount;
+                mPercent = percent;
+                if (mListener != null && mReport == null) {
+                    mListener.onImportProgress(mRowCount, mPercent);
+                }
+            }
+        });
+    }
+
+    private void reportFinished() {
+        Report report = mReport;
+        mRunning = false;
+        mReport = null;
+        mListener.onImportFinished(report);
+    }
+
+    /**
+     * Counts of an import in progress
+     */
+    private static final class Tally {
+        int rowCount;
+        int writtenCount;
+        int errorCount;
+        final List<String> errors = new ArrayList<>();
+
+        /**
+         * Count a rejected row, and list it unless the list of the report is full.
+         */
+        void addError(int lineNumber, String error) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("Line " + lineNumber + ": " + error);
+            }
+        }
+    }
+
+    /**
+     * Stream counting the bytes read from it, to tell how much of the file was imported.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long mCount;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return mCount;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                mCount++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                mCount += count;
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            mCount += skipped;
+            return skipped;
+        }
+    }
+}
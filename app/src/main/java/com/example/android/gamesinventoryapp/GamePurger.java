@@ -0,0 +1,209 @@
+package com.example.android.gamesinventoryapp;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.support.annotation.MainThread;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameContract.StatsEntry;
+
+/**
+ * Deletes all the games on a background thread, in chunks of bounded size. Each chunk is deleted
+ * in its own short transaction, and the purge pauses between two chunks so that the other threads
+ * can use the database. The progress is reported on the main thread, the purge can be cancelled
+ * between two chunks, and the listeners of the games are notified only once, at the end.
+ * <p>
+ * A purger is meant to be retained across the configuration changes of its activity: setting a new
+ * listener reports the current progress to it.
+ */
+public class GamePurger {
+
+    /** Tag for the log messages */
+    private static final String LOG_TAG = GamePurger.class.getSimpleName();
+
+    /** Number of games deleted by each chunk */
+    private static final int CHUNK_SIZE = 200;
+
+    /** Number of milliseconds to pause between two chunks */
+    private static final long CHUNK_PAUSE_MILLIS = 10;
+
+    /**
+     * Interface to be notified of the progress of the purge, on the main thread.
+     */
+    public interface Listener {
+        /**
+         * Called after each chunk with the number of games deleted so far, and the number of games
+         * there were when the purge started.
+         */
+        void onPurgeProgress(int deletedCount, int totalCount);
+
+        /**
+         * Called once the purge ended, because no game is left or because it was cancelled.
+         */
+        void onPurgeFinished(int deletedCount, boolean cancelled);
+    }
+
+    private final ContentResolver mContentResolver;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private Listener mListener;
+
+    /** Whether a purge is running, or finished without having been reported */
+    private boolean mRunning;
+
+    /** Whether the end of the purge is waiting to be reported to a listener */
+    private boolean mFinished;
+
+    private int mDeletedCount;
+
+    private int mTotalCount;
+
+    /** Set on the main thread to stop the purge before its next chunk */
+    private volatile boolean mCancelled;
+
+    public GamePurger(ContentResolver contentResolver) {
+        mContentResolver = contentResolver;
+    }
+
+    /**
+     * Set the listener notified of the progress of the purge, or null to stop being notified.
+     * The current progress of the purge, or its end, is reported right away.
+     */
+    @MainThread
+    public void setListener(Listener listener) {
+        mListener = listener;
+        if (mListener != null && mRunning) {
+            if (mFinished) {
+                reportFinished();
+            } else {
+                mListener.onPurgeProgress(mDeletedCount, mTotalCount);
+            }
+        }
+    }
+
+    /**
+     * Returns whether a purge is running.
+     */
+    @MainThread
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * Start deleting all the games, unless a purge is already running.
+     */
+    @MainThread
+    public void start() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mFinished = false;
+        mCancelled = false;
+        mDeletedCount = 0;
+        mTotalCount = 0;
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                purge();
+            }
+        }, "GamePurger").start();
+    }
+
+    /**
+     * Stop the running purge once its current chunk is deleted. The games already deleted stay deleted.
+     */
+    @MainThread
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    @WorkerThread
+    private void purge() {
+        int deletedCount = 0;
+        try {
+            int totalCount = queryGameCount();
+            while (!mCancelled) {
+                int chunkCount = mContentResolver.delete(GameEntry.buildPurgeUri(CHUNK_SIZE), null, null);
+                deletedCount += chunkCount;
+                postProgress(deletedCount, totalCount);
+                if (chunkCount < CHUNK_SIZE) {
+                    break;
+                }
+                // Leave the database to the other threads for a moment
+                SystemClock.sleep(CHUNK_PAUSE_MILLIS);
+            }
+        } catch (RuntimeException e) {
+            Log.e(LOG_TAG, "Failed to delete the games after " + deletedCount + " of them", e);
+        } finally {
+            // Notify the listeners of the games once for the whole purge
+            if (deletedCount > 0) {
+                mContentResolver.notifyChange(GameEntry.CONTENT_URI, null);
+            }
+            Log.v(LOG_TAG, deletedCount + " rows deleted from games database");
+
+            final int finalDeletedCount = deletedCount;
+            final boolean cancelled = mCancelled;
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mDeletedCount = finalDeletedCount;
+                    mFinished = true;
+                    mCancelled = cancelled;
+                    if (mListener != null) {
+                        reportFinished();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the number of games, read from the statistics so that they aren't counted one by one.
+     */
+    @WorkerThread
+    private int queryGameCount() {
+        Cursor cursor = mContentResolver.query(StatsEntry.CONTENT_URI,
+                new String[]{StatsEntry.COLUMN_GAME_COUNT},
+                StatsEntry.COLUMN_DIMENSION + "=?",
+                new String[]{StatsEntry.DIMENSION_TOTAL},
+                null);
+        if (cursor == null) {
+            return 0;
+        }
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void postProgress(final int deletedCount, final int totalCount) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                // Games inserted during the purge are deleted too
+                mTotalCount = Math.max(totalCount, deletedCount);
+                mDeletedCount = deletedCount;
+                if (mListener != null && !mFinished) {
+                    mListener.onPurgeProgress(mDeletedCount, mTotalCount);
+                }
+            }
+        });
+    }
+
+    private void reportFinished() {
+        mRunning = false;
+        mFinished = false;
+        mListener.onPurgeFinished(mDeletedCount, mCancelled);
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.android.gamesinventoryapp;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.LongSparseArray;
+
+import com.example.android.gamesinventoryapp.data.Game;
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+
+/**
+ * {@link GameRecordCache} keeps the games most recently displayed by the catalog, keyed by their id,
+ * so that the editor can show a game without waiting for the database.
+ * <p>
+ * The cache is filled by the catalog each time a game is bound and invalidated by the change
+ * notifications of the provider. An invalidated record is kept as a stale entry: the same stale
+ * instance bound again by a catalog that hasn't reloaded yet is ignored, while a newly loaded one
+ * replaces it. The entries are recycled once the cache is full, so that filling it doesn't allocate.
+ */
+public final class GameRecordCache {
+
+    /** Maximum number of games kept in the cache */
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private static GameRecordCache sInstance;
+
+    /**
+     * Entry of the cache, linked to the entries used just before and after it
+     */
+    private static final class Entry {
+        long id;
+        Game game;
+        boolean stale;
+        Entry previous;
+        Entry next;
+    }
+
+    private final int mCapacity;
+
+    /**
+     * Entries of the cache, keyed by game id
+     */
+    private final LongSparseArray<Entry> mEntries = new LongSparseArray<>();
+
+    /** Most recently used entry */
+    private Entry mHead;
+
+    /** Least recently used entry, the next one to be recycled */
+    private Entry mTail;
+
+    /**
+     * Returns the cache of the process. On first use, it starts listening to the changes of the games.
+     */
+    public static synchronized GameRecordCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new GameRecordCache(DEFAULT_CAPACITY);
+            sInstance.register(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    GameRecordCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        mCapacity = capacity;
+    }
+
+    /**
+     * Invalidate the changed games on each notification of the provider. The observer has no handler,
+     * so that the cache is invalidated before the loaders are told to reload.
+     */
+    private void register(Context context) {
+        context.getContentResolver().registerContentObserver(GameEntry.CONTENT_URI, true,
+                new ContentObserver(null) {
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        invalidateAll();
+                    }
+
+                    @Override
+                    public void onChange(boolean selfChange, Uri uri) {
+                        GameRecordCache.this.onChange(uri);
+                    }
+                });
+    }
+
+    /**
+     * Invalidate the games changed according to the given change notification URI, or all of them
+     * if the URI is unknown. The notifications of the other data of the provider are ignored.
+     */
+    @VisibleForTesting
+    void onChange(@Nullable Uri uri) {
+        long[] ids = uri == null ? null : GameEntry.getChangedIds(uri);
+        if (ids == null) {
+            invalidateAll();
+        } else {
+            for (long id : ids) {
+                invalidate(id);
+            }
+        }
+    }
+
+    /**
+     * Returns the cached game with the given id, or null if it isn't cached or has changed since.
+     */
+    @Nullable
+    public synchronized Game get(long id) {
+        Entry entry = mEntries.get(id);
+        if (entry == null || entry.stale) {
+            return null;
+        }
+        moveToHead(entry);
+        return entry.game;
+    }
+
+    /**
+     * Cache the given game, as it has just been displayed.
+     */
+    public synchronized void put(Game game) {
+        Entry entry = mEntries.get(game.id);
+        if (entry != null) {
+            // A stale game is only replaced by a game loaded after it changed
+            if (entry.stale && entry.game == game) {
+                return;
+            }
+            entry.game = game;
+            entry.stale = false;
+            moveToHead(entry);
+            return;
+        }
+
+        // Recycle the least recently used entry once the cache is full
+        if (mEntries.size() >= mCapacity) {
+            entry = mTail;
+            unlink(entry);
+            mEntries.remove(entry.id);
+        } else {
+            entry = new Entry();
+        }
+        entry.id = game.id;
+        entry.game = game;
+        entry.stale = false;
+        mEntries.put(game.id, entry);
+        linkAtHead(entry);
+    }
+
+    /**
+     * Mark the game with the given id as changed.
+     */
+    public synchronized void invalidate(long id) {
+        Entry entry = mEntries.get(id);
+        if (entry != null) {
+            entry.stale = true;
+        }
+    }
+
+    /**
+     * Mark all the games as changed.
+     */
+    public synchronized void invalidateAll() {
+        for (Entry entry = mHead; entry != null; entry = entry.next) {
+            entry.stale = true;
+        }
+    }
+
+    private void moveToHead(Entry entry) {
+        if (entry != mHead) {
+            unlink(entry);
+            linkAtHead(entry);
+        }
+    }
+
+    private void linkAtHead(Entry entry) {
+        entry.previous = null;
+        entry.next = mHead;
+        if (mHead != null) {
+            mHead.previous = entry;
+        }
+        mHead = entry;
+        if (mTail == null) {
+            mTail = entry;
+        }
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.previous != null) {
+            entry.previous.next = entry.next;
+        } else {
+            mHead = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.previous = entry.previous;
+        } else {
+            mTail = entry.previous;
+        }
+        entry.previous = null;
+        entry.next = null;
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.android.gamesinventoryapp;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Writes the games edited by the user to the provider on a background thread, and reports the result
+ * on the main thread. A writer is meant to be retained across the configuration changes of its
+ * activity: a result that arrives while no listener is set is kept until the next one is.
+ * <p>
+ * The writes of all the writers run one at a time, in the order they were requested.
+ */
+public class GameWriter {
+
+    /** Tag for the log messages */
+    private static final String LOG_TAG = GameWriter.class.getSimpleName();
+
+    /** Insertion of a new game */
+    public static final int OPERATION_INSERT = 0;
+
+    /** Update of an existing game */
+    public static final int OPERATION_UPDATE = 1;
+
+    /** Deletion of an existing game */
+    public static final int OPERATION_DELETE = 2;
+
+    /**
+     * Interface to be notified of the end of a write, on the main thread.
+     */
+    public interface Listener {
+        /**
+         * Called when a write finished.
+         *
+         * @param operation One of the {@code OPERATION_*} constants
+         * @param succeeded Whether the provider inserted, updated or deleted the game
+         */
+        void onWriteFinished(int operation, boolean succeeded);
+    }
+
+    /**
+     * Single thread shared by all the writers, so that the writes don't compete for the database
+     */
+    private static final ExecutorService WRITE_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final ContentResolver mContentResolver;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private Listener mListener;
+
+    /** Number of writes requested and not reported yet */
+    private int mWriteCount;
+
+    /** Operation of the write finished while there was no listener, or -1 if there is none */
+    private int mUnreportedOperation = -1;
+
+    /** Result of the write finished while there was no listener */
+    private boolean mUnreportedSucceeded;
+
+    public GameWriter(ContentResolver contentResolver) {
+        mContentResolver = contentResolver;
+    }
+
+    /**
+     * Set the listener notified at the end of the writes, or null to stop being notified.
+     * The result of a write that finished while there was no listener is reported right away.
+     */
+    @MainThread
+    public void setListener(Listener listener) {
+        mListener = listener;
+        if (mListener != null && mUnreportedOperation != -1) {
+            int operation = mUnreportedOperation;
+            mUnreportedOperation = -1;
+            mListener.onWriteFinished(operation, mUnreportedSucceeded);
+        }
+    }
+
+    /**
+     * Returns whether a write is running or waiting to be reported.
+     */
+    @MainThread
+    public boolean isWriting() {
+        return mWriteCount > 0 || mUnreportedOperation != -1;
+    }
+
+    /**
+     * Insert a new game with the given values.
+     */
+    @MainThread
+    public void insert(ContentValues values) {
+        write(OPERATION_INSERT, null, values);
+    }
+
+    /**
+     * Update the game with the given content URI with the given values.
+     */
+    @MainThread
+    public void update(Uri uri, ContentValues values) {
+        write(OPERATION_UPDATE, uri, values);
+    }
+
+    /**
+     * Delete the game with the given content URI.
+     */
+    @MainThread
+    public void delete(Uri uri) {
+        write(OPERATION_DELETE, uri, null);
+    }
+
+    private void write(final int operation, final Uri uri, final ContentValues values) {
+        mWriteCount++;
+        WRITE_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final boolean succeeded = perform(operation, uri, values);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onWriteFinished(operation, succeeded);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Perform a write on the provider. Returns whether it changed the game.
+     */
+    @WorkerThread
+    private boolean perform(int operation, Uri uri, ContentValues values) {
+        try {
+            switch (operation) {
+                case OPERATION_INSERT:
+                    return mContentResolver.insert(GameEntry.CONTENT_URI, values) != null;
+                case OPERATION_UPDATE:
+                    return mContentResolver.update(uri, values, null, null) > 0;
+                case OPERATION_DELETE:
+                    return mContentResolver.delete(uri, null, null) > 0;
+                default:
+                    throw new IllegalArgumentException("Unknown write operation " + operation);
+            }
+        } catch (RuntimeException e) {
+            // The provider rejects the invalid games with an IllegalArgumentException
+            Log.e(LOG_TAG, "Failed to write " + (uri != null ? uri : "a new game"), e);
+            return false;
+        }
+    }
+
+    private void onWriteFinished(int operation, boolean succeeded) {
+        mWriteCount--;
+        if (mListener != null) {
+            mListener.onWriteFinished(operation, succeeded);
+        } else {
+            mUnreportedOperation = operation;
+            mUnreportedSucceeded = succeeded;
+        }
+    }
+}
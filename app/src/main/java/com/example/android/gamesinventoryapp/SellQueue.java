@@ -0,0 +1,288 @@
+package com.example.android.gamesinventoryapp;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import com.example.android.gamesinventoryapp.data.Game;
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Write-behind queue of the sales made from the catalog. A sale is shown right away by an in-memory
+ * overlay on the quantity of the game, and written to the provider in the background. The taps on
+ * the same game made during a short window are written as a single sale, and the sales are written
+ * one at a time in the order of the first tap on each game. If the provider no longer has enough
+ * copies for all the taps of a sale, as many copies as are left are sold one at a time, and the
+ * others are removed from the overlay.
+ * <p>
+ * Except for the writes, everything happens on the main thread.
+ */
+public class SellQueue {
+
+    /** Tag for the log messages */
+    private static final String LOG_TAG = SellQueue.class.getSimpleName();
+
+    /**
+     * Number of milliseconds during which the taps are collected before being written
+     */
+    private static final long COALESCING_WINDOW_MILLIS = 250;
+
+    /**
+     * Interface to be notified of the changes of the overlay, on the main thread.
+     */
+    public interface Listener {
+        /**
+         * Called when the quantities returned by {@link #apply(Game)} changed.
+         */
+        void onOverlayChanged();
+
+        /**
+         * Called when the provider rejected some or all of the copies of a sale of the game with
+         * the given id, because there weren't enough copies left in stock. The copies that weren't
+         * sold were removed from the overlay.
+         */
+        void onSaleRejected(long id);
+    }
+
+    /**
+     * Sales of a game that aren't visible in the loaded games yet
+     */
+    private static class Overlay {
+        /** Quantity of the game in the loaded data the sales apply to */
+        int baseQuantity;
+        /** Number of copies sold and not handed to the writer yet */
+        int pending;
+        /** Number of copies handed to the writer and not visible in the loaded data yet */
+        int inFlight;
+        /** Part of {@link #inFlight} already written to the provider */
+        int written;
+        /** Number of writes handed to the writer and not finished yet */
+        int writes;
+
+        Overlay(int baseQuantity) {
+            this.baseQuantity = baseQuantity;
+        }
+
+        boolean isEmpty() {
+            return pending == 0 && inFlight == 0;
+        }
+    }
+
+    private final ContentResolver mContentResolver;
+
+    /**
+     * Single thread writing the sales, so that they are written in order
+     */
+    private final ExecutorService mWriter = Executors.newSingleThreadExecutor();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Overlay of each game with unwritten or unseen sales, in the order of their first tap
+     */
+    private final LinkedHashMap<Long, Overlay> mOverlays = new LinkedHashMap<>();
+
+    private Listener mListener;
+
+    /**
+     * Whether a flush of the pending sales is already scheduled
+     */
+    private boolean mFlushScheduled;
+
+    private final Runnable mFlush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public SellQueue(ContentResolver contentResolver) {
+        mContentResolver = contentResolver;
+    }
+
+    /**
+     * Set the listener notified of the changes of the overlay, or null to stop being notified.
+     */
+    @MainThread
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Sell one copy of the given game, as currently displayed with {@link #apply(Game)}.
+     * Returns false, without selling anything, if there is no copy left.
+     */
+    @MainThread
+    public boolean sell(Game game) {
+        if (game.quantity <= 0) {
+            return false;
+        }
+        Overlay overlay = mOverlays.get(game.id);
+        if (overlay == null) {
+            overlay = new Overlay(game.quantity);
+            mOverlays.put(game.id, overlay);
+        }
+        overlay.pending++;
+
+        if (!mFlushScheduled) {
+            mFlushScheduled = true;
+            mMainHandler.postDelayed(mFlush, COALESCING_WINDOW_MILLIS);
+        }
+        notifyOverlayChanged();
+        return true;
+    }
+
+    /**
+     * Returns the given loaded game with the quantity sold but not visible in the loaded data yet
+     * removed from its stock. The game itself is returned if it has no such sale.
+     */
+    @MainThread
+    public Game apply(Game game) {
+        Overlay overlay = mOverlays.get(game.id);
+        if (overlay == null) {
+            return game;
+        }
+        return game.withQuantity(game.quantity - overlay.pending - overlay.inFlight);
+    }
+
+    /**
+     * Update the overlay with freshly loaded games. Once the quantity of a game changed in the
+     * loaded data, the sales already written are visible in it and leave the overlay. The games
+     * loaded while a sale of theirs is being written are ignored: the data may or may not include
+     * that sale, which is only known once the write is finished. The write itself is notified, so
+     * that the games are loaded again after it.
+     */
+    @MainThread
+    public void onGamesLoaded(List<Game> games) {
+        if (mOverlays.isEmpty()) {
+            return;
+        }
+        for (Game game : games) {
+            Overlay overlay = mOverlays.get(game.id);
+            if (overlay != null && overlay.writes == 0 && game.quantity != overlay.baseQuantity) {
+                overlay.inFlight -= overlay.written;
+                overlay.written = 0;
+                overlay.baseQuantity = game.quantity;
+                if (overlay.isEmpty()) {
+                    mOverlays.remove(game.id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hand the pending sales to the writer right away, for example before the catalog is closed.
+     */
+    @MainThread
+    public void flushNow() {
+        mMainHandler.removeCallbacks(mFlush);
+        flush();
+    }
+
+    /**
+     * Write the pending sales and stop the writer once they are written. The queue can't be used anymore.
+     */
+    @MainThread
+    public void close() {
+        mListener = null;
+        flushNow();
+        mWriter.shutdown();
+    }
+
+    /**
+     * Hand every pending sale to the writer, as one write per game.
+     */
+    private void flush() {
+        mFlushScheduled = false;
+        for (Map.Entry<Long, Overlay> entry : mOverlays.entrySet()) {
+            Overlay overlay = entry.getValue();
+            if (overlay.pending > 0) {
+                final long id = entry.getKey();
+                final int amount = overlay.pending;
+                overlay.inFlight += amount;
+                overlay.pending = 0;
+                overlay.writes++;
+                mWriter.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        final int sold = write(id, amount);
+                        mMainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                onWriteFinished(id, amount, sold);
+                            }
+                        });
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Write a sale to the provider. The provider sells all the copies or none, so if there aren't
+     * enough copies left for the whole sale, the copies left are sold one at a time.
+     * Returns the number of copies sold.
+     */
+    @WorkerThread
+    private int write(long id, int amount) {
+        int sold = 0;
+        try {
+            if (sellCopies(id, amount)) {
+                return amount;
+            }
+            while (sold < amount && sellCopies(id, 1)) {
+                sold++;
+            }
+        } catch (RuntimeException e) {
+            Log.e(LOG_TAG, "Failed to sell " + amount + " copies of game " + id, e);
+        }
+        return sold;
+    }
+
+    /**
+     * Sell the given number of copies of a game. Returns whether they were sold.
+     */
+    @WorkerThread
+    private boolean sellCopies(long id, int amount) {
+        return mContentResolver.update(GameEntry.buildSellUri(id, amount), new ContentValues(), null, null) > 0;
+    }
+
+    /**
+     * Record the result of a write: keep the copies sold until they are visible in the loaded data,
+     * and roll back the others.
+     */
+    private void onWriteFinished(long id, int amount, int sold) {
+        Overlay overlay = mOverlays.get(id);
+        if (overlay == null) {
+            return;
+        }
+        overlay.writes--;
+        overlay.written += sold;
+        if (sold < amount) {
+            overlay.inFlight -= amount - sold;
+            if (overlay.isEmpty()) {
+                mOverlays.remove(id);
+            }
+            if (mListener != null) {
+                mListener.onSaleRejected(id);
+            }
+            notifyOverlayChanged();
+        }
+    }
+
+    private void notifyOverlayChanged() {
+        if (mListener != null) {
+            mListener.onOverlayChanged();
+        }
+    }
+}
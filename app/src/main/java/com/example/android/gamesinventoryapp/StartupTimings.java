@@ -0,0 +1,93 @@
+package com.example.android.gamesinventoryapp;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Timing marks of the cold start of the app, in {@link SystemClock#elapsedRealtime()} milliseconds:
+ * process start, creation of the catalog, first frame and first frame showing data from the database.
+ * Each mark is only recorded once per process, unless the marks are {@link #reset()}, and logged with
+ * the time elapsed since the process started.
+ */
+public final class StartupTimings {
+
+    /** Tag for the log messages */
+    private static final String LOG_TAG = StartupTimings.class.getSimpleName();
+
+    /** Value of a mark that wasn't recorded yet */
+    public static final long NOT_RECORDED = -1;
+
+    /**
+     * Fallback for the process start before Android N: the time this class was loaded, which happens
+     * while the catalog is created
+     */
+    private static final long CLASS_LOAD_MILLIS = SystemClock.elapsedRealtime();
+
+    private static volatile long sActivityCreatedMillis = NOT_RECORDED;
+    private static volatile long sFirstFrameMillis = NOT_RECORDED;
+    private static volatile long sFirstDataFrameMillis = NOT_RECORDED;
+
+    // Empty constructor
+    private StartupTimings() {
+    }
+
+    /**
+     * Returns the time the process started.
+     */
+    public static long getProcessStartMillis() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return Process.getStartElapsedRealtime();
+        }
+        return CLASS_LOAD_MILLIS;
+    }
+
+    public static long getActivityCreatedMillis() {
+        return sActivityCreatedMillis;
+    }
+
+    public static long getFirstFrameMillis() {
+        return sFirstFrameMillis;
+    }
+
+    public static long getFirstDataFrameMillis() {
+        return sFirstDataFrameMillis;
+    }
+
+    static void markActivityCreated() {
+        if (sActivityCreatedMillis == NOT_RECORDED) {
+            sActivityCreatedMillis = mark("activity created");
+        }
+    }
+
+    static void markFirstFrame() {
+        if (sFirstFrameMillis == NOT_RECORDED) {
+            sFirstFrameMillis = mark("first frame");
+        }
+    }
+
+    static void markFirstDataFrame() {
+        if (sFirstDataFrameMillis == NOT_RECORDED) {
+            sFirstDataFrameMillis = mark("first data frame");
+        }
+    }
+
+    /**
+     * Forget the recorded marks, so that the next start of the catalog in this process records them again.
+     */
+    static void reset() {
+        sActivityCreatedMillis = NOT_RECORDED;
+        sFirstFrameMillis = NOT_RECORDED;
+        sFirstDataFrameMillis = NOT_RECORDED;
+    }
+
+    /**
+     * Log a mark and return its time.
+     */
+    private static long mark(String name) {
+        long millis = SystemClock.elapsedRealtime();
+        Log.i(LOG_TAG, name + ": +" + (millis - getProcessStartMillis()) + " ms");
+        return millis;
+    }
+}
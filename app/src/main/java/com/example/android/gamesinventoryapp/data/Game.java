@@ -0,0 +1,125 @@
+package com.example.android.gamesinventoryapp.data;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+
+import java.math.BigDecimal;
+
+/**
+ * {@link Game} is an immutable snapshot of a row of the games table, read by {@link GameCursorMapper}.
+ * Unlike a {@link android.database.Cursor}, a list of games can be compared with the previous one
+ * on a background thread. The attributes whose column wasn't read have their default value.
+ */
+public final class Game {
+
+    /** Columns of all the attributes of a game */
+    public static final String[] PROJECTION = {
+            GameEntry._ID,
+            GameEntry.COLUMN_GAME_NAME,
+            GameEntry.COLUMN_GAME_GENRE,
+            GameEntry.COLUMN_GAME_PLATFORM,
+            GameEntry.COLUMN_GAME_PRICE,
+            GameEntry.COLUMN_QUANTITY,
+            GameEntry.COLUMN_SUPPLIER_NAME,
+            GameEntry.COLUMN_SUPPLIER_PHONE};
+
+    /** Columns of the attributes shown by a row of the catalog, without the supplier */
+    public static final String[] SUMMARY_PROJECTION = {
+            GameEntry._ID,
+            GameEntry.COLUMN_GAME_NAME,
+            GameEntry.COLUMN_GAME_GENRE,
+            GameEntry.COLUMN_GAME_PLATFORM,
+            GameEntry.COLUMN_GAME_PRICE,
+            GameEntry.COLUMN_QUANTITY};
+
+    public final long id;
+    public final String name;
+    public final int genre;
+    public final int platform;
+    /** Price in cents */
+    public final long priceCents;
+    public final int quantity;
+    public final String supplierName;
+    public final String supplierPhone;
+
+    public Game(long id, String name, int genre, int platform, long priceCents, int quantity,
+                String supplierName, String supplierPhone) {
+        this.id = id;
+        this.name = name;
+        this.genre = genre;
+        this.platform = platform;
+        this.priceCents = priceCents;
+        this.quantity = quantity;
+        this.supplierName = supplierName;
+        this.supplierPhone = supplierPhone;
+    }
+
+    /**
+     * Constructs a game with the attributes of {@link #SUMMARY_PROJECTION}, without supplier.
+     */
+    public Game(long id, String name, int genre, int platform, long priceCents, int quantity) {
+        this(id, name, genre, platform, priceCents, quantity, null, null);
+    }
+
+    /**
+     * Returns the given price in cents as a plain amount, such as "19.99".
+     */
+    public static String formatPrice(long priceCents) {
+        return BigDecimal.valueOf(priceCents, 2).toPlainString();
+    }
+
+    /**
+     * Parse a plain amount, such as "19.99", to a price in cents without going through a floating
+     * point number. Throws a {@link NumberFormatException} if the amount is not a number or has
+     * more than two decimals.
+     */
+    public static long parsePriceCents(String price) {
+        try {
+            return new BigDecimal(price).movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Invalid price: " + price);
+        }
+    }
+
+    /**
+     * Returns a copy of this game with the given quantity in stock.
+     */
+    public Game withQuantity(int quantity) {
+        return new Game(id, name, genre, platform, priceCents, quantity, supplierName, supplierPhone);
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Game)) {
+            return false;
+        }
+        Game other = (Game) o;
+        return id == other.id
+                && genre == other.genre
+                && platform == other.platform
+                && priceCents == other.priceCents
+                && quantity == other.quantity
+                && equals(name, other.name)
+                && equals(supplierName, other.supplierName)
+                && equals(supplierPhone, other.supplierPhone);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (id ^ (id >>> 32));
+        result = 31 * result + (name != null ? name.hashCode() : 0);
+        result = 31 * result + genre;
+        result = 31 * result + platform;
+        result = 31 * result + (int) (priceCents ^ (priceCents >>> 32));
+        result = 31 * result + quantity;
+        result = 31 * result + (supplierName != null ? supplierName.hashCode() : 0);
+        result = 31 * result + (supplierPhone != null ? supplierPhone.hashCode() : 0);
+        return result;
+    }
+}
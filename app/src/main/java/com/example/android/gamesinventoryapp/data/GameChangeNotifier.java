@@ -0,0 +1,185 @@
+package com.example.android.gamesinventoryapp.data;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.text.TextUtils;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameContract.LowStockEntry;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Coalesces the change notifications of {@link GameProvider}. Changes reported during a short
+ * window are sent as a single notification: the URI of the game if only one game changed, the
+ * {@link GameEntry#CONTENT_URI} with the {@link GameEntry#QUERY_PARAMETER_CHANGED_IDS} of all the
+ * changed games otherwise, or the plain {@link GameEntry#CONTENT_URI} when the changed games are
+ * unknown or too many. When all the changes of the window were sales and restocks, the notification
+ * carries the {@link GameEntry#QUERY_PARAMETER_STOCK_ONLY} flag. The changes of the low stock
+ * watchlist are sent to the {@link LowStockEntry#CONTENT_URI} in the same window.
+ */
+class GameChangeNotifier {
+
+    /**
+     * Number of milliseconds during which changes are collected before being notified
+     */
+    private static final long COALESCING_WINDOW_MILLIS = 50;
+
+    /**
+     * Maximum number of game ids carried by a notification
+     */
+    private static final int MAX_CHANGED_IDS = 100;
+
+    private final ContentResolver mContentResolver;
+
+    private final Handler mHandler;
+
+    /**
+     * Ids of the games changed since the last notification
+     */
+    private final Set<Long> mChangedIds = new HashSet<>();
+
+    /**
+     * Whether games of unknown ids changed since the last notification
+     */
+    private boolean mAllChanged;
+
+    /**
+     * Whether only the stock of the games changed since the last notification
+     */
+    private boolean mOnlyStockChanged = true;
+
+    /**
+     * Whether the low stock watchlist changed since the last notification
+     */
+    private boolean mLowStockChanged;
+
+    /**
+     * Whether a notification is already scheduled
+     */
+    private boolean mFlushScheduled;
+
+    /**
+     * Number of changes reported to this notifier
+     */
+    private long mChangesReported;
+
+    /**
+     * Number of notifications actually sent
+     */
+    private long mNotificationsSent;
+
+    private final Runnable mFlush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    GameChangeNotifier(ContentResolver contentResolver) {
+        mContentResolver = contentResolver;
+        HandlerThread thread = new HandlerThread("GameChangeNotifier", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        mHandler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Report that the data at the given URI changed: a single game URI, possibly only its stock as
+     * told by {@link GameEntry#isStockChange(Uri)}, or the whole games table.
+     */
+    synchronized void onChange(Uri uri) {
+        mChangesReported++;
+        if (GameEntry.isGameUri(uri)) {
+            mChangedIds.add(ContentUris.parseId(uri));
+        } else {
+            mAllChanged = true;
+        }
+        if (!GameEntry.isStockChange(uri)) {
+            mOnlyStockChanged = false;
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Report that the low stock watchlist changed.
+     */
+    synchronized void onLowStockChange() {
+        mChangesReported++;
+        mLowStockChanged = true;
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (!mFlushScheduled) {
+            mFlushScheduled = true;
+            mHandler.postDelayed(mFlush, COALESCING_WINDOW_MILLIS);
+        }
+    }
+
+    /**
+     * Send a single notification for all the games changed since the last one, and one for the
+     * watchlist if it changed.
+     */
+    private void flush() {
+        Uri uri;
+        Uri lowStockUri = null;
+        synchronized (this) {
+            mFlushScheduled = false;
+            if (mAllChanged || mChangedIds.size() > MAX_CHANGED_IDS) {
+                uri = GameEntry.CONTENT_URI;
+            } else if (mChangedIds.size() == 1) {
+                uri = ContentUris.withAppendedId(GameEntry.CONTENT_URI, mChangedIds.iterator().next());
+            } else if (!mChangedIds.isEmpty()) {
+                uri = GameEntry.CONTENT_URI.buildUpon()
+                        .appendQueryParameter(GameEntry.QUERY_PARAMETER_CHANGED_IDS, TextUtils.join(",", mChangedIds))
+                        .build();
+            } else {
+                uri = null;
+            }
+            if (uri != null && mOnlyStockChanged) {
+                uri = uri.buildUpon().appendQueryParameter(GameEntry.QUERY_PARAMETER_STOCK_ONLY, "1").build();
+            }
+            if (mLowStockChanged) {
+                lowStockUri = LowStockEntry.CONTENT_URI;
+            }
+            if (uri == null && lowStockUri == null) {
+                return;
+            }
+            mChangedIds.clear();
+            mAllChanged = false;
+            mOnlyStockChanged = true;
+            mLowStockChanged = false;
+            if (uri != null) {
+                mNotificationsSent++;
+            }
+            if (lowStockUri != null) {
+                mNotificationsSent++;
+            }
+        }
+        if (uri != null) {
+            mContentResolver.notifyChange(uri, null);
+        }
+        if (lowStockUri != null) {
+            mContentResolver.notifyChange(lowStockUri, null);
+        }
+    }
+
+    /**
+     * Returns the number of changes reported to this notifier.
+     */
+    synchronized long getChangesReported() {
+        return mChangesReported;
+    }
+
+    /**
+     * Returns the number of notifications sent by this notifier.
+     */
+    synchronized long getNotificationsSent() {
+        return mNotificationsSent;
+    }
+}
@@ -1,8 +1,13 @@
 package com.example.android.gamesinventoryapp.data;
 
 import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.net.Uri;
 import android.provider.BaseColumns;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import java.util.List;
 
 public final class GameContract {
 
@@ -22,6 +27,88 @@ public final class GameContract {
      */
     public static final String PATH_GAMES = "games";
 
+    /**
+     * Path for the full-text search over the games: com.example.android.gamesinventoryapp/games/search
+     */
+    public static final String PATH_SEARCH = "search";
+
+    /**
+     * Path for the inventory statistics: com.example.android.gamesinventoryapp/games/stats
+     */
+    public static final String PATH_STATS = "stats";
+
+    /**
+     * Path to sell copies of a game: com.example.android.gamesinventoryapp/games/#/sell
+     */
+    public static final String PATH_SELL = "sell";
+
+    /**
+     * Path to restock copies of a game: com.example.android.gamesinventoryapp/games/#/restock
+     */
+    public static final String PATH_RESTOCK = "restock";
+
+    /**
+     * Path to delete the games in chunks: com.example.android.gamesinventoryapp/games/purge
+     */
+    public static final String PATH_PURGE = "purge";
+
+    /**
+     * Path to import games: com.example.android.gamesinventoryapp/games/import
+     */
+    public static final String PATH_IMPORT = "import";
+
+    /**
+     * Path to export the games as CSV: com.example.android.gamesinventoryapp/games/export.csv
+     */
+    public static final String PATH_EXPORT_CSV = "export.csv";
+
+    /**
+     * Path to export the games as JSON Lines: com.example.android.gamesinventoryapp/games/export.jsonl
+     */
+    public static final String PATH_EXPORT_JSONL = "export.jsonl";
+
+    /**
+     * Path for the stock movements: com.example.android.gamesinventoryapp/games/movements
+     */
+    public static final String PATH_MOVEMENTS = "movements";
+
+    /**
+     * Path for the games below their reorder threshold: com.example.android.gamesinventoryapp/low_stock
+     */
+    public static final String PATH_LOW_STOCK = "low_stock";
+
+    /**
+     * Method of {@link android.content.ContentProvider#call} returning the change notification
+     * statistics of the provider, in the {@link #KEY_CHANGES_REPORTED} and {@link #KEY_NOTIFICATIONS_SENT} extras.
+     */
+    public static final String METHOD_GET_NOTIFICATION_STATS = "get_notification_stats";
+
+    /**
+     * Number of data changes reported by the provider since it was created.
+     * Type: long
+     */
+    public static final String KEY_CHANGES_REPORTED = "changes_reported";
+
+    /**
+     * Number of change notifications actually sent by the provider since it was created,
+     * the other changes were coalesced into those notifications.
+     * Type: long
+     */
+    public static final String KEY_NOTIFICATIONS_SENT = "notifications_sent";
+
+    /**
+     * Method of {@link android.content.ContentProvider#call} folding the pending stock movements
+     * into the quantities of the games right away, instead of waiting for the background compaction.
+     * The number of movements folded is returned in the {@link #KEY_MOVEMENTS_COMPACTED} extra.
+     */
+    public static final String METHOD_COMPACT_STOCK = "compact_stock";
+
+    /**
+     * Number of stock movements folded into the quantities of the games.
+     * Type: int
+     */
+    public static final String KEY_MOVEMENTS_COMPACTED = "movements_compacted";
+
     /**
      * Inner class that defines constant values for the games database table.
      * Each entry in the table represents a game.
@@ -33,6 +120,83 @@ public final class GameContract {
          */
         public static final Uri CONTENT_URI = Uri.withAppendedPath(BASE_CONTENT_URI, PATH_GAMES);
 
+        /**
+         * The content URI to search the games by name and supplier name.
+         * The search terms are given with the {@link #QUERY_PARAMETER_SEARCH} query parameter.
+         */
+        public static final Uri CONTENT_SEARCH_URI = Uri.withAppendedPath(CONTENT_URI, PATH_SEARCH);
+
+        /**
+         * The content URI to delete the games in chunks. See {@link #buildPurgeUri(int)}.
+         */
+        public static final Uri CONTENT_PURGE_URI = Uri.withAppendedPath(CONTENT_URI, PATH_PURGE);
+
+        /**
+         * The content URI to import games. Bulk inserting games to this URI inserts the new games and
+         * updates those that exist with the same name and platform, in a single transaction. The values
+         * of a game need the name, the platform and the supplier name; the other attributes are kept
+         * as they are, or set to their default for a new game, if they are missing. It returns the
+         * number of games inserted or changed, and the listeners are not notified: the caller must
+         * notify {@link #CONTENT_URI} once it is done importing.
+         */
+        public static final Uri CONTENT_IMPORT_URI = Uri.withAppendedPath(CONTENT_URI, PATH_IMPORT);
+
+        /**
+         * The content URI of the export of all the games as CSV, read with
+         * {@link ContentResolver#openInputStream(Uri)} or
+         * {@link ContentResolver#openTypedAssetFileDescriptor(Uri, String, android.os.Bundle)}.
+         * The games are streamed from the database as they are read, in the order of their ids; the
+         * games added after the export started are not part of it. See
+         * {@link GameExportWriter#FORMAT_CSV} for the format.
+         */
+        public static final Uri CONTENT_EXPORT_CSV_URI = Uri.withAppendedPath(CONTENT_URI, PATH_EXPORT_CSV);
+
+        /**
+         * The content URI of the export of all the games as JSON Lines, streamed like
+         * {@link #CONTENT_EXPORT_CSV_URI}. See {@link GameExportWriter#FORMAT_JSONL} for the format.
+         */
+        public static final Uri CONTENT_EXPORT_JSONL_URI = Uri.withAppendedPath(CONTENT_URI, PATH_EXPORT_JSONL);
+
+        /**
+         * Query parameter holding the search terms of a {@link #CONTENT_SEARCH_URI} query.
+         * Every term is matched as a prefix.
+         */
+        public static final String QUERY_PARAMETER_SEARCH = "q";
+
+        /**
+         * Query parameter of a {@link #CONTENT_URI} query: only return the games whose id is
+         * greater than the given one. Paged queries are always sorted by {@link #_ID}.
+         */
+        public static final String QUERY_PARAMETER_AFTER_ID = "after_id";
+
+        /**
+         * Query parameter of a {@link #CONTENT_URI} query: only return the games whose id is
+         * lower than or equal to the given one.
+         */
+        public static final String QUERY_PARAMETER_MAX_ID = "max_id";
+
+        /**
+         * Query parameter of a {@link #CONTENT_URI} query: maximum number of games to return.
+         */
+        public static final String QUERY_PARAMETER_LIMIT = "limit";
+
+        /**
+         * Query parameter of the sell and restock URIs: number of copies to sell or restock, 1 by default.
+         */
+        public static final String QUERY_PARAMETER_AMOUNT = "amount";
+
+        /**
+         * Query parameter of the change notifications about several games: comma separated ids
+         * of the changed games. See {@link #getChangedIds(Uri)}.
+         */
+        public static final String QUERY_PARAMETER_CHANGED_IDS = "changed_ids";
+
+        /**
+         * Query parameter of the change notifications: "1" when only the stock of the changed games
+         * changed, through sales and restocks. See {@link #isStockChange(Uri)}.
+         */
+        public static final String QUERY_PARAMETER_STOCK_ONLY = "stock_only";
+
         /**
          * The MIME type of the {@link #CONTENT_URI} for a list of games.
          */
@@ -43,11 +207,36 @@ public final class GameContract {
          */
         public static final String CONTENT_ITEM_TYPE = ContentResolver.CURSOR_ITEM_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_GAMES;
 
+        /**
+         * The MIME type of the {@link #CONTENT_EXPORT_CSV_URI}.
+         */
+        public static final String EXPORT_CSV_TYPE = "text/csv";
+
+        /**
+         * The MIME type of the {@link #CONTENT_EXPORT_JSONL_URI}.
+         */
+        public static final String EXPORT_JSONL_TYPE = "application/x-ndjson";
+
         /**
          * Name of database table for games
          */
         public static final String TABLE_NAME = "games";
 
+        /**
+         * Name of the full-text search table shadowing the games table
+         */
+        public static final String SEARCH_TABLE_NAME = "games_search";
+
+        /**
+         * Name of the view of the games with their current stock, read by the queries of the provider
+         */
+        public static final String STOCK_VIEW_NAME = "games_stock";
+
+        /**
+         * Name of the single row table telling the triggers that a batch of imported games is being written
+         */
+        public static final String IMPORT_TABLE_NAME = "games_import";
+
         /**
          * Unique ID number for the game (only for use in the database table).
          * Type: INTEGER
@@ -77,13 +266,15 @@ public final class GameContract {
         public static final String COLUMN_GAME_PLATFORM = "platform";
 
         /**
-         * Game price
+         * Game price, in cents: 19.99 is stored as 1999
          * Type: INTEGER
          */
         public static final String COLUMN_GAME_PRICE = "price";
 
         /**
-         * Available quantity for a game
+         * Available quantity for a game. In the games table, it is the snapshot of the stock when the
+         * stock movements were last compacted; the games read from the provider have their current
+         * stock, the snapshot plus the pending {@link StockMovementEntry stock movements}.
          * Type: INTEGER
          */
         public static final String COLUMN_QUANTITY = "quantity";
@@ -100,6 +291,57 @@ public final class GameContract {
          */
         public static final String COLUMN_SUPPLIER_PHONE = "supplier_phone";
 
+        /**
+         * Stock below which the game needs to be reordered, 0 if it isn't watched. The games whose
+         * current stock is below their threshold are listed by the {@link LowStockEntry#CONTENT_URI}.
+         * Type: INTEGER
+         */
+        public static final String COLUMN_REORDER_THRESHOLD = "reorder_threshold";
+
+        /**
+         * Column of the {@link #IMPORT_TABLE_NAME} table: 1 while the provider writes a batch of imported
+         * games, which it adds to the search table and the statistics once for the whole batch, 0 otherwise.
+         * It is only set inside the transaction of the batch, so other connections never see it set.
+         * Type: INTEGER
+         */
+        public static final String COLUMN_IMPORTING = "importing";
+
+        /**
+         * Index on the genre and the platform of the games
+         */
+        public static final String INDEX_GENRE_PLATFORM = "games_genre_platform_idx";
+
+        /**
+         * Index on the genre of the games
+         */
+        public static final String INDEX_GENRE = "games_genre_idx";
+
+        /**
+         * Index on the platform of the games
+         */
+        public static final String INDEX_PLATFORM = "games_platform_idx";
+
+        /**
+         * Index on the supplier name of the games
+         */
+        public static final String INDEX_SUPPLIER = "games_supplier_idx";
+
+        /**
+         * Index on the name of the games
+         */
+        public static final String INDEX_NAME = "games_name_idx";
+
+        /**
+         * Partial index on the games that are out of stock, dropped since the stock is kept as
+         * stock movements
+         */
+        public static final String INDEX_OUT_OF_STOCK = "games_out_of_stock_idx";
+
+        /**
+         * Partial index on the games with a reorder threshold, watched for low stock
+         */
+        public static final String INDEX_WATCHED = "games_watched_idx";
+
         /**
          * Possible values for the genre of the game
          */
@@ -119,25 +361,350 @@ public final class GameContract {
         public static final int PLATFORM_PS3 = 3;
         public static final int PLATFORM_PS4 = 4;
 
+        /**
+         * Returns the URI searching the games for the given terms
+         */
+        public static Uri buildSearchUri(String terms) {
+            return CONTENT_SEARCH_URI.buildUpon().appendQueryParameter(QUERY_PARAMETER_SEARCH, terms).build();
+        }
+
+        /**
+         * Returns the URI of the page of at most limit games following the game with the given id
+         */
+        public static Uri buildPageUri(long afterId, int limit) {
+            return CONTENT_URI.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_AFTER_ID, String.valueOf(afterId))
+                    .appendQueryParameter(QUERY_PARAMETER_LIMIT, String.valueOf(limit))
+                    .build();
+        }
+
+        /**
+         * Returns the URI of the games whose id is in the range (afterId, maxId]
+         */
+        public static Uri buildRangeUri(long afterId, long maxId) {
+            return CONTENT_URI.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_AFTER_ID, String.valueOf(afterId))
+                    .appendQueryParameter(QUERY_PARAMETER_MAX_ID, String.valueOf(maxId))
+                    .build();
+        }
+
+        /**
+         * Returns the URI selling the given amount of copies of a game. Updating this URI decreases
+         * the stock in a single statement, and only if enough copies are available: the update
+         * returns 1 if the copies were sold and 0 otherwise.
+         */
+        public static Uri buildSellUri(long id, int amount) {
+            return ContentUris.withAppendedId(CONTENT_URI, id).buildUpon()
+                    .appendPath(PATH_SELL)
+                    .appendQueryParameter(QUERY_PARAMETER_AMOUNT, String.valueOf(amount))
+                    .build();
+        }
+
+        /**
+         * Returns the URI restocking the given amount of copies of a game. Updating this URI increases
+         * the stock in a single statement and returns the number of games updated.
+         */
+        public static Uri buildRestockUri(long id, int amount) {
+            return ContentUris.withAppendedId(CONTENT_URI, id).buildUpon()
+                    .appendPath(PATH_RESTOCK)
+                    .appendQueryParameter(QUERY_PARAMETER_AMOUNT, String.valueOf(amount))
+                    .build();
+        }
+
+        /**
+         * Returns the URI deleting a chunk of at most limit games, those with the lowest ids. Each chunk
+         * is deleted in its own short transaction, and the listeners are not notified of the deleted
+         * games: the caller must notify {@link #CONTENT_URI} once it is done purging.
+         */
+        public static Uri buildPurgeUri(int limit) {
+            return CONTENT_PURGE_URI.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_LIMIT, String.valueOf(limit))
+                    .build();
+        }
+
+        /**
+         * Returns the change notification URI of a sale or restock of the game of the given id.
+         */
+        public static Uri buildStockChangeUri(long id) {
+            return ContentUris.withAppendedId(CONTENT_URI, id).buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_STOCK_ONLY, "1")
+                    .build();
+        }
+
+        /**
+         * Returns whether or not the given change notification URI only reports changes of the stock
+         * of the games: their other attributes, and which games exist, stayed the same.
+         */
+        public static boolean isStockChange(Uri uri) {
+            return "1".equals(uri.getQueryParameter(QUERY_PARAMETER_STOCK_ONLY));
+        }
+
+        /**
+         * Returns whether or not the given URI is the content URI of a single game
+         */
+        public static boolean isGameUri(Uri uri) {
+            List<String> segments = uri.getPathSegments();
+            return segments.size() == 2 && PATH_GAMES.equals(segments.get(0))
+                    && TextUtils.isDigitsOnly(segments.get(1));
+        }
+
+        /**
+         * Returns the ids of the games changed according to the given change notification URI,
+         * or null if the changed games are unknown and the whole list must be considered changed.
+         * The URIs other than the list and the single games don't change any game.
+         */
+        @Nullable
+        public static long[] getChangedIds(Uri uri) {
+            if (isGameUri(uri)) {
+                return new long[]{ContentUris.parseId(uri)};
+            }
+            List<String> segments = uri.getPathSegments();
+            if (segments.size() != 1 || !PATH_GAMES.equals(segments.get(0))) {
+                return new long[0];
+            }
+            String changedIds = uri.getQueryParameter(QUERY_PARAMETER_CHANGED_IDS);
+            if (TextUtils.isEmpty(changedIds)) {
+                return null;
+            }
+            String[] ids = TextUtils.split(changedIds, ",");
+            long[] result = new long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                result[i] = Long.parseLong(ids[i]);
+            }
+            return result;
+        }
+
         /**
          * Returns whether or not the given game genre is one of those allowed
          */
         public static boolean isValidGenre(int genre) {
-            if (genre == GENRE_UNKNOWN || genre == GENRE_ACTION || genre == GENRE_STRATEGY || genre == GENRE_RPG || genre == GENRE_FPS || genre == GENRE_SPORT) {
-                return true;
-            }
-            return false;
+            return GameValidator.isValidGenre(genre);
         }
 
         /**
          * Returns whether or not the given platform is one of those allowed
          */
         public static boolean isValidPlatform(int platform) {
-            if (platform == PLATFORM_PC || platform == PLATFORM_XBOX_ONE || platform == PLATFORM_XBOX_360 || platform == PLATFORM_PS3 || platform == PLATFORM_PS4) {
-                return true;
-            }
-            return false;
+            return GameValidator.isValidPlatform(platform);
+        }
+
+    }
+
+    /**
+     * Inner class that defines constant values for the inventory statistics table.
+     * Each entry in the table aggregates the games of one group of a dimension, for example the
+     * RPG games of the {@link #DIMENSION_GENRE} dimension. The table is maintained by triggers
+     * on the games table, so reading it costs the number of groups, not the number of games.
+     */
+    public static final class StatsEntry {
+
+        /**
+         * The content URI to access the inventory statistics in the provider
+         */
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(GameEntry.CONTENT_URI, PATH_STATS);
+
+        /**
+         * The MIME type of the {@link #CONTENT_URI} for the inventory statistics.
+         */
+        public static final String CONTENT_LIST_TYPE = ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_GAMES + "/" + PATH_STATS;
+
+        /**
+         * Name of database table for the inventory statistics
+         */
+        public static final String TABLE_NAME = "game_stats";
+
+        /**
+         * Dimension of the group.
+         * Type: TEXT
+         * <p>
+         * The only possible values are: {@link #DIMENSION_TOTAL}, {@link #DIMENSION_GENRE}, {@link #DIMENSION_PLATFORM}, {@link #DIMENSION_SUPPLIER}, {@link #DIMENSION_GENRE_PLATFORM}
+         */
+        public static final String COLUMN_DIMENSION = "dimension";
+
+        /**
+         * Key of the group in its dimension: the genre, the platform or the supplier name of its games,
+         * the key built by {@link #buildGenrePlatformKey(int, int)} for the {@link #DIMENSION_GENRE_PLATFORM}
+         * dimension, and always 0 for the {@link #DIMENSION_TOTAL} dimension.
+         * Type: INTEGER or TEXT
+         */
+        public static final String COLUMN_GROUP_KEY = "group_key";
+
+        /**
+         * Number of games in the group.
+         * Type: INTEGER
+         */
+        public static final String COLUMN_GAME_COUNT = "game_count";
+
+        /**
+         * Total quantity in stock of the games of the group.
+         * Type: INTEGER
+         */
+        public static final String COLUMN_TOTAL_STOCK = "total_stock";
+
+        /**
+         * Total value (price x quantity) of the stock of the games of the group, in cents.
+         * Type: INTEGER
+         */
+        public static final String COLUMN_TOTAL_VALUE = "total_value";
+
+        /**
+         * Possible values for the dimension of a group
+         */
+        public static final String DIMENSION_TOTAL = "total";
+        public static final String DIMENSION_GENRE = "genre";
+        public static final String DIMENSION_PLATFORM = "platform";
+        public static final String DIMENSION_SUPPLIER = "supplier";
+        public static final String DIMENSION_GENRE_PLATFORM = "genre_platform";
+
+        /**
+         * Factor of the genre in the group keys of the {@link #DIMENSION_GENRE_PLATFORM} dimension
+         */
+        public static final int GENRE_PLATFORM_KEY_FACTOR = 100;
+
+        /**
+         * Returns the group key of the games of the given genre and platform in the {@link #DIMENSION_GENRE_PLATFORM} dimension
+         */
+        public static long buildGenrePlatformKey(int genre, int platform) {
+            return (long) genre * GENRE_PLATFORM_KEY_FACTOR + platform;
+        }
+
+        /**
+         * Returns the genre of a group key of the {@link #DIMENSION_GENRE_PLATFORM} dimension
+         */
+        public static int getGenre(long genrePlatformKey) {
+            return (int) (genrePlatformKey / GENRE_PLATFORM_KEY_FACTOR);
+        }
+
+        /**
+         * Returns the platform of a group key of the {@link #DIMENSION_GENRE_PLATFORM} dimension
+         */
+        public static int getPlatform(long genrePlatformKey) {
+            return (int) (genrePlatformKey % GENRE_PLATFORM_KEY_FACTOR);
         }
+    }
 
+    /**
+     * Inner class that defines constant values for the stock movements table. The table is an
+     * append-only ledger: every sale, restock and adjustment of the stock of a game adds an entry,
+     * so that changing the stock doesn't rewrite the game. The entries newer than the last
+     * compaction are pending: they are added to the quantity of the game when it is read, until a
+     * background compaction folds them into the quantity. The entries stay as the record of the
+     * stock changes.
+     */
+    public static final class StockMovementEntry implements BaseColumns {
+
+        /**
+         * The content URI to read the stock movements in the provider, most recent first
+         */
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(GameEntry.CONTENT_URI, PATH_MOVEMENTS);
+
+        /**
+         * The MIME type of the {@link #CONTENT_URI} for the stock movements.
+         */
+        public static final String CONTENT_LIST_TYPE = ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_GAMES + "/" + PATH_MOVEMENTS;
+
+        /**
+         * Name of database table for the stock movements
+         */
+        public static final String TABLE_NAME = "stock_movements";
+
+        /**
+         * Name of the single row table holding the id of the last compacted movement
+         */
+        public static final String COMPACTION_TABLE_NAME = "stock_compaction";
+
+        /**
+         * Id of the game whose stock changed.
+         * Type: INTEGER
+         */
+        public static final String COLUMN_GAME_ID = "game_id";
+
+        /**
+         * Kind of the movement.
+         * Type: INTEGER
+         * <p>
+         * The only possible values are: {@link #KIND_SALE}, {@link #KIND_RESTOCK}, {@link #KIND_ADJUSTMENT}
+         */
+        public static final String COLUMN_KIND = "kind";
+
+        /**
+         * Change of the stock, negative for a sale.
+         * Type: INTEGER
+         */
+        public static final String COLUMN_DELTA = "delta";
+
+        /**
+         * Time of the movement, in milliseconds since the epoch.
+         * Type: INTEGER
+         */
+        public static final String COLUMN_CREATED_AT = "created_at";
+
+        /**
+         * Column of the {@link #COMPACTION_TABLE_NAME} table: id of the last movement folded into the quantities.
+         * Type: INTEGER
+         */
+        public static final String COLUMN_LAST_MOVEMENT_ID = "last_movement_id";
+
+        /**
+         * Index on the game of the movements
+         */
+        public static final String INDEX_GAME = "stock_movements_game_idx";
+
+        /**
+         * Possible values for the kind of movement: copies sold, copies received, and the stock set
+         * to a new value, by the editor or an import
+         */
+        public static final int KIND_SALE = 0;
+        public static final int KIND_RESTOCK = 1;
+        public static final int KIND_ADJUSTMENT = 2;
+    }
+
+    /**
+     * Inner class that defines constant values for the low stock watchlist: the games whose current
+     * stock is below their {@link GameEntry#COLUMN_REORDER_THRESHOLD reorder threshold}. The list is
+     * a table kept up to date by triggers as the stock moves, so reading it doesn't scan the games.
+     * The {@link #CONTENT_URI} is notified when a game enters or leaves the list, or when the stock
+     * of a listed game changes, but not for the changes of the other games. It isn't below the
+     * {@link GameEntry#CONTENT_URI}, so that its notifications don't reach the observers of the games.
+     */
+    public static final class LowStockEntry implements BaseColumns {
+
+        /**
+         * The content URI to read the watchlist in the provider. The rows have the columns of the
+         * games, and are sorted by increasing stock unless a sort order is given.
+         */
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(BASE_CONTENT_URI, PATH_LOW_STOCK);
+
+        /**
+         * The MIME type of the {@link #CONTENT_URI} for the watchlist.
+         */
+        public static final String CONTENT_LIST_TYPE = ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_LOW_STOCK;
+
+        /**
+         * Name of the table of the listed games, with their current stock and threshold. Its ids
+         * are the ids of the games.
+         */
+        public static final String TABLE_NAME = "low_stock";
+
+        /**
+         * Name of the view of the listed games with all their columns, read by the provider
+         */
+        public static final String VIEW_NAME = "games_low_stock";
+
+        /**
+         * Name of the single row table counting the changes of the watchlist
+         */
+        public static final String CHANGES_TABLE_NAME = "low_stock_changes";
+
+        /**
+         * Column of the {@link #CHANGES_TABLE_NAME} table: number of rows of the watchlist written so far.
+         * Type: INTEGER
+         */
+        public static final String COLUMN_CHANGE_COUNT = "change_count";
+
+        /**
+         * Index on the stock of the listed games, their default order
+         */
+        public static final String INDEX_QUANTITY = "low_stock_quantity_idx";
     }
 }
@@ -0,0 +1,410 @@
+package com.example.android.gamesinventoryapp.data;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Streaming parser of a CSV list of games, such as a supplier price list. The file is read one
+ * record at a time through a fixed buffer, so its size doesn't matter, and every row is validated
+ * with the rules of {@link GameValidator}. Like {@link GameSchema}, this class doesn't depend on the
+ * Android framework.
+ * <p>
+ * The first record is the header. Its column names are those of {@link GameEntry}, matched without
+ * case, spaces or underscores ("Supplier Name" is {@link GameEntry#COLUMN_SUPPLIER_NAME}); the
+ * other columns are ignored. The name, platform and supplier name columns are required. The genre
+ * and the platform are either their {@link GameEntry} value or their name ("Xbox One"), the price
+ * is an amount such as "19.99". Fields follow RFC 4180: they can be quoted, with doubled quotes
+ * inside, and span several lines.
+ */
+public final class GameCsvParser implements Closeable {
+
+    /** Columns that every file must have, the name and the platform being the key of a game */
+    private static final String[] REQUIRED_COLUMNS = {
+            GameEntry.COLUMN_GAME_NAME, GameEntry.COLUMN_GAME_PLATFORM, GameEntry.COLUMN_SUPPLIER_NAME};
+
+    /** Columns read from the file, in the order of {@link #mColumnFields} */
+    private static final String[] COLUMNS = {
+            GameEntry.COLUMN_GAME_NAME,
+            GameEntry.COLUMN_GAME_GENRE,
+            GameEntry.COLUMN_GAME_PLATFORM,
+            GameEntry.COLUMN_GAME_PRICE,
+            GameEntry.COLUMN_QUANTITY,
+            GameEntry.COLUMN_SUPPLIER_NAME,
+            GameEntry.COLUMN_SUPPLIER_PHONE};
+
+    private static final int NAME = 0;
+    private static final int GENRE = 1;
+    private static final int PLATFORM = 2;
+    private static final int PRICE = 3;
+    private static final int QUANTITY = 4;
+    private static final int SUPPLIER_NAME = 5;
+    private static final int SUPPLIER_PHONE = 6;
+
+    /** Names of the genres, indexed by genre, without case or spaces */
+    private static final String[] GENRE_NAMES = {"unknown", "action", "strategy", "rpg", "fps", "sport"};
+
+    /** Names of the platforms, indexed by platform, without case or spaces */
+    private static final String[] PLATFORM_NAMES = {"pc", "xboxone", "xbox360", "ps3", "ps4"};
+
+    /** Maximum number of characters of a record: a longer record is most likely an unclosed quote */
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader mReader;
+
+    private final char[] mBuffer = new char[BUFFER_SIZE];
+    private int mBufferPosition;
+    private int mBufferLength;
+
+    /** Fields of the current record, reused from one record to the next */
+    private String[] mFields = new String[16];
+    private int mFieldCount;
+    private final StringBuilder mField = new StringBuilder();
+
+    /** Index of the field of each of the {@link #COLUMNS} in a record, -1 if the file doesn't have it */
+    private final int[] mColumnFields = new int[COLUMNS.length];
+
+    /** Line of the file where the next record starts, and where the current row started */
+    private int mNextLineNumber = 1;
+    private int mLineNumber;
+
+    /** Whether each of the {@link #COLUMNS} has a value in the current row */
+    private final boolean[] mHasValue = new boolean[COLUMNS.length];
+
+    /** Attributes of the current row, when it is valid */
+    private String mName;
+    private int mGenre;
+    private int mPlatform;
+    private long mPriceCents;
+    private int mQuantity;
+    private String mSupplierName;
+    private String mSupplierPhone;
+
+    /** Why the current row is not valid, or null if it is */
+    private String mError;
+
+    /**
+     * Constructs a parser of the given file, and read its header.
+     *
+     * @throws IOException if the file can't be read, or if its header lacks a required column
+     */
+    public GameCsvParser(Reader reader) throws IOException {
+        mReader = reader;
+
+        // Skip the byte order mark written by some spreadsheets
+        if (fill() && mBuffer[0] == '\uFEFF') {
+            mBufferPosition++;
+        }
+
+        if (!readRecord()) {
+            throw new IOException("The file is empty");
+        }
+        Arrays.fill(mColumnFields, -1);
+        for (int field = 0; field < mFieldCount; field++) {
+            String header = normalize(mFields[field]);
+            for (int column = 0; column < COLUMNS.length; column++) {
+                if (mColumnFields[column] == -1 && header.equals(normalize(COLUMNS[column]))) {
+                    mColumnFields[column] = field;
+                }
+            }
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!hasColumn(column)) {
+                throw new IOException("The file has no " + column + " column");
+            }
+        }
+    }
+
+    /**
+     * Returns the given name in lower case, without spaces, underscores or dashes.
+     */
+    private static String normalize(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != ' ' && c != '_' && c != '-') {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.US);
+    }
+
+    /**
+     * Returns whether the file has the given column of {@link GameEntry}.
+     */
+    public boolean hasColumn(String column) {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (COLUMNS[i].equals(column)) {
+                return mColumnFields[i] != -1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the next row of the file, skipping the empty lines. The row is either valid, and its
+     * attributes can be read, or not valid, and {@link #getError()} tells why.
+     *
+     * @return false once the end of the file is reached
+     * @throws IOException if the file can't be read or is not a CSV file
+     */
+    public boolean next() throws IOException {
+        do {
+            if (!readRecord()) {
+                return false;
+            }
+        } while (mFieldCount == 1 && mFields[0].isEmpty());
+
+        try {
+            mError = null;
+            parseRow();
+        } catch (IllegalArgumentException e) {
+            mError = e.getMessage();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the field of the given column in the current record, or null if the column is
+     * missing from the file or if the field is empty.
+     */
+    private String getField(int column) {
+        int field = mColumnFields[column];
+        String value = field == -1 || field >= mFieldCount ? null : mFields[field].trim();
+        if (value != null && value.isEmpty()) {
+            value = null;
+        }
+        mHasValue[column] = value != null;
+        return value;
+    }
+
+    /**
+     * Returns whether the current row has a value for the given column of {@link GameEntry}.
+     * The attributes without a value keep the value they had, or their default value for a new game.
+     */
+    public boolean hasValue(String column) {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (COLUMNS[i].equals(column)) {
+                return mHasValue[i];
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parse and validate the attributes of the current record,
+     * throw an {@link IllegalArgumentException} if one of them is not valid.
+     */
+    private void parseRow() {
+        mName = getField(NAME);
+        GameValidator.checkName(mName);
+        mPlatform = parseCode(getField(PLATFORM), PLATFORM_NAMES);
+        GameValidator.checkPlatform(mPlatform);
+        mSupplierName = getField(SUPPLIER_NAME);
+        GameValidator.checkSupplierName(mSupplierName);
+
+        String genre = getField(GENRE);
+        mGenre = genre == null ? GameEntry.GENRE_UNKNOWN : parseCode(genre, GENRE_NAMES);
+        GameValidator.checkGenre(mGenre);
+
+        String price = getField(PRICE);
+        try {
+            mPriceCents = price == null ? 0 : Game.parsePriceCents(price);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Game requires a valid price");
+        }
+        GameValidator.checkPrice(mPriceCents);
+
+        String quantity = getField(QUANTITY);
+        try {
+            mQuantity = quantity == null ? 0 : Integer.parseInt(quantity);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Game requires a valid quantity");
+        }
+        GameValidator.checkQuantity(mQuantity);
+
+        mSupplierPhone = getField(SUPPLIER_PHONE);
+    }
+
+    /**
+     * Returns the code of the given genre or platform field, which is either the code itself or
+     * one of the given names, or -1 if it is neither.
+     */
+    private static int parseCode(String field, String[] names) {
+        if (field == null) {
+            return -1;
+        }
+        if (Character.isDigit(field.charAt(0))) {
+            try {
+                return Integer.parseInt(field);
+            } catch (NumberFormatException e) {
+                // Maybe a name starting with a digit
+            }
+        }
+        String name = normalize(field);
+        for (int code = 0; code < names.length; code++) {
+            if (names[code].equals(name)) {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the line of the file where the current row starts, the header being line 1.
+     */
+    public int getLineNumber() {
+        return mLineNumber;
+    }
+
+    /**
+     * Returns why the current row is not valid, or null if it is valid.
+     */
+    public String getError() {
+        return mError;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public int getGenre() {
+        return mGenre;
+    }
+
+    public int getPlatform() {
+        return mPlatform;
+    }
+
+    /**
+     * Returns the price of the current row in cents
+     */
+    public long getPriceCents() {
+        return mPriceCents;
+    }
+
+    public int getQuantity() {
+        return mQuantity;
+    }
+
+    public String getSupplierName() {
+        return mSupplierName;
+    }
+
+    public String getSupplierPhone() {
+        return mSupplierPhone;
+    }
+
+    /**
+     * Fill the buffer with the next characters of the file.
+     *
+     * @return false at the end of the file
+     */
+    private boolean fill() throws IOException {
+        int length = mReader.read(mBuffer, 0, mBuffer.length);
+        if (length <= 0) {
+            mBufferLength = 0;
+            mBufferPosition = 0;
+            return false;
+        }
+        mBufferLength = length;
+        mBufferPosition = 0;
+        return true;
+    }
+
+    /**
+     * Returns the next character of the file, or -1 at its end.
+     */
+    private int read() throws IOException {
+        if (mBufferPosition == mBufferLength && !fill()) {
+            return -1;
+        }
+        return mBuffer[mBufferPosition++];
+    }
+
+    /**
+     * Returns the next character of the file without consuming it, or -1 at its end.
+     */
+    private int peek() throws IOException {
+        if (mBufferPosition == mBufferLength && !fill()) {
+            return -1;
+        }
+        return mBuffer[mBufferPosition];
+    }
+
+    private void endField() {
+        if (mFieldCount == mFields.length) {
+            mFields = Arrays.copyOf(mFields, mFieldCount * 2);
+        }
+        mFields[mFieldCount++] = mField.toString();
+        mField.setLength(0);
+    }
+
+    /**
+     * Read the fields of the next record into {@link #mFields}.
+     *
+     * @return false if the end of the file was reached before any character
+     */
+    private boolean readRecord() throws IOException {
+        mFieldCount = 0;
+        mField.setLength(0);
+        mLineNumber = mNextLineNumber;
+
+        int c = read();
+        if (c == -1) {
+            return false;
+        }
+        boolean quoted = false;
+        int recordLength = 0;
+        while (true) {
+            if (++recordLength > MAX_RECORD_LENGTH) {
+                throw new IOException("Line " + mLineNumber + " is too long, a quote may be missing");
+            }
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Line " + mLineNumber + " has an unclosed quote");
+                } else if (c == '"') {
+                    if (peek() == '"') {
+                        // An escaped quote
+                        mField.append('"');
+                        read();
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        mNextLineNumber++;
+                    }
+                    mField.append((char) c);
+                }
+            } else if (c == ',') {
+                endField();
+            } else if (c == '"' && mField.length() == 0) {
+                quoted = true;
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                if (c != -1) {
+                    mNextLineNumber++;
+                }
+                endField();
+                return true;
+            } else {
+                mField.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.android.gamesinventoryapp.data;
+
+import android.database.AbstractWindowedCursor;
+import android.database.CrossProcessCursorWrapper;
+import android.database.Cursor;
+import android.database.CursorWindow;
+import android.database.CursorWrapper;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps the rows of a games cursor to {@link Game} objects. The column indexes are resolved once,
+ * when the mapper is created, and the numbers are read as primitives.
+ * <p>
+ * The {@code _ID} column is required; the other columns are optional, and the attributes of the
+ * columns missing from the cursor keep their default value.
+ */
+public final class GameCursorMapper {
+
+    /** Maximum number of games mapped at once by {@link #mapAll(Cursor)} */
+    private static final int BATCH_SIZE = 128;
+
+    private final int mIdColumnIndex;
+    private final int mNameColumnIndex;
+    private final int mGenreColumnIndex;
+    private final int mPlatformColumnIndex;
+    private final int mPriceColumnIndex;
+    private final int mQuantityColumnIndex;
+    private final int mSupplierNameColumnIndex;
+    private final int mSupplierPhoneColumnIndex;
+
+    /**
+     * Constructs a mapper for the columns of the given cursor, and of any cursor with the same columns.
+     */
+    public GameCursorMapper(Cursor cursor) {
+        mIdColumnIndex = cursor.getColumnIndexOrThrow(GameEntry._ID);
+        mNameColumnIndex = cursor.getColumnIndex(GameEntry.COLUMN_GAME_NAME);
+        mGenreColumnIndex = cursor.getColumnIndex(GameEntry.COLUMN_GAME_GENRE);
+        mPlatformColumnIndex = cursor.getColumnIndex(GameEntry.COLUMN_GAME_PLATFORM);
+        mPriceColumnIndex = cursor.getColumnIndex(GameEntry.COLUMN_GAME_PRICE);
+        mQuantityColumnIndex = cursor.getColumnIndex(GameEntry.COLUMN_QUANTITY);
+        mSupplierNameColumnIndex = cursor.getColumnIndex(GameEntry.COLUMN_SUPPLIER_NAME);
+        mSupplierPhoneColumnIndex = cursor.getColumnIndex(GameEntry.COLUMN_SUPPLIER_PHONE);
+    }
+
+    /**
+     * Read all the rows of the given cursor, a window at a time.
+     */
+    public static List<Game> mapAll(Cursor cursor) {
+        GameCursorMapper mapper = new GameCursorMapper(cursor);
+        int count = cursor.getCount();
+        List<Game> games = new ArrayList<>(count);
+        Game[] batch = new Game[Math.max(1, Math.min(count, BATCH_SIZE))];
+
+        int position = 0;
+        int mapped;
+        while ((mapped = mapper.mapWindow(cursor, position, batch)) > 0) {
+            for (int i = 0; i < mapped; i++) {
+                games.add(batch[i]);
+                batch[i] = null;
+            }
+            position += mapped;
+        }
+        return games;
+    }
+
+    /**
+     * Returns the game at the current position of the cursor.
+     */
+    public Game map(Cursor cursor) {
+        return new Game(
+                cursor.getLong(mIdColumnIndex),
+                mNameColumnIndex == -1 ? null : cursor.getString(mNameColumnIndex),
+                mGenreColumnIndex == -1 ? GameEntry.GENRE_UNKNOWN : cursor.getInt(mGenreColumnIndex),
+                mPlatformColumnIndex == -1 ? GameEntry.PLATFORM_PC : cursor.getInt(mPlatformColumnIndex),
+                mPriceColumnIndex == -1 ? 0 : cursor.getLong(mPriceColumnIndex),
+                mQuantityColumnIndex == -1 ? 0 : cursor.getInt(mQuantityColumnIndex),
+                mSupplierNameColumnIndex == -1 ? null : cursor.getString(mSupplierNameColumnIndex),
+                mSupplierPhoneColumnIndex == -1 ? null : cursor.getString(mSupplierPhoneColumnIndex));
+    }
+
+    /**
+     * Returns the game at the given row of the window, given as a position in the cursor.
+     */
+    private Game map(CursorWindow window, int row) {
+        return new Game(
+                window.getLong(row, mIdColumnIndex),
+                mNameColumnIndex == -1 ? null : window.getString(row, mNameColumnIndex),
+                mGenreColumnIndex == -1 ? GameEntry.GENRE_UNKNOWN : window.getInt(row, mGenreColumnIndex),
+                mPlatformColumnIndex == -1 ? GameEntry.PLATFORM_PC : window.getInt(row, mPlatformColumnIndex),
+                mPriceColumnIndex == -1 ? 0 : window.getLong(row, mPriceColumnIndex),
+                mQuantityColumnIndex == -1 ? 0 : window.getInt(row, mQuantityColumnIndex),
+                mSupplierNameColumnIndex == -1 ? null : window.getString(row, mSupplierNameColumnIndex),
+                mSupplierPhoneColumnIndex == -1 ? null : window.getString(row, mSupplierPhoneColumnIndex));
+    }
+
+    /**
+     * Map the rows of the cursor from the given position into the given array, which can be reused
+     * from one call to the next. The rows are mapped until the array is full, or until the end of
+     * the cursor window holding the position: the values are then read from the window directly,
+     * without a call to the cursor for each one. The cursors returned by a content resolver wrap the
+     * windowed cursor, which is read through the wrapper. The position of the cursor afterwards is
+     * unspecified.
+     *
+     * @return The number of games mapped, 0 if the position is after the last row
+     */
+    public int mapWindow(Cursor cursor, int position, Game[] games) {
+        if (games.length == 0 || !cursor.moveToPosition(position)) {
+            return 0;
+        }
+
+        // Moving to the position filled the window holding it
+        Cursor windowedCursor = unwrap(cursor);
+        if (windowedCursor instanceof AbstractWindowedCursor) {
+            CursorWindow window = ((AbstractWindowedCursor) windowedCursor).getWindow();
+            if (window != null) {
+                int end = Math.min(window.getStartPosition() + window.getNumRows(), position + games.length);
+                int count = 0;
+                for (int row = position; row < end; row++) {
+                    games[count++] = map(window, row);
+                }
+                return count;
+            }
+        }
+
+        // Other cursors are read one row at a time
+        int count = 0;
+        do {
+            games[count++] = map(cursor);
+        } while (count < games.length && cursor.moveToNext());
+        return count;
+    }
+
+    /**
+     * Returns the cursor wrapped by the given cursor if it is a {@link CrossProcessCursorWrapper},
+     * like the cursors returned by a content resolver, which forward every call unchanged. Other
+     * wrappers may change the rows, so they aren't looked through.
+     */
+    private static Cursor unwrap(Cursor cursor) {
+        while (cursor instanceof CrossProcessCursorWrapper) {
+            cursor = ((CursorWrapper) cursor).getWrappedCursor();
+        }
+        return cursor;
+    }
+}
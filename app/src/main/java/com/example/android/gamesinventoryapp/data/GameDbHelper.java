@@ -1,11 +1,10 @@
 package com.example.android.gamesinventoryapp.data;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
-import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
-
 public class GameDbHelper extends SQLiteOpenHelper {
 
     /**
@@ -16,7 +15,12 @@ public class GameDbHelper extends SQLiteOpenHelper {
     /**
      * Database version.
      */
-    private static final int DATABASE_VERSION = 1;
+    static final int DATABASE_VERSION = GameSchema.DATABASE_VERSION;
+
+    /**
+     * Number of pages in the write-ahead log that triggers an automatic checkpoint
+     */
+    private static final int WAL_AUTOCHECKPOINT_PAGES = 1000;
 
     /**
      * Constructs a new instance of {@link GameDbHelper}.
@@ -24,35 +28,81 @@ public class GameDbHelper extends SQLiteOpenHelper {
      * @param context of the app
      */
     public GameDbHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DATABASE_NAME);
+    }
+
+    /**
+     * Constructs a new instance of {@link GameDbHelper} backed by the given database file.
+     *
+     * @param context of the app
+     * @param name    of the database file, or null for an in-memory database
+     */
+    GameDbHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+
+        // Use write-ahead logging: readers work on their own pooled connections and are not
+        // blocked by the writer, and a commit only appends to the log instead of rewriting pages.
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * This is called when the database connection is being configured, before it is created or upgraded.
+     */
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+
+        // With write-ahead logging the database stays consistent with NORMAL synchronous mode,
+        // only the last commits can be lost on power failure. This saves an fsync per commit.
+        db.execSQL("PRAGMA synchronous = NORMAL");
+
+        // Checkpoint the log back into the database once it reaches this many pages, which keeps
+        // the log (and the time readers spend looking into it) small.
+        Cursor cursor = db.rawQuery("PRAGMA wal_autocheckpoint = " + WAL_AUTOCHECKPOINT_PAGES, null);
+        try {
+            cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
     }
 
     /**
      * This is called when the database is created for the first time.
+     * The initial schema is created and then upgraded through every migration step,
+     * so that new and upgraded databases always end up with the same schema.
      */
     @Override
     public void onCreate(SQLiteDatabase db) {
-        // Create a String that contains the SQL statement to create the games table
-        String SQL_CREATE_GAMES_TABLE = "CREATE TABLE " + GameEntry.TABLE_NAME + " ("
-                + GameEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
-                + GameEntry.COLUMN_GAME_NAME + " TEXT NOT NULL, "
-                + GameEntry.COLUMN_GAME_GENRE + " INTEGER NOT NULL, "
-                + GameEntry.COLUMN_GAME_PLATFORM + " INTEGER NOT NULL, "
-                + GameEntry.COLUMN_GAME_PRICE + " REAL NOT NULL DEFAULT 0.00, "
-                + GameEntry.COLUMN_QUANTITY + " INTEGER NOT NULL DEFAULT 0, "
-                + GameEntry.COLUMN_SUPPLIER_NAME + " TEXT NOT NULL, "
-                + GameEntry.COLUMN_SUPPLIER_PHONE + " TEXT);";
-
-        // Execute the SQL statement
-        db.execSQL(SQL_CREATE_GAMES_TABLE);
+        createInitialSchema(db);
+        onUpgrade(db, GameSchema.VERSION_INITIAL, DATABASE_VERSION);
+    }
+
+    /**
+     * Create the schema of {@link GameSchema#VERSION_INITIAL}.
+     */
+    static void createInitialSchema(SQLiteDatabase db) {
+        db.execSQL(GameSchema.SQL_CREATE_GAMES_TABLE);
     }
 
     /**
      * This is called when the database needs to be upgraded.
+     * Every step is applied in order, inside the transaction opened by {@link SQLiteOpenHelper},
+     * so existing data is kept and a failing step leaves the database at the old version.
      */
     @Override
-    public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
-        // Nothing to do here for now
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        for (int version = oldVersion + 1; version <= newVersion; version++) {
+            upgradeTo(db, version);
+        }
+    }
+
+    /**
+     * Migrate the schema from the previous version to the given version.
+     */
+    private static void upgradeTo(SQLiteDatabase db, int version) {
+        for (String statement : GameSchema.getMigration(version)) {
+            db.execSQL(statement);
+        }
     }
 
 }
@@ -0,0 +1,188 @@
+package com.example.android.gamesinventoryapp.data;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes games one at a time in an export format, without holding more than the current game.
+ * <p>
+ * The CSV format has a header with the names of the {@link #COLUMNS}, and the prices as amounts
+ * such as "19.99", so that an export can be opened by a spreadsheet and imported back. The JSON
+ * Lines format has one object per game, keyed by the names of the {@link #COLUMNS}, with the
+ * values stored by the table: the genre and platform codes, and the price in cents.
+ */
+public final class GameExportWriter implements Closeable, Flushable {
+
+    /** Comma separated values, with a header */
+    public static final int FORMAT_CSV = 0;
+
+    /** One JSON object per line */
+    public static final int FORMAT_JSONL = 1;
+
+    /** Columns of the games table that are exported, in the order of the arguments of {@link #writeGame} */
+    public static final String[] COLUMNS = {
+            GameEntry._ID,
+            GameEntry.COLUMN_GAME_NAME,
+            GameEntry.COLUMN_GAME_GENRE,
+            GameEntry.COLUMN_GAME_PLATFORM,
+            GameEntry.COLUMN_GAME_PRICE,
+            GameEntry.COLUMN_QUANTITY,
+            GameEntry.COLUMN_SUPPLIER_NAME,
+            GameEntry.COLUMN_SUPPLIER_PHONE};
+
+    private final Writer mWriter;
+
+    private final int mFormat;
+
+    /**
+     * Constructs a writer of games to the given writer, which should be buffered.
+     *
+     * @param format {@link #FORMAT_CSV} or {@link #FORMAT_JSONL}
+     */
+    public GameExportWriter(Writer writer, int format) {
+        if (format != FORMAT_CSV && format != FORMAT_JSONL) {
+            throw new IllegalArgumentException("Unknown export format " + format);
+        }
+        mWriter = writer;
+        mFormat = format;
+    }
+
+    /**
+     * Write what comes before the first game: the header of a CSV file, nothing in JSON Lines.
+     */
+    public void writeHeader() throws IOException {
+        if (mFormat == FORMAT_CSV) {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0) {
+                    mWriter.write(',');
+                }
+                mWriter.write(COLUMNS[i]);
+            }
+            mWriter.write('\n');
+        }
+    }
+
+    /**
+     * Write a game, the supplier phone being null if the game has none.
+     */
+    public void writeGame(long id, String name, int genre, int platform, long priceCents, int quantity,
+                          String supplierName, String supplierPhone) throws IOException {
+        if (mFormat == FORMAT_CSV) {
+            mWriter.write(Long.toString(id));
+            mWriter.write(',');
+            writeCsvField(name);
+            mWriter.write(',');
+            mWriter.write(Integer.toString(genre));
+            mWriter.write(',');
+            mWriter.write(Integer.toString(platform));
+            mWriter.write(',');
+            mWriter.write(Game.formatPrice(priceCents));
+            mWriter.write(',');
+            mWriter.write(Integer.toString(quantity));
+            mWriter.write(',');
+            writeCsvField(supplierName);
+            mWriter.write(',');
+            writeCsvField(supplierPhone);
+            mWriter.write('\n');
+        } else {
+            mWriter.write("{\"");
+            mWriter.write(GameEntry._ID);
+            mWriter.write("\":");
+            mWriter.write(Long.toString(id));
+            writeJsonKey(GameEntry.COLUMN_GAME_NAME);
+            writeJsonString(name);
+            writeJsonKey(GameEntry.COLUMN_GAME_GENRE);
+            mWriter.write(Integer.toString(genre));
+            writeJsonKey(GameEntry.COLUMN_GAME_PLATFORM);
+            mWriter.write(Integer.toString(platform));
+            writeJsonKey(GameEntry.COLUMN_GAME_PRICE);
+            mWriter.write(Long.toString(priceCents));
+            writeJsonKey(GameEntry.COLUMN_QUANTITY);
+            mWriter.write(Integer.toString(quantity));
+            writeJsonKey(GameEntry.COLUMN_SUPPLIER_NAME);
+            writeJsonString(supplierName);
+            writeJsonKey(GameEntry.COLUMN_SUPPLIER_PHONE);
+            writeJsonString(supplierPhone);
+            mWriter.write("}\n");
+        }
+    }
+
+    /**
+     * Write a CSV field, quoted if it has a separator, a quote, a line break or surrounding spaces.
+     */
+    private void writeCsvField(String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean quoted = value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ';
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quoted) {
+            mWriter.write(value);
+            return;
+        }
+        mWriter.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                mWriter.write('"');
+            }
+            mWriter.write(c);
+        }
+        mWriter.write('"');
+    }
+
+    private void writeJsonKey(String key) throws IOException {
+        mWriter.write(",\"");
+        mWriter.write(key);
+        mWriter.write("\":");
+    }
+
+    /**
+     * Write a JSON string, or null, escaping the quotes, the backslashes and the control characters.
+     */
+    private void writeJsonString(String value) throws IOException {
+        if (value == null) {
+            mWriter.write("null");
+            return;
+        }
+        mWriter.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                mWriter.write('\\');
+                mWriter.write(c);
+            } else if (c == '\n') {
+                mWriter.write("\\n");
+            } else if (c == '\r') {
+                mWriter.write("\\r");
+            } else if (c == '\t') {
+                mWriter.write("\\t");
+            } else if (c < 0x20) {
+                mWriter.write(String.format("\\u%04x", (int) c));
+            } else {
+                mWriter.write(c);
+            }
+        }
+        mWriter.write('"');
+    }
+
+    /**
+     * Send the games written so far to the underlying writer, so that the reader gets them.
+     */
+    @Override
+    public void flush() throws IOException {
+        mWriter.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mWriter.close();
+    }
+}
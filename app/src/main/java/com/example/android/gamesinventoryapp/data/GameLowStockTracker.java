@@ -0,0 +1,103 @@
+package com.example.android.gamesinventoryapp.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.LongSparseArray;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameContract.LowStockEntry;
+
+/**
+ * Keeps the ids of the games watched for low stock, those with a reorder threshold, and the number
+ * of changes of the {@link LowStockEntry low stock watchlist} last seen. The watchlist is maintained
+ * by triggers, which only write to it for the watched games: {@link GameProvider} asks this tracker
+ * whether a write touched one of them before reading the number of changes again, so the writes of
+ * the other games don't cost an extra query.
+ */
+class GameLowStockTracker {
+
+    /**
+     * Ids of the watched games. A deleted game may still be listed, which only costs a check.
+     */
+    private final LongSparseArray<Boolean> mWatchedIds = new LongSparseArray<>();
+
+    /**
+     * Number of changes of the watchlist when it was last read
+     */
+    private long mChangeCount;
+
+    /**
+     * Constructs a new instance of {@link GameLowStockTracker}, reading the watched games and the
+     * number of changes of the watchlist from the given database.
+     */
+    GameLowStockTracker(SQLiteDatabase database) {
+        reloadWatchedGames(database);
+        mChangeCount = DatabaseUtils.longForQuery(database, GameSchema.SQL_COUNT_LOW_STOCK_CHANGES, null);
+    }
+
+    /**
+     * Read the watched games again, after the thresholds of games of unknown ids changed.
+     */
+    synchronized void reloadWatchedGames(SQLiteDatabase database) {
+        mWatchedIds.clear();
+        Cursor cursor = database.rawQuery(GameSchema.SQL_SELECT_WATCHED_GAMES, null);
+        try {
+            // The ids are read in increasing order, so each one is appended to the array
+            while (cursor.moveToNext()) {
+                mWatchedIds.append(cursor.getLong(0), Boolean.TRUE);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Record the reorder threshold of the game of the given id, 0 if it isn't watched.
+     */
+    synchronized void onThresholdChanged(long id, int threshold) {
+        if (threshold > 0) {
+            mWatchedIds.put(id, Boolean.TRUE);
+        } else {
+            mWatchedIds.remove(id);
+        }
+    }
+
+    /**
+     * Returns whether or not the game of the given id is watched
+     */
+    synchronized boolean isWatched(long id) {
+        return mWatchedIds.indexOfKey(id) >= 0;
+    }
+
+    /**
+     * Returns whether or not any game is watched
+     */
+    synchronized boolean hasWatchedGames() {
+        return mWatchedIds.size() != 0;
+    }
+
+    /**
+     * Read the number of changes of the watchlist from the given database, and return whether or
+     * not it grew since it was last read. A count read before the last one is never reported again.
+     */
+    boolean checkChanges(SQLiteDatabase database) {
+        long changeCount = DatabaseUtils.longForQuery(database, GameSchema.SQL_COUNT_LOW_STOCK_CHANGES, null);
+        synchronized (this) {
+            if (changeCount <= mChangeCount) {
+                return false;
+            }
+            mChangeCount = changeCount;
+            return true;
+        }
+    }
+
+    /**
+     * Returns the reorder threshold of the given game values, 0 if they don't have any.
+     */
+    static int getThreshold(ContentValues values) {
+        Integer threshold = values.getAsInteger(GameEntry.COLUMN_REORDER_THRESHOLD);
+        return threshold != null ? threshold : 0;
+    }
+}
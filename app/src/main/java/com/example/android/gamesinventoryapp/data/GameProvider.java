@@ -1,17 +1,49 @@
 package com.example.android.gamesinventoryapp.data;
 
+import android.content.ClipDescription;
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.MatrixCursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+import android.os.StrictMode;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.text.TextUtils;
 import android.util.Log;
 
+import com.example.android.gamesinventoryapp.BuildConfig;
 import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameContract.LowStockEntry;
+import com.example.android.gamesinventoryapp.data.GameContract.StatsEntry;
+import com.example.android.gamesinventoryapp.data.GameContract.StockMovementEntry;
+
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * ContentProvider for Game Inventory App
@@ -27,6 +59,36 @@ public class GameProvider extends ContentProvider {
     /** URI matcher code for the content URI for a single game from the games table */
     private static final int GAME_ID = 101;
 
+    /** URI matcher code for the content URI searching the games table */
+    private static final int GAMES_SEARCH = 102;
+
+    /** URI matcher code for the content URI of the inventory statistics */
+    private static final int GAMES_STATS = 105;
+
+    /** URI matcher code for the content URI selling copies of a single game */
+    private static final int GAME_SELL = 103;
+
+    /** URI matcher code for the content URI restocking copies of a single game */
+    private static final int GAME_RESTOCK = 104;
+
+    /** URI matcher code for the content URI deleting the games in chunks */
+    private static final int GAMES_PURGE = 106;
+
+    /** URI matcher code for the content URI importing games */
+    private static final int GAMES_IMPORT = 107;
+
+    /** URI matcher code for the content URI exporting the games as CSV */
+    private static final int GAMES_EXPORT_CSV = 108;
+
+    /** URI matcher code for the content URI exporting the games as JSON Lines */
+    private static final int GAMES_EXPORT_JSONL = 109;
+
+    /** URI matcher code for the content URI of the stock movements */
+    private static final int STOCK_MOVEMENTS = 110;
+
+    /** URI matcher code for the content URI of the low stock watchlist */
+    private static final int LOW_STOCK = 111;
+
     /**
      * UriMatcher object to match a content URI to a corresponding code.
      */
@@ -42,29 +104,184 @@ public class GameProvider extends ContentProvider {
         // In this case, the "#" wildcard is used where "#" can be substituted for an integer.
         // For example: "com.example.android.gamesinventoryapp/games/3"
         sUriMatcher.addURI(GameContract.CONTENT_AUTHORITY, GameContract.PATH_GAMES + "/#", GAME_ID);
+
+        // The search URI "com.example.android.gamesinventoryapp/games/search?q=..." performs a
+        // full-text search on the name and the supplier name of the games.
+        sUriMatcher.addURI(GameContract.CONTENT_AUTHORITY, GameContract.PATH_GAMES + "/" + GameContract.PATH_SEARCH, GAMES_SEARCH);
+
+        // The URI "com.example.android.gamesinventoryapp/games/stats" reads the inventory statistics
+        sUriMatcher.addURI(GameContract.CONTENT_AUTHORITY, GameContract.PATH_GAMES + "/" + GameContract.PATH_STATS, GAMES_STATS);
+
+        // The URI "com.example.android.gamesinventoryapp/games/purge?limit=..." deletes a chunk of games
+        sUriMatcher.addURI(GameContract.CONTENT_AUTHORITY, GameContract.PATH_GAMES + "/" + GameContract.PATH_PURGE, GAMES_PURGE);
+
+        // The URI "com.example.android.gamesinventoryapp/games/import" inserts or updates a batch of games
+        sUriMatcher.addURI(GameContract.CONTENT_AUTHORITY, GameContract.PATH_GAMES + "/" + GameContract.PATH_IMPORT, GAMES_IMPORT);
+
+        // The URIs "com.example.android.gamesinventoryapp/games/export.csv" and ".../games/export.jsonl"
+        // are files streaming all the games
+        sUriMatcher.addURI(GameContract.CONTENT_AUTHORITY, GameContract.PATH_GAMES + "/" + GameContract.PATH_EXPORT_CSV, GAMES_EXPORT_CSV);
+        sUriMatcher.addURI(GameContract.CONTENT_AUTHORITY, GameContract.PATH_GAMES + "/" + GameContract.PATH_EXPORT_JSONL, GAMES_EXPORT_JSONL);
+
+        // The URI "com.example.android.gamesinventoryapp/games/movements" reads the stock movements
+        sUriMatcher.addURI(GameContract.CONTENT_AUTHORITY, GameContract.PATH_GAMES + "/" + GameContract.PATH_MOVEMENTS, STOCK_MOVEMENTS);
+
+        // The URI "com.example.android.gamesinventoryapp/low_stock" reads the games below their reorder threshold
+        sUriMatcher.addURI(GameContract.CONTENT_AUTHORITY, GameContract.PATH_LOW_STOCK, LOW_STOCK);
+
+        // The sell and restock URIs, for example "com.example.android.gamesinventoryapp/games/3/sell",
+        // atomically change the stock of a single game.
+        sUriMatcher.addURI(GameContract.CONTENT_AUTHORITY, GameContract.PATH_GAMES + "/#/" + GameContract.PATH_SELL, GAME_SELL);
+        sUriMatcher.addURI(GameContract.CONTENT_AUTHORITY, GameContract.PATH_GAMES + "/#/" + GameContract.PATH_RESTOCK, GAME_RESTOCK);
     }
 
-    /** Database helper object */
+    /** Database helper object, created by {@link #getDbHelper()} */
     private GameDbHelper mDbHelper;
 
+    /** Number of games read by the warm-up, the size of the first page of the catalog */
+    private static final int WARM_UP_ROW_COUNT = 50;
+
+    /** Number of games read by each query of an export, so that a cursor window always holds them */
+    private static final int EXPORT_PAGE_SIZE = 500;
+
+    /** Size of the buffer of the characters of an export, sent to the pipe when full or after each page */
+    private static final int EXPORT_BUFFER_SIZE = 16 * 1024;
+
+    /** Columns of the games that the games table holds as they are, every column but the quantity */
+    private static final Set<String> SNAPSHOT_COLUMNS = new HashSet<>(Arrays.asList(GameEntry._ID,
+            GameEntry.COLUMN_GAME_NAME, GameEntry.COLUMN_GAME_GENRE, GameEntry.COLUMN_GAME_PLATFORM,
+            GameEntry.COLUMN_GAME_PRICE, GameEntry.COLUMN_SUPPLIER_NAME, GameEntry.COLUMN_SUPPLIER_PHONE,
+            GameEntry.COLUMN_REORDER_THRESHOLD));
+
+    /** Whether the current thread is running an {@link #applyBatch(ArrayList)} */
+    private final ThreadLocal<Boolean> mApplyingBatch = new ThreadLocal<>();
+
+    /** URIs changed by the batch running on the current thread, notified once the batch is committed */
+    private final ThreadLocal<ArrayList<Uri>> mBatchChanges = new ThreadLocal<>();
+
+    /** Whether the batch running on the current thread wrote to watched games, checked once it is committed */
+    private final ThreadLocal<Boolean> mBatchLowStockChanges = new ThreadLocal<>();
+
+    /** Coalesces the change notifications sent to the listeners, created by {@link #getNotifier()} */
+    private GameChangeNotifier mNotifier;
+
+    /** Folds the stock movements into the quantities of the games, created by {@link #getCompactor()} */
+    private GameStockCompactor mCompactor;
+
+    /** Tracks the games watched for low stock, created by {@link #getLowStockTracker()} */
+    private GameLowStockTracker mLowStockTracker;
+
     /**
-     * Initialize the provider and the database helper object.
+     * Initialize the provider. This runs on the main thread while the application starts, so nothing
+     * is created here: the database is opened and warmed up on a background thread instead.
      */
     @Override
     public boolean onCreate() {
-        // Initialize a PetDbHelper object to gain access to the games database.
-        mDbHelper = new GameDbHelper(getContext());
+        Thread warmUpThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                warmUp();
+            }
+        }, "GameProviderWarmUp");
+        warmUpThread.start();
         return true;
     }
 
+    /**
+     * Open the database, running its migrations if needed, and read the first page of the catalog,
+     * so that the first query of the catalog finds an open connection and the pages of the table in cache.
+     */
+    private void warmUp() {
+        long startMillis = SystemClock.elapsedRealtime();
+        try {
+            SQLiteDatabase database = getDbHelper().getReadableDatabase();
+            Cursor cursor = database.query(GameEntry.STOCK_VIEW_NAME, null, null, null, null, null,
+                    GameEntry._ID + " ASC", String.valueOf(WARM_UP_ROW_COUNT));
+            try {
+                // Fill the cursor window
+                cursor.getCount();
+            } finally {
+                cursor.close();
+            }
+            getLowStockTracker();
+            Log.v(LOG_TAG, "Database warmed up in " + (SystemClock.elapsedRealtime() - startMillis) + " ms");
+        } catch (SQLiteException e) {
+            // The first query will report the error
+            Log.e(LOG_TAG, "Failed to warm up the database", e);
+        }
+    }
+
+    /**
+     * Returns the database helper used by this provider, creating it on first use.
+     * <p>
+     * In debug builds, every access to the database is noted as a slow call: the file accesses of
+     * SQLite aren't seen by the disk read and write detection of {@link StrictMode}, but a thread
+     * policy detecting custom slow calls reports the provider being used from the main thread.
+     * Release builds don't pay for the check on every access.
+     */
+    synchronized GameDbHelper getDbHelper() {
+        if (BuildConfig.DEBUG) {
+            StrictMode.noteSlowCall("GameProvider database access");
+        }
+        if (mDbHelper == null) {
+            // Initialize a GameDbHelper object to gain access to the games database.
+            mDbHelper = new GameDbHelper(getContext());
+        }
+        return mDbHelper;
+    }
+
+    /**
+     * Returns the notifier of the changes, creating it and its thread on first use.
+     */
+    private synchronized GameChangeNotifier getNotifier() {
+        if (mNotifier == null) {
+            mNotifier = new GameChangeNotifier(getContext().getContentResolver());
+        }
+        return mNotifier;
+    }
+
+    /**
+     * Returns the compactor of the stock movements, creating it and its thread on first use.
+     */
+    private synchronized GameStockCompactor getCompactor() {
+        if (mCompactor == null) {
+            mCompactor = new GameStockCompactor(getDbHelper());
+        }
+        return mCompactor;
+    }
+
+    /**
+     * Returns the tracker of the games watched for low stock, reading them on first use. It must be
+     * created before the first write, so that the changes of the watchlist are counted from there.
+     */
+    private synchronized GameLowStockTracker getLowStockTracker() {
+        if (mLowStockTracker == null) {
+            mLowStockTracker = new GameLowStockTracker(getDbHelper().getReadableDatabase());
+        }
+        return mLowStockTracker;
+    }
+
     /**
      * Perform the query for the given URI. Use the given projection, selection, selection arguments, and sort order.
      */
     @Nullable
     @Override
     public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection, @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+        return query(uri, projection, selection, selectionArgs, sortOrder, null);
+    }
+
+    /**
+     * Perform the query for the given URI, like {@link #query(Uri, String[], String, String[], String)}.
+     * If the given signal is canceled while the query runs, SQLite stops it and
+     * {@link android.os.OperationCanceledException} is thrown, so abandoned queries don't keep using the CPU.
+     */
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection, @Nullable String[] selectionArgs,
+                        @Nullable String sortOrder, @Nullable CancellationSignal cancellationSignal) {
         //Get readable database
-        SQLiteDatabase database = mDbHelper.getReadableDatabase();
+        SQLiteDatabase database = getDbHelper().getReadableDatabase();
 
         //This cursor hold the result of the query
         Cursor cursor;
@@ -73,16 +290,51 @@ public class GameProvider extends ContentProvider {
         int match = sUriMatcher.match(uri);
         switch (match) {
             case GAMES:
-                // For the GAMES code, query the games table directly
-                cursor = database.query(GameEntry.TABLE_NAME, projection, selection, selectionArgs, null, null, sortOrder);
+                if (isPageQuery(uri)) {
+                    // For a paged GAMES query, only read the requested range of ids
+                    cursor = queryGamesPage(database, uri, projection, selection, selectionArgs, sortOrder, cancellationSignal);
+                    break;
+                }
+                // For the GAMES code, query the games with their current stock
+                cursor = database.query(false, getGamesSource(projection, selection, sortOrder), projection,
+                        selection, selectionArgs, null, null, sortOrder, null, cancellationSignal);
                 break;
             case GAME_ID:
                 // For the GAME_ID code, extract out the ID from the URI
                 selection = GameEntry._ID + "=?";
                 selectionArgs = new String[] { String.valueOf(ContentUris.parseId(uri))};
 
-                // This will perform a query on the pets table where the _id is the ID parsed from the URI
-                cursor = database.query(GameEntry.TABLE_NAME, projection, selection, selectionArgs, null, null, sortOrder);
+                // This will perform a query on the games where the _id is the ID parsed from the URI
+                cursor = database.query(false, getGamesSource(projection, sortOrder), projection, selection,
+                        selectionArgs, null, null, sortOrder, null, cancellationSignal);
+                break;
+            case GAMES_SEARCH:
+                // For the GAMES_SEARCH code, match the search terms against the search table
+                cursor = searchGames(database, uri, projection, selection, selectionArgs, sortOrder, cancellationSignal);
+                // Search results depend on the whole games table
+                uri = GameEntry.CONTENT_URI;
+                break;
+            case GAMES_STATS:
+                // For the GAMES_STATS code, read the statistics maintained by the triggers
+                cursor = database.query(false, StatsEntry.TABLE_NAME, projection, selection, selectionArgs,
+                        null, null, sortOrder, null, cancellationSignal);
+                // The statistics change with any game
+                uri = GameEntry.CONTENT_URI;
+                break;
+            case STOCK_MOVEMENTS:
+                // For the STOCK_MOVEMENTS code, read the ledger, most recent movements first by default
+                cursor = database.query(false, StockMovementEntry.TABLE_NAME, projection, selection, selectionArgs,
+                        null, null, TextUtils.isEmpty(sortOrder) ? StockMovementEntry._ID + " DESC" : sortOrder,
+                        null, cancellationSignal);
+                // The movements change with the stock of any game
+                uri = GameEntry.CONTENT_URI;
+                break;
+            case LOW_STOCK:
+                // For the LOW_STOCK code, read the watchlist maintained by the triggers, lowest stock first
+                // by default. The cursor is only notified of the changes of the watchlist.
+                cursor = database.query(false, LowStockEntry.VIEW_NAME, projection, selection, selectionArgs,
+                        null, null, TextUtils.isEmpty(sortOrder) ? GameEntry.COLUMN_QUANTITY + ", " + LowStockEntry._ID : sortOrder,
+                        null, cancellationSignal);
                 break;
             default:
                 throw new IllegalArgumentException("Cannot query unknown URI " + uri);
@@ -95,6 +347,166 @@ public class GameProvider extends ContentProvider {
         return cursor;
     }
 
+    /**
+     * Returns whether or not the given games URI has paging parameters.
+     */
+    private static boolean isPageQuery(Uri uri) {
+        return uri.getQueryParameter(GameEntry.QUERY_PARAMETER_AFTER_ID) != null
+                || uri.getQueryParameter(GameEntry.QUERY_PARAMETER_MAX_ID) != null
+                || uri.getQueryParameter(GameEntry.QUERY_PARAMETER_LIMIT) != null;
+    }
+
+    /**
+     * Query a page of games using the ids as keys: the page starts right after the
+     * {@link GameEntry#QUERY_PARAMETER_AFTER_ID} key, so its cost doesn't depend on how many games
+     * come before it. Pages are always sorted by {@link GameEntry#_ID} to keep the keys stable.
+     */
+    private Cursor queryGamesPage(SQLiteDatabase database, Uri uri, String[] projection, String selection,
+                                  String[] selectionArgs, String sortOrder, CancellationSignal cancellationSignal) {
+        if (!TextUtils.isEmpty(sortOrder)) {
+            throw new IllegalArgumentException("Paged queries are always sorted by " + GameEntry._ID);
+        }
+
+        String afterId = uri.getQueryParameter(GameEntry.QUERY_PARAMETER_AFTER_ID);
+        String maxId = uri.getQueryParameter(GameEntry.QUERY_PARAMETER_MAX_ID);
+        String limit = uri.getQueryParameter(GameEntry.QUERY_PARAMETER_LIMIT);
+
+        StringBuilder pageSelection = new StringBuilder();
+        if (!TextUtils.isEmpty(selection)) {
+            pageSelection.append('(').append(selection).append(')');
+        }
+        if (afterId != null) {
+            // The key is inlined after being parsed, so it can be compared as an integer
+            appendCondition(pageSelection, GameEntry._ID + " > " + parseLongParameter(uri, afterId));
+        }
+        if (maxId != null) {
+            appendCondition(pageSelection, GameEntry._ID + " <= " + parseLongParameter(uri, maxId));
+        }
+        if (limit != null && parseLongParameter(uri, limit) <= 0) {
+            throw new IllegalArgumentException("Invalid page limit in " + uri);
+        }
+
+        return database.query(false, getGamesSource(projection, selection), projection, pageSelection.toString(),
+                selectionArgs, null, null, GameEntry._ID + " ASC", limit, cancellationSignal);
+    }
+
+    /**
+     * Returns the table or view to read the games from for the given projection and clauses: the games
+     * table if the projection is an explicit list of its columns other than the quantity and none of
+     * the clauses refers to the quantity, so that reading only the other columns doesn't sum the
+     * pending stock movements. Otherwise the view of the games with their current stock: a null
+     * projection, "*" or any expression may read the quantity.
+     */
+    private static String getGamesSource(String[] projection, String... clauses) {
+        if (projection == null) {
+            return GameEntry.STOCK_VIEW_NAME;
+        }
+        for (String column : projection) {
+            if (!SNAPSHOT_COLUMNS.contains(column)) {
+                return GameEntry.STOCK_VIEW_NAME;
+            }
+        }
+        for (String clause : clauses) {
+            if (clause != null && clause.contains(GameEntry.COLUMN_QUANTITY)) {
+                return GameEntry.STOCK_VIEW_NAME;
+            }
+        }
+        return GameEntry.TABLE_NAME;
+    }
+
+    /**
+     * Append a condition to the given selection with the AND operator.
+     */
+    private static void appendCondition(StringBuilder selection, String condition) {
+        if (selection.length() > 0) {
+            selection.append(" AND ");
+        }
+        selection.append(condition);
+    }
+
+    /**
+     * Parse a numeric query parameter of the given URI.
+     */
+    private static long parseLongParameter(Uri uri, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid query parameter " + value + " in " + uri);
+        }
+    }
+
+    /**
+     * Search the games whose name or supplier name contain words starting with every search term.
+     * The rows have the same columns as the games table. Unless a sort order is given, games
+     * matching by name are ranked before games matching only by supplier, then sorted by name.
+     */
+    private Cursor searchGames(SQLiteDatabase database, Uri uri, String[] projection, String selection,
+                               String[] selectionArgs, String sortOrder, CancellationSignal cancellationSignal) {
+        String matchAll = buildMatchExpression(uri.getQueryParameter(GameEntry.QUERY_PARAMETER_SEARCH), null);
+        if (matchAll == null) {
+            // Nothing to search for
+            return new MatrixCursor(projection != null ? projection : new String[]{GameEntry._ID});
+        }
+
+        // Restrict the rows to those found in the search table, keeping the caller's selection
+        String searchSelection = GameEntry._ID + " IN (" + GameSchema.SQL_SELECT_SEARCH_MATCHES + ")";
+        if (!TextUtils.isEmpty(selection)) {
+            searchSelection = "(" + selection + ") AND " + searchSelection;
+        }
+        String[] searchSelectionArgs = appendArgs(selectionArgs, matchAll);
+
+        if (TextUtils.isEmpty(sortOrder)) {
+            // Rank the games matching on their name first
+            String matchName = buildMatchExpression(uri.getQueryParameter(GameEntry.QUERY_PARAMETER_SEARCH),
+                    GameEntry.COLUMN_GAME_NAME);
+            sortOrder = GameEntry._ID + " IN (" + GameSchema.SQL_SELECT_SEARCH_MATCHES + ") DESC, "
+                    + GameEntry.COLUMN_GAME_NAME + " COLLATE NOCASE";
+            // The sort order can't take arguments, so the match expression is inlined as a literal
+            sortOrder = sortOrder.replace("?", DatabaseUtils.sqlEscapeString(matchName));
+        }
+
+        return database.query(false, getGamesSource(projection, selection, sortOrder), projection, searchSelection,
+                searchSelectionArgs, null, null, sortOrder, null, cancellationSignal);
+    }
+
+    /**
+     * Build an FTS match expression where every word of the given terms is matched as a prefix,
+     * optionally restricted to a single column. Returns null if there is no word to search for.
+     */
+    private static String buildMatchExpression(String terms, String column) {
+        if (terms == null) {
+            return null;
+        }
+        StringBuilder expression = new StringBuilder();
+        // Only keep letters and digits, so the user input can't inject FTS query syntax
+        for (String word : terms.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (expression.length() > 0) {
+                expression.append(' ');
+            }
+            if (column != null) {
+                expression.append(column).append(':');
+            }
+            expression.append(word).append('*');
+        }
+        return expression.length() > 0 ? expression.toString() : null;
+    }
+
+    /**
+     * Returns a copy of the given selection arguments with the extra argument appended.
+     */
+    private static String[] appendArgs(String[] selectionArgs, String arg) {
+        if (selectionArgs == null) {
+            return new String[]{arg};
+        }
+        String[] args = new String[selectionArgs.length + 1];
+        System.arraycopy(selectionArgs, 0, args, 0, selectionArgs.length);
+        args[selectionArgs.length] = arg;
+        return args;
+    }
+
     /**
      * Insert new data into the provider with the given ContentValues.
      */
@@ -114,60 +526,354 @@ public class GameProvider extends ContentProvider {
      * for that specific row in the database.
      */
     private Uri insertGame(Uri uri, ContentValues values){
-        // Check that the name is not null
-        String name = values.getAsString(GameEntry.COLUMN_GAME_NAME);
-        if (name == null || name.isEmpty()) {
-            throw new IllegalArgumentException("Game requires a name");
+        // Check that all the required attributes are valid
+        validateGame(values);
+
+        // Get writable database
+        SQLiteDatabase database = getDbHelper().getWritableDatabase();
+        GameLowStockTracker lowStockTracker = getLowStockTracker();
+
+        // Insert the new game with the given values
+        long id  = database.insert(GameEntry.TABLE_NAME, null, values);
+        // If the ID is -1, then the insertion failed. Log an error and return null.
+        if (id == -1) {
+            Log.e(LOG_TAG, "Failed to insert row for " + uri);
+            return null;
         }
 
-        // Check that the genre is valid
-        Integer genre = values.getAsInteger(GameEntry.COLUMN_GAME_GENRE);
-        if (genre == null || !GameEntry.isValidGenre(genre)) {
-            throw new IllegalArgumentException("Game requires a valid genre");
+        // A watched game is listed right away if it is inserted below its threshold
+        int threshold = GameLowStockTracker.getThreshold(values);
+        if (threshold > 0) {
+            lowStockTracker.onThresholdChanged(id, threshold);
+            if (values.getAsInteger(GameEntry.COLUMN_QUANTITY) < threshold) {
+                checkLowStockChanges();
+            }
         }
 
-        // Check that the platform is valid
-        Integer platform = values.getAsInteger(GameEntry.COLUMN_GAME_PLATFORM);
-        if (platform == null || !GameEntry.isValidPlatform(platform)) {
-            throw new IllegalArgumentException("Game requires a valid platform");
+        // Return the new URI with the ID (of the newly inserted row) appended at the end
+        Uri gameUri = ContentUris.withAppendedId(uri, id);
+
+        // Notify all listeners that the data has changed for the new game
+        notifyChange(gameUri);
+
+        return gameUri;
+    }
+
+    /**
+     * Insert all the given games into the database in a single transaction. The insert statement
+     * is compiled only once and reused for every row, and listeners are notified only once at the end.
+     * If any of the rows is not valid nothing is inserted.
+     */
+    @Override
+    public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] valuesArray) {
+        final int match = sUriMatcher.match(uri);
+        if (match == GAMES_IMPORT) {
+            // Import the games without notifying the listeners, the importing caller does it once
+            return importGames(uri, valuesArray);
+        }
+        if (match != GAMES) {
+            throw new IllegalArgumentException("Bulk insertion is not supported for " + uri);
         }
 
-        // Check that the price is valid
-        Double price = values.getAsDouble(GameEntry.COLUMN_GAME_PRICE);
-        if (price == null || price < 0) {
-            throw new IllegalArgumentException("Game requires a valid price");
+        // Check all the rows before touching the database
+        for (ContentValues values : valuesArray) {
+            validateGame(values);
         }
 
-        // Check that the quantity is valid
-        Integer quantity = values.getAsInteger(GameEntry.COLUMN_QUANTITY);
-        if (quantity == null || quantity < 0) {
-            throw new IllegalArgumentException("Game requires a valid quantity");
+        // Get writable database
+        SQLiteDatabase database = getDbHelper().getWritableDatabase();
+
+        GameLowStockTracker lowStockTracker = getLowStockTracker();
+
+        // Track the number of rows that were inserted, and whether any was listed as low on stock
+        int rowsInserted = 0;
+        boolean lowStockChanged = false;
+
+        database.beginTransaction();
+        SQLiteStatement statement = database.compileStatement(GameSchema.SQL_INSERT_GAME);
+        try {
+            for (ContentValues values : valuesArray) {
+                bindGame(statement, values);
+                long id = statement.executeInsert();
+                if (id == -1) {
+                    // Abort the whole batch, the transaction won't be marked as successful
+                    Log.e(LOG_TAG, "Failed to bulk insert rows for " + uri);
+                    return 0;
+                }
+                int threshold = GameLowStockTracker.getThreshold(values);
+                if (threshold > 0) {
+                    lowStockTracker.onThresholdChanged(id, threshold);
+                    lowStockChanged |= values.getAsInteger(GameEntry.COLUMN_QUANTITY) < threshold;
+                }
+                rowsInserted++;
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            statement.close();
+            database.endTransaction();
         }
 
-        // Check that the suppliername is valid
-        String supplierName = values.getAsString(GameEntry.COLUMN_SUPPLIER_NAME);
-        if (supplierName == null || supplierName.isEmpty()) {
-            throw new IllegalArgumentException("Games requires a supplier name");
+        // Notify all listeners only once that the data has changed for the game content URI
+        if (rowsInserted != 0) {
+            notifyChange(uri);
+        }
+        if (lowStockChanged) {
+            checkLowStockChanges();
         }
 
-        // No need to check the supplier phone, any value is valid (including null).
+        // Return the number of rows inserted
+        return rowsInserted;
+    }
+
+    /**
+     * Insert the given games, or update those that exist with the same name and platform, in a single
+     * transaction. The statements are compiled only once for the whole batch, and the triggers leave
+     * the search table and the statistics alone while the games are written: the batch updates them
+     * once at the end. If any of the games is not valid, or can't be written, an exception is thrown
+     * and nothing is written. Return the number of games inserted or changed.
+     */
+    private int importGames(Uri uri, ContentValues[] valuesArray) {
+        // Check all the rows before touching the database
+        for (ContentValues values : valuesArray) {
+            validateImportedGame(values);
+        }
 
         // Get writable database
-        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+        SQLiteDatabase database = getDbHelper().getWritableDatabase();
 
-        // Insert the new game with the given values
-        long id  = database.insert(GameEntry.TABLE_NAME, null, values);
-        // If the ID is -1, then the insertion failed. Log an error and return null.
-        if (id == -1) {
-            Log.e(LOG_TAG, "Failed to insert row for " + uri);
-            return null;
+        GameLowStockTracker lowStockTracker = getLowStockTracker();
+
+        // Track the number of games that were inserted or changed, and whether any stock moved.
+        // The imported games have no threshold, only the stock of the existing ones can be watched.
+        int rowsWritten = 0;
+        boolean stockMoved = false;
+        boolean lowStockChanged = false;
+        long now = System.currentTimeMillis();
+
+        database.beginTransaction();
+        SQLiteStatement find = database.compileStatement(GameSchema.SQL_FIND_IMPORTED_GAME);
+        SQLiteStatement update = database.compileStatement(GameSchema.SQL_UPDATE_IMPORTED_GAME);
+        SQLiteStatement adjustStock = database.compileStatement(GameSchema.SQL_ADJUST_STOCK);
+        SQLiteStatement insert = database.compileStatement(GameSchema.SQL_INSERT_GAME);
+        try {
+            database.execSQL(GameSchema.SQL_START_IMPORT);
+            long lastId = DatabaseUtils.longForQuery(database, GameSchema.SQL_SELECT_LAST_GAME_ID, null);
+
+            // Find the games that already exist, and take them out of the statistics before they
+            // are changed
+            long[] ids = new long[valuesArray.length];
+            StringBuilder existingIds = new StringBuilder();
+            for (int i = 0; i < valuesArray.length; i++) {
+                ids[i] = findImportedGame(find, valuesArray[i]);
+                if (ids[i] != -1) {
+                    existingIds.append(existingIds.length() == 0 ? "" : ",").append(ids[i]);
+                }
+            }
+            String existing = GameEntry._ID + " IN (" + existingIds + ")";
+            if (existingIds.length() != 0) {
+                for (String sql : GameSchema.buildImportStatsStatements(existing, -1)) {
+                    database.execSQL(sql);
+                }
+            }
+
+            for (int i = 0; i < valuesArray.length; i++) {
+                ContentValues values = valuesArray[i];
+                long id = ids[i];
+                if (id == -1) {
+                    // The game may have been inserted by a previous row of the batch
+                    id = findImportedGame(find, values);
+                }
+
+                if (id == -1) {
+                    bindImportedGame(insert, values);
+                    if (insert.executeInsert() == -1) {
+                        // Abort the whole batch, the transaction won't be marked as successful. The
+                        // importer writes the games of a failed batch one by one to find this one.
+                        throw new SQLException("Failed to import " + values.getAsString(GameEntry.COLUMN_GAME_NAME)
+                                + " for " + uri);
+                    }
+                    rowsWritten++;
+                } else {
+                    update.clearBindings();
+                    bindOptional(update, 1, values.getAsLong(GameEntry.COLUMN_GAME_GENRE));
+                    bindOptional(update, 2, values.getAsLong(GameEntry.COLUMN_GAME_PRICE));
+                    update.bindString(3, values.getAsString(GameEntry.COLUMN_SUPPLIER_NAME));
+                    String supplierPhone = values.getAsString(GameEntry.COLUMN_SUPPLIER_PHONE);
+                    if (supplierPhone != null) {
+                        update.bindString(4, supplierPhone);
+                    }
+                    update.bindLong(5, id);
+                    boolean changed = update.executeUpdateDelete() != 0;
+
+                    // The stock is set with a movement, if it differs from the current stock
+                    Long quantity = values.getAsLong(GameEntry.COLUMN_QUANTITY);
+                    if (quantity != null) {
+                        adjustStock.bindLong(1, quantity);
+                        adjustStock.bindLong(2, id);
+                        adjustStock.bindLong(3, now);
+                        if (adjustStock.executeUpdateDelete() != 0) {
+                            changed = true;
+                            stockMoved = true;
+                            lowStockChanged |= lowStockTracker.isWatched(id);
+                        }
+                    }
+                    if (changed) {
+                        rowsWritten++;
+                    }
+                }
+            }
+
+            // Add the changed and the new games to the statistics with their new stock, and the
+            // new games to the search table
+            SQLiteStatement index = database.compileStatement(GameSchema.SQL_INDEX_IMPORTED_GAMES);
+            try {
+                index.bindLong(1, lastId);
+                index.executeUpdateDelete();
+            } finally {
+                index.close();
+            }
+            String imported = GameEntry._ID + " > " + lastId;
+            if (existingIds.length() != 0) {
+                imported = existing + " OR " + imported;
+            }
+            for (String sql : GameSchema.buildImportStatsStatements(imported, 1)) {
+                database.execSQL(sql);
+            }
+            database.execSQL(GameSchema.SQL_FINISH_IMPORT);
+            database.setTransactionSuccessful();
+        } finally {
+            find.close();
+            update.close();
+            adjustStock.close();
+            insert.close();
+            database.endTransaction();
         }
 
-        // Notify all listeners that the data has changed for the game content URI
-        getContext().getContentResolver().notifyChange(uri, null);
+        if (stockMoved) {
+            getCompactor().onMovementsAdded();
+        }
+        if (lowStockChanged) {
+            checkLowStockChanges();
+        }
 
-        // Return the new URI with the ID (of the newly inserted row) appended at the end
-        return ContentUris.withAppendedId(uri, id);
+        // Return the number of rows inserted or changed
+        return rowsWritten;
+    }
+
+    /**
+     * Return the id of the game with the name and platform of the given imported game, -1 if there
+     * is none.
+     */
+    private static long findImportedGame(SQLiteStatement find, ContentValues values) {
+        find.bindString(1, values.getAsString(GameEntry.COLUMN_GAME_NAME));
+        find.bindLong(2, values.getAsInteger(GameEntry.COLUMN_GAME_PLATFORM));
+        try {
+            return find.simpleQueryForLong();
+        } catch (SQLiteDoneException e) {
+            // No game with this name on this platform yet
+            return -1;
+        }
+    }
+
+    /**
+     * Check that the given content values describe a valid imported game, throw an
+     * {@link IllegalArgumentException} otherwise. Only the key of the game and the supplier name
+     * are required, the other attributes are checked if they are present.
+     */
+    private static void validateImportedGame(ContentValues values) {
+        GameValidator.checkName(values.getAsString(GameEntry.COLUMN_GAME_NAME));
+        GameValidator.checkPlatform(values.getAsInteger(GameEntry.COLUMN_GAME_PLATFORM));
+        GameValidator.checkSupplierName(values.getAsString(GameEntry.COLUMN_SUPPLIER_NAME));
+        if (values.containsKey(GameEntry.COLUMN_GAME_GENRE)) {
+            GameValidator.checkGenre(values.getAsInteger(GameEntry.COLUMN_GAME_GENRE));
+        }
+        if (values.containsKey(GameEntry.COLUMN_GAME_PRICE)) {
+            GameValidator.checkPrice(getPriceCents(values));
+        }
+        if (values.containsKey(GameEntry.COLUMN_QUANTITY)) {
+            GameValidator.checkQuantity(values.getAsInteger(GameEntry.COLUMN_QUANTITY));
+        }
+    }
+
+    /**
+     * Bind the given value to the statement, or leave the argument null if there is no value.
+     */
+    private static void bindOptional(SQLiteStatement statement, int index, Long value) {
+        if (value != null) {
+            statement.bindLong(index, value);
+        }
+    }
+
+    /**
+     * Bind the values of an already validated imported game to the compiled
+     * {@link GameSchema#SQL_INSERT_GAME} statement, with the default value of the missing attributes.
+     */
+    private static void bindImportedGame(SQLiteStatement statement, ContentValues values) {
+        Long genre = values.getAsLong(GameEntry.COLUMN_GAME_GENRE);
+        Long priceCents = values.getAsLong(GameEntry.COLUMN_GAME_PRICE);
+        Long quantity = values.getAsLong(GameEntry.COLUMN_QUANTITY);
+
+        statement.clearBindings();
+        statement.bindString(1, values.getAsString(GameEntry.COLUMN_GAME_NAME));
+        statement.bindLong(2, genre != null ? genre : GameEntry.GENRE_UNKNOWN);
+        statement.bindLong(3, values.getAsInteger(GameEntry.COLUMN_GAME_PLATFORM));
+        statement.bindLong(4, priceCents != null ? priceCents : 0);
+        statement.bindLong(5, quantity != null ? quantity : 0);
+        statement.bindString(6, values.getAsString(GameEntry.COLUMN_SUPPLIER_NAME));
+        String supplierPhone = values.getAsString(GameEntry.COLUMN_SUPPLIER_PHONE);
+        if (supplierPhone != null) {
+            statement.bindString(7, supplierPhone);
+        }
+        // The imported games aren't watched
+        statement.bindLong(8, 0);
+    }
+
+    /**
+     * Check that the given content values describe a valid game, throw an
+     * {@link IllegalArgumentException} otherwise.
+     */
+    private static void validateGame(ContentValues values) {
+        GameValidator.checkGame(
+                values.getAsString(GameEntry.COLUMN_GAME_NAME),
+                values.getAsInteger(GameEntry.COLUMN_GAME_GENRE),
+                values.getAsInteger(GameEntry.COLUMN_GAME_PLATFORM),
+                getPriceCents(values),
+                values.getAsInteger(GameEntry.COLUMN_QUANTITY),
+                values.getAsString(GameEntry.COLUMN_SUPPLIER_NAME));
+        // The reorder threshold is optional, a game isn't watched by default
+        if (values.containsKey(GameEntry.COLUMN_REORDER_THRESHOLD)) {
+            GameValidator.checkReorderThreshold(values.getAsInteger(GameEntry.COLUMN_REORDER_THRESHOLD));
+        }
+    }
+
+    /**
+     * Returns the price of the given content values in cents, or null if there is none. A floating
+     * point price is rejected rather than truncated, since it can only be an amount in currency units.
+     */
+    private static Long getPriceCents(ContentValues values) {
+        Object price = values.get(GameEntry.COLUMN_GAME_PRICE);
+        if (price instanceof Double || price instanceof Float) {
+            throw new IllegalArgumentException("Game requires a price in cents");
+        }
+        return values.getAsLong(GameEntry.COLUMN_GAME_PRICE);
+    }
+
+    /**
+     * Bind the values of an already validated game to the compiled {@link GameSchema#SQL_INSERT_GAME} statement.
+     */
+    private static void bindGame(SQLiteStatement statement, ContentValues values) {
+        statement.clearBindings();
+        statement.bindString(1, values.getAsString(GameEntry.COLUMN_GAME_NAME));
+        statement.bindLong(2, values.getAsInteger(GameEntry.COLUMN_GAME_GENRE));
+        statement.bindLong(3, values.getAsInteger(GameEntry.COLUMN_GAME_PLATFORM));
+        statement.bindLong(4, values.getAsLong(GameEntry.COLUMN_GAME_PRICE));
+        statement.bindLong(5, values.getAsInteger(GameEntry.COLUMN_QUANTITY));
+        statement.bindString(6, values.getAsString(GameEntry.COLUMN_SUPPLIER_NAME));
+        String supplierPhone = values.getAsString(GameEntry.COLUMN_SUPPLIER_PHONE);
+        if (supplierPhone != null) {
+            statement.bindString(7, supplierPhone);
+        }
+        statement.bindLong(8, GameLowStockTracker.getThreshold(values));
     }
 
     /**
@@ -178,65 +884,110 @@ public class GameProvider extends ContentProvider {
         final int match = sUriMatcher.match(uri);
         switch (match) {
             case GAMES:
-                return updateGame(uri, contentValues, selection, selectionArgs);
+                return updateGame(uri, contentValues, selectCurrentStock(selection), selectionArgs);
             case GAME_ID:
                 // For the GAME_ID code, extract out the ID from the URI,
                 selection = GameEntry._ID + "=?";
                 selectionArgs = new String[] {String.valueOf(ContentUris.parseId(uri))};
                 return updateGame(uri, contentValues, selection, selectionArgs);
+            case GAME_SELL:
+                return changeStock(uri, GameSchema.SQL_SELL_GAME);
+            case GAME_RESTOCK:
+                return changeStock(uri, GameSchema.SQL_RESTOCK_GAME);
             default:
                 throw new IllegalArgumentException("Update is not supported for " + uri);
         }
     }
 
-    private int updateGame(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
-        // If the {@link GameEntry#COLUMN_GAME_NAME} key is present, check that the name is not null
-        if (values.containsKey(GameEntry.COLUMN_GAME_NAME)) {
-            String name = values.getAsString(GameEntry.COLUMN_GAME_NAME);
-            if (name == null || name.isEmpty()) {
-                throw new IllegalArgumentException("Game requires a name");
-            }
+    /**
+     * Returns the selection of the games table matching the games of the given selection of the
+     * games with their current stock, so that a condition on the quantity sees the pending movements.
+     * A selection that doesn't refer to the quantity is returned as is.
+     */
+    private static String selectCurrentStock(String selection) {
+        if (TextUtils.isEmpty(selection) || !selection.contains(GameEntry.COLUMN_QUANTITY)) {
+            return selection;
         }
+        return GameEntry._ID + " IN (SELECT " + GameEntry._ID + " FROM " + GameEntry.STOCK_VIEW_NAME
+                + " WHERE " + selection + ")";
+    }
 
-        // If the {@link GameEntry#COLUMN_GAME_GENRE} key is present, check that the genre is valid
-        if (values.containsKey(GameEntry.COLUMN_GAME_GENRE)) {
-            //
-            Integer genre = values.getAsInteger(GameEntry.COLUMN_GAME_GENRE);
-            if (genre == null || !GameEntry.isValidGenre(genre)) {
-                throw new IllegalArgumentException("Game requires a valid genre");
-            }
+    /**
+     * Change the stock of the game of the given sell or restock URI by adding a stock movement with
+     * a single conditional statement, so concurrent sales can't lose updates and the game itself
+     * isn't written. Return the number of games whose stock changed: 0 if the game doesn't exist or
+     * if there are not enough copies to sell.
+     */
+    private int changeStock(Uri uri, String sql) {
+        // The game id is the segment before "sell" or "restock"
+        long id = Long.parseLong(uri.getPathSegments().get(1));
+
+        long amount = 1;
+        String amountParameter = uri.getQueryParameter(GameEntry.QUERY_PARAMETER_AMOUNT);
+        if (amountParameter != null) {
+            amount = parseLongParameter(uri, amountParameter);
+        }
+        // The amount is checked before being narrowed, so that a huge amount isn't wrapped into a valid one
+        if (amount <= 0 || amount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Game requires a valid amount");
         }
 
-        // If the {@link GameEntry#COLUMN_GAME_PLATFORM} key is present, check that the platform is valid
-        if (values.containsKey(GameEntry.COLUMN_GAME_PLATFORM)) {
-            Integer platform = values.getAsInteger(GameEntry.COLUMN_GAME_PLATFORM);
-            if (platform == null || !GameEntry.isValidPlatform(platform)) {
-                throw new IllegalArgumentException("Game requires a valid platform");
-            }
+        // Get writable database
+        SQLiteDatabase database = getDbHelper().getWritableDatabase();
+        getLowStockTracker();
+
+        SQLiteStatement statement = database.compileStatement(sql);
+        int rowsUpdated;
+        try {
+            statement.bindLong(1, amount);
+            statement.bindLong(2, id);
+            statement.bindLong(3, System.currentTimeMillis());
+            rowsUpdated = statement.executeUpdateDelete();
+        } finally {
+            statement.close();
         }
 
-        // If the {@link GameEntry#COLUMN_GAME_PRICE} key is present, check that the price is valid
-        if (values.containsKey(GameEntry.COLUMN_GAME_PRICE)) {
-            Double price = values.getAsDouble(GameEntry.COLUMN_GAME_PRICE);
-            if (price == null || price < 0) {
-                throw new IllegalArgumentException("Game requires a valid price");
+        // If the stock changed, notify all listeners that the stock of this game has changed
+        if (rowsUpdated != 0) {
+            getCompactor().onMovementsAdded();
+            notifyChange(GameEntry.buildStockChangeUri(id));
+            if (getLowStockTracker().isWatched(id)) {
+                checkLowStockChanges();
             }
         }
 
-        // If the {@link GameEntry#COLUMN_QUANTITY} key is present, check that the quantity is valid
+        // Return the number of rows updated
+        return rowsUpdated;
+    }
+
+    /**
+     * Update the games of the given selection with the given values. A new quantity is set by adding
+     * a stock movement to each game whose stock differs, in the same transaction as the update of
+     * the other attributes. Return the number of games updated or, if only the quantity is given,
+     * the number of games whose stock changed.
+     */
+    private int updateGame(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        // Check each attribute that is present in the values
+        if (values.containsKey(GameEntry.COLUMN_GAME_NAME)) {
+            GameValidator.checkName(values.getAsString(GameEntry.COLUMN_GAME_NAME));
+        }
+        if (values.containsKey(GameEntry.COLUMN_GAME_GENRE)) {
+            GameValidator.checkGenre(values.getAsInteger(GameEntry.COLUMN_GAME_GENRE));
+        }
+        if (values.containsKey(GameEntry.COLUMN_GAME_PLATFORM)) {
+            GameValidator.checkPlatform(values.getAsInteger(GameEntry.COLUMN_GAME_PLATFORM));
+        }
+        if (values.containsKey(GameEntry.COLUMN_GAME_PRICE)) {
+            GameValidator.checkPrice(getPriceCents(values));
+        }
         if (values.containsKey(GameEntry.COLUMN_QUANTITY)) {
-            Integer quantity = values.getAsInteger(GameEntry.COLUMN_QUANTITY);
-            if (quantity == null || quantity < 0) {
-                throw new IllegalArgumentException("Game requires a valid quantity");
-            }
+            GameValidator.checkQuantity(values.getAsInteger(GameEntry.COLUMN_QUANTITY));
         }
-
-        // If the {@link GameEntry#COLUMN_SUPPLIER_NAME} key is present, check that the suppliername is valid
         if (values.containsKey(GameEntry.COLUMN_SUPPLIER_NAME)) {
-            String supplierName = values.getAsString(GameEntry.COLUMN_SUPPLIER_NAME);
-            if (supplierName == null || supplierName.isEmpty()) {
-                throw new IllegalArgumentException("Games requires a supplier name");
-            }
+            GameValidator.checkSupplierName(values.getAsString(GameEntry.COLUMN_SUPPLIER_NAME));
+        }
+        if (values.containsKey(GameEntry.COLUMN_REORDER_THRESHOLD)) {
+            GameValidator.checkReorderThreshold(values.getAsInteger(GameEntry.COLUMN_REORDER_THRESHOLD));
         }
 
         // No need to check the supplier phone, any value is valid (including null).
@@ -246,16 +997,71 @@ public class GameProvider extends ContentProvider {
             return 0;
         }
 
+        // The quantity isn't written to the games table, it is set with stock movements
+        Integer stock = values.getAsInteger(GameEntry.COLUMN_QUANTITY);
+        if (stock != null) {
+            values = new ContentValues(values);
+            values.remove(GameEntry.COLUMN_QUANTITY);
+        }
+
         // Otherwise, get writable database to update the data
-        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+        SQLiteDatabase database = getDbHelper().getWritableDatabase();
+        GameLowStockTracker lowStockTracker = getLowStockTracker();
 
-        // Perform the update on the database and get the number of rows affected
-        int rowsUpdated = database.update(GameEntry.TABLE_NAME, values, selection, selectionArgs);
+        int rowsUpdated = 0;
+        int stockChanges = 0;
+        database.beginTransaction();
+        try {
+            if (stock != null) {
+                SQLiteStatement adjustStock = database.compileStatement(
+                        GameSchema.buildAdjustStockStatement(selection, stock, System.currentTimeMillis()));
+                try {
+                    if (selectionArgs != null) {
+                        adjustStock.bindAllArgsAsStrings(selectionArgs);
+                    }
+                    stockChanges = adjustStock.executeUpdateDelete();
+                } finally {
+                    adjustStock.close();
+                }
+            }
+
+            // Perform the update on the database and get the number of rows affected
+            rowsUpdated = values.size() != 0
+                    ? database.update(GameEntry.TABLE_NAME, values, selection, selectionArgs)
+                    : stockChanges;
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+
+        if (stockChanges != 0) {
+            getCompactor().onMovementsAdded();
+        }
 
         // If 1 or more rows were updated, then notify all listeners that the data at the
         // given URI has changed
-        if (rowsUpdated != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+        if (rowsUpdated != 0 || stockChanges != 0) {
+            notifyChange(uri);
+        }
+
+        // The watchlist can only change with the threshold or the stock of a watched game
+        boolean singleGame = GameEntry.isGameUri(uri);
+        boolean lowStockChanged = false;
+        if (rowsUpdated != 0 && values.containsKey(GameEntry.COLUMN_REORDER_THRESHOLD)) {
+            if (singleGame) {
+                lowStockTracker.onThresholdChanged(ContentUris.parseId(uri), GameLowStockTracker.getThreshold(values));
+            } else {
+                lowStockTracker.reloadWatchedGames(database);
+            }
+            lowStockChanged = true;
+        }
+        if (stockChanges != 0) {
+            lowStockChanged |= singleGame
+                    ? lowStockTracker.isWatched(ContentUris.parseId(uri))
+                    : lowStockTracker.hasWatchedGames();
+        }
+        if (lowStockChanged) {
+            checkLowStockChanges();
         }
 
         // Return the number of rows updated
@@ -268,22 +1074,29 @@ public class GameProvider extends ContentProvider {
     @Override
     public int delete(@NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
         // Get writable database
-        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+        SQLiteDatabase database = getDbHelper().getWritableDatabase();
+        GameLowStockTracker lowStockTracker = getLowStockTracker();
 
-        // Track the number of rows that were deleted
+        // Track the number of rows that were deleted, and whether a watched game may be among them
         int rowsDeleted;
+        boolean watched;
 
         final int match = sUriMatcher.match(uri);
         switch (match) {
             case GAMES:
-                rowsDeleted = database.delete(GameEntry.TABLE_NAME, selection, selectionArgs);
+                rowsDeleted = database.delete(GameEntry.TABLE_NAME, selectCurrentStock(selection), selectionArgs);
+                watched = lowStockTracker.hasWatchedGames();
                 break;
             case GAME_ID:
                 // Delete a single row given by the ID in the URI
                 selection = GameEntry._ID + "=?";
                 selectionArgs = new String[]{String.valueOf(ContentUris.parseId(uri))};
                 rowsDeleted = database.delete(GameEntry.TABLE_NAME, selection, selectionArgs);
+                watched = lowStockTracker.isWatched(ContentUris.parseId(uri));
                 break;
+            case GAMES_PURGE:
+                // Delete a chunk of games without notifying the listeners, the purging caller does it once
+                return purgeGames(database, uri);
             default:
                 throw new IllegalArgumentException("Deletion is not supported for " + uri);
         }
@@ -291,13 +1104,282 @@ public class GameProvider extends ContentProvider {
         // If 1 or more rows were deleted, then notify all listeners that the data at the
         // given URI has changed
         if (rowsDeleted != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            notifyChange(uri);
+            if (watched) {
+                checkLowStockChanges();
+            }
         }
 
         // Return the number of rows deleted
         return rowsDeleted;
     }
 
+    /**
+     * Delete the chunk of games with the lowest ids whose size is given by the limit parameter of the URI,
+     * in a single statement. Return the number of games deleted, less than the limit once no game is left.
+     */
+    private int purgeGames(SQLiteDatabase database, Uri uri) {
+        String limitParameter = uri.getQueryParameter(GameEntry.QUERY_PARAMETER_LIMIT);
+        long limit = limitParameter == null ? 0 : parseLongParameter(uri, limitParameter);
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Purge requires a valid limit");
+        }
+        GameLowStockTracker lowStockTracker = getLowStockTracker();
+        int rowsDeleted = database.delete(GameEntry.TABLE_NAME,
+                GameEntry._ID + " IN (SELECT " + GameEntry._ID + " FROM " + GameEntry.TABLE_NAME
+                        + " ORDER BY " + GameEntry._ID + " LIMIT ?)",
+                new String[]{String.valueOf(limit)});
+
+        // The watched games leave the watchlist, which is notified even though the games aren't
+        if (rowsDeleted != 0 && lowStockTracker.hasWatchedGames()) {
+            checkLowStockChanges();
+        }
+        return rowsDeleted;
+    }
+
+    /**
+     * Apply all the given operations in a transaction, and notify listeners only once after the
+     * batch is committed. A batch without yield points is atomic: if any operation fails, the
+     * whole batch is rolled back.
+     * <p>
+     * A batch built with {@link ContentProviderOperation.Builder#withYieldAllowed(boolean)} is only
+     * atomic between its yield points. The work done so far is committed at a yield point if
+     * another thread is waiting to write, so that very large batches don't starve the other
+     * writers, and a failure only rolls back the operations after the last yield.
+     */
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        // Get writable database
+        SQLiteDatabase database = getDbHelper().getWritableDatabase();
+        GameLowStockTracker lowStockTracker = getLowStockTracker();
+
+        mApplyingBatch.set(true);
+        final ArrayList<Uri> batchChanges = new ArrayList<>();
+        mBatchChanges.set(batchChanges);
+        mBatchLowStockChanges.set(false);
+        boolean committed = false;
+        boolean yielded = false;
+        database.beginTransaction();
+        try {
+            final int numOperations = operations.size();
+            final ContentProviderResult[] results = new ContentProviderResult[numOperations];
+            for (int i = 0; i < numOperations; i++) {
+                final ContentProviderOperation operation = operations.get(i);
+                if (i > 0 && operation.isYieldAllowed()) {
+                    yielded |= database.yieldIfContendedSafely();
+                }
+                results[i] = operation.apply(this, results, i);
+            }
+            database.setTransactionSuccessful();
+            committed = true;
+            return results;
+        } finally {
+            database.endTransaction();
+            mApplyingBatch.set(false);
+            mBatchChanges.set(null);
+            boolean lowStockChanged = mBatchLowStockChanges.get();
+            mBatchLowStockChanges.set(false);
+
+            if (committed) {
+                // Report the changes of the whole batch at once, they are coalesced into a single notification
+                for (Uri uri : batchChanges) {
+                    getNotifier().onChange(uri);
+                }
+            } else {
+                if (yielded && !batchChanges.isEmpty()) {
+                    // Part of the batch was committed at a yield point before the failure
+                    getNotifier().onChange(GameEntry.CONTENT_URI);
+                }
+                if (lowStockChanged) {
+                    // The thresholds recorded by the rolled back operations may not have been kept
+                    lowStockTracker.reloadWatchedGames(database);
+                }
+            }
+            if (lowStockChanged && (committed || yielded)) {
+                checkLowStockChanges();
+            }
+        }
+    }
+
+    /**
+     * Notify all listeners that the data at the given URI has changed: either a single game or the
+     * whole games table. While a batch is being applied the notification is deferred until the end
+     * of the batch, and notifications are coalesced by {@link GameChangeNotifier}.
+     */
+    private void notifyChange(Uri uri) {
+        if (Boolean.TRUE.equals(mApplyingBatch.get())) {
+            mBatchChanges.get().add(uri);
+            return;
+        }
+        getNotifier().onChange(uri);
+    }
+
+    /**
+     * Report a change of the low stock watchlist if the triggers wrote to it since the last check.
+     * This is only called after a write to a watched game, as told by {@link GameLowStockTracker},
+     * so the other writes don't read the count of changes. While a batch is being applied the check
+     * is deferred until the end of the batch.
+     */
+    private void checkLowStockChanges() {
+        if (Boolean.TRUE.equals(mApplyingBatch.get())) {
+            mBatchLowStockChanges.set(true);
+            return;
+        }
+        boolean changed;
+        try {
+            changed = getLowStockTracker().checkChanges(getDbHelper().getReadableDatabase());
+        } catch (SQLiteException e) {
+            Log.e(LOG_TAG, "Failed to check the low stock watchlist", e);
+            return;
+        }
+        if (changed) {
+            getNotifier().onLowStockChange();
+        }
+    }
+
+    /**
+     * Handle the provider specific methods, see {@link GameContract#METHOD_GET_NOTIFICATION_STATS}
+     * and {@link GameContract#METHOD_COMPACT_STOCK}.
+     */
+    @Nullable
+    @Override
+    public Bundle call(@NonNull String method, @Nullable String arg, @Nullable Bundle extras) {
+        if (GameContract.METHOD_GET_NOTIFICATION_STATS.equals(method)) {
+            Bundle stats = new Bundle();
+            stats.putLong(GameContract.KEY_CHANGES_REPORTED, getNotifier().getChangesReported());
+            stats.putLong(GameContract.KEY_NOTIFICATIONS_SENT, getNotifier().getNotificationsSent());
+            return stats;
+        }
+        if (GameContract.METHOD_COMPACT_STOCK.equals(method)) {
+            Bundle result = new Bundle();
+            result.putInt(GameContract.KEY_MOVEMENTS_COMPACTED, getCompactor().compact());
+            return result;
+        }
+        return super.call(method, arg, extras);
+    }
+
+    /**
+     * Returns the type of the file of an export URI, if it matches the given filter.
+     */
+    @Nullable
+    @Override
+    public String[] getStreamTypes(@NonNull Uri uri, @NonNull String mimeTypeFilter) {
+        int match = sUriMatcher.match(uri);
+        if (match != GAMES_EXPORT_CSV && match != GAMES_EXPORT_JSONL) {
+            return null;
+        }
+        String type = getType(uri);
+        return ClipDescription.compareMimeTypes(type, mimeTypeFilter) ? new String[]{type} : null;
+    }
+
+    /**
+     * Open the file of an export URI. The games are written to a pipe by a background thread while
+     * the caller reads them, one page of games at a time, so the export doesn't hold the whole table
+     * in memory and the caller gets the first games right away. The pipe is reliable: if the export
+     * fails, {@link ParcelFileDescriptor#checkError()} tells the caller that the file is incomplete.
+     */
+    @Override
+    public ParcelFileDescriptor openFile(@NonNull Uri uri, @NonNull String mode) throws FileNotFoundException {
+        final int format;
+        switch (sUriMatcher.match(uri)) {
+            case GAMES_EXPORT_CSV:
+                format = GameExportWriter.FORMAT_CSV;
+                break;
+            case GAMES_EXPORT_JSONL:
+                format = GameExportWriter.FORMAT_JSONL;
+                break;
+            default:
+                throw new FileNotFoundException("No file at " + uri);
+        }
+        if (!"r".equals(mode)) {
+            throw new FileNotFoundException("The export " + uri + " can only be read");
+        }
+        final ParcelFileDescriptor[] pipe;
+        try {
+            pipe = ParcelFileDescriptor.createReliablePipe();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Failed to create the pipe of " + uri, e);
+            throw new FileNotFoundException("Failed to create the pipe of " + uri);
+        }
+        final Uri exportUri = uri;
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                exportGames(pipe[1], exportUri, format);
+            }
+        });
+        return pipe[0];
+    }
+
+    /**
+     * Write all the games to the given pipe in the given format, and close it. The games are read by
+     * pages of {@link #EXPORT_PAGE_SIZE} ids, each page being sent to the reader before the next one
+     * is read. The export stops if the reader closes the pipe. If the games can't be read, the pipe
+     * is closed with an error rather than letting the exception end the process.
+     */
+    private void exportGames(ParcelFileDescriptor output, Uri uri, int format) {
+        long startMillis = SystemClock.elapsedRealtime();
+        int rowsExported = 0;
+        String error = null;
+
+        // The stream doesn't own the file descriptor, which is closed with the status of the export
+        try (GameExportWriter writer = new GameExportWriter(new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(output.getFileDescriptor()), "UTF-8"), EXPORT_BUFFER_SIZE), format)) {
+            SQLiteDatabase database = getDbHelper().getReadableDatabase();
+
+            // The games inserted during the export are left out, so that it ends
+            long maxId = DatabaseUtils.longForQuery(database, GameSchema.SQL_SELECT_LAST_GAME_ID, null);
+            String selection = GameEntry._ID + " > ? AND " + GameEntry._ID + " <= ?";
+            String limit = String.valueOf(EXPORT_PAGE_SIZE);
+
+            writer.writeHeader();
+            long lastId = 0;
+            int pageCount;
+            do {
+                Cursor cursor = database.query(GameEntry.STOCK_VIEW_NAME, GameExportWriter.COLUMNS, selection,
+                        new String[]{String.valueOf(lastId), String.valueOf(maxId)},
+                        null, null, GameEntry._ID, limit);
+                try {
+                    pageCount = cursor.getCount();
+                    while (cursor.moveToNext()) {
+                        lastId = cursor.getLong(0);
+                        writer.writeGame(lastId, cursor.getString(1), cursor.getInt(2), cursor.getInt(3),
+                                cursor.getLong(4), cursor.getInt(5), cursor.getString(6), cursor.getString(7));
+                    }
+                } finally {
+                    cursor.close();
+                }
+                rowsExported += pageCount;
+                // Hand the page over to the reader before reading the next one
+                writer.flush();
+            } while (pageCount == EXPORT_PAGE_SIZE);
+        } catch (IOException e) {
+            // Most likely the reader closed the pipe before the end
+            Log.w(LOG_TAG, "Export of " + uri + " stopped after " + rowsExported + " rows", e);
+            error = "Export stopped after " + rowsExported + " rows";
+        } catch (RuntimeException e) {
+            // The database couldn't be read, the reader must not take the file as complete
+            Log.e(LOG_TAG, "Export of " + uri + " failed after " + rowsExported + " rows", e);
+            error = "Export failed after " + rowsExported + " rows: " + e.getMessage();
+        }
+
+        try {
+            if (error == null) {
+                output.close();
+            } else {
+                output.closeWithError(error);
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Failed to close the pipe of " + uri, e);
+        }
+        if (error == null) {
+            Log.v(LOG_TAG, rowsExported + " rows exported to " + uri + " in "
+                    + (SystemClock.elapsedRealtime() - startMillis) + " ms");
+        }
+    }
+
     /**
      * Returns the MIME type of data for the content URI.
      */
@@ -310,6 +1392,24 @@ public class GameProvider extends ContentProvider {
                 return GameEntry.CONTENT_LIST_TYPE;
             case GAME_ID:
                 return GameEntry.CONTENT_ITEM_TYPE;
+            case GAMES_SEARCH:
+                return GameEntry.CONTENT_LIST_TYPE;
+            case GAMES_STATS:
+                return StatsEntry.CONTENT_LIST_TYPE;
+            case GAMES_PURGE:
+            case GAMES_IMPORT:
+                return GameEntry.CONTENT_LIST_TYPE;
+            case GAMES_EXPORT_CSV:
+                return GameEntry.EXPORT_CSV_TYPE;
+            case GAMES_EXPORT_JSONL:
+                return GameEntry.EXPORT_JSONL_TYPE;
+            case GAME_SELL:
+            case GAME_RESTOCK:
+                return GameEntry.CONTENT_ITEM_TYPE;
+            case STOCK_MOVEMENTS:
+                return StockMovementEntry.CONTENT_LIST_TYPE;
+            case LOW_STOCK:
+                return LowStockEntry.CONTENT_LIST_TYPE;
             default:
                 throw new IllegalStateException("Unknown URI " + uri + " with match " + match);
         }
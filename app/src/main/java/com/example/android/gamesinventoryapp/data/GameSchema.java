@@ -0,0 +1,816 @@
+package com.example.android.gamesinventoryapp.data;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameContract.LowStockEntry;
+import com.example.android.gamesinventoryapp.data.GameContract.StatsEntry;
+import com.example.android.gamesinventoryapp.data.GameContract.StockMovementEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQL statements of the games database: the schema, its migrations and the statements compiled by
+ * {@link GameProvider}. This class only uses constants from {@link GameContract}, which are inlined
+ * by the compiler, so it doesn't depend on the Android framework and can also be used on a plain JVM.
+ */
+public final class GameSchema {
+
+    // Empty constructor
+    private GameSchema() {
+    }
+
+    /**
+     * Initial version of the schema, with the games table only.
+     */
+    public static final int VERSION_INITIAL = 1;
+
+    /**
+     * Adds the secondary indexes on the games table.
+     */
+    public static final int VERSION_INDEXES = 2;
+
+    /**
+     * Adds the full-text search table over the games and the triggers keeping it in sync.
+     */
+    public static final int VERSION_SEARCH = 3;
+
+    /**
+     * Adds the inventory statistics table and the triggers maintaining it.
+     */
+    public static final int VERSION_STATS = 4;
+
+    /**
+     * Adds the genre and platform facets: their own indexes and the genre and platform pairs statistics.
+     */
+    public static final int VERSION_FACETS = 5;
+
+    /**
+     * Stores the prices and the stock values as integer cents instead of floating point amounts.
+     */
+    public static final int VERSION_PRICE_CENTS = 6;
+
+    /**
+     * Adds the stock movements ledger, and the view of the games with their current stock.
+     */
+    public static final int VERSION_STOCK_MOVEMENTS = 7;
+
+    /**
+     * Adds the reorder threshold of the games, and the low stock watchlist maintained by triggers.
+     */
+    public static final int VERSION_LOW_STOCK = 8;
+
+    /**
+     * Lets the imports add their games to the search table and the statistics once per batch instead
+     * of once per game, and only updates the search table when a searchable column changes.
+     */
+    public static final int VERSION_IMPORT = 9;
+
+    /**
+     * Database version. Each version above {@link #VERSION_INITIAL} has its own step in {@link #getMigration(int)}.
+     */
+    public static final int DATABASE_VERSION = VERSION_IMPORT;
+
+    /**
+     * Statement creating the games table of {@link #VERSION_INITIAL}.
+     */
+    public static final String SQL_CREATE_GAMES_TABLE = "CREATE TABLE " + GameEntry.TABLE_NAME + " ("
+            + GameEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + GameEntry.COLUMN_GAME_NAME + " TEXT NOT NULL, "
+            + GameEntry.COLUMN_GAME_GENRE + " INTEGER NOT NULL, "
+            + GameEntry.COLUMN_GAME_PLATFORM + " INTEGER NOT NULL, "
+            + GameEntry.COLUMN_GAME_PRICE + " REAL NOT NULL DEFAULT 0.00, "
+            + GameEntry.COLUMN_QUANTITY + " INTEGER NOT NULL DEFAULT 0, "
+            + GameEntry.COLUMN_SUPPLIER_NAME + " TEXT NOT NULL, "
+            + GameEntry.COLUMN_SUPPLIER_PHONE + " TEXT);";
+
+    /**
+     * Name of the table the games are copied to by {@link #VERSION_PRICE_CENTS}, before it replaces the games table
+     */
+    private static final String PRICE_CENTS_TABLE_NAME = "games_price_cents";
+
+    /**
+     * Statement creating the games table of {@link #VERSION_PRICE_CENTS}, with the price in cents
+     */
+    private static final String SQL_CREATE_PRICE_CENTS_TABLE = "CREATE TABLE " + PRICE_CENTS_TABLE_NAME + " ("
+            + GameEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + GameEntry.COLUMN_GAME_NAME + " TEXT NOT NULL, "
+            + GameEntry.COLUMN_GAME_GENRE + " INTEGER NOT NULL, "
+            + GameEntry.COLUMN_GAME_PLATFORM + " INTEGER NOT NULL, "
+            + GameEntry.COLUMN_GAME_PRICE + " INTEGER NOT NULL DEFAULT 0, "
+            + GameEntry.COLUMN_QUANTITY + " INTEGER NOT NULL DEFAULT 0, "
+            + GameEntry.COLUMN_SUPPLIER_NAME + " TEXT NOT NULL, "
+            + GameEntry.COLUMN_SUPPLIER_PHONE + " TEXT);";
+
+    /**
+     * Statement inserting a game, with the name, genre, platform, price, quantity, supplier name,
+     * supplier phone and reorder threshold as arguments.
+     */
+    public static final String SQL_INSERT_GAME = "INSERT INTO " + GameEntry.TABLE_NAME + " ("
+            + GameEntry.COLUMN_GAME_NAME + ", "
+            + GameEntry.COLUMN_GAME_GENRE + ", "
+            + GameEntry.COLUMN_GAME_PLATFORM + ", "
+            + GameEntry.COLUMN_GAME_PRICE + ", "
+            + GameEntry.COLUMN_QUANTITY + ", "
+            + GameEntry.COLUMN_SUPPLIER_NAME + ", "
+            + GameEntry.COLUMN_SUPPLIER_PHONE + ", "
+            + GameEntry.COLUMN_REORDER_THRESHOLD + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Beginning of the statements adding a stock movement, followed by the SELECT of its values
+     */
+    private static final String SQL_INSERT_MOVEMENT = "INSERT INTO " + StockMovementEntry.TABLE_NAME + " ("
+            + StockMovementEntry.COLUMN_GAME_ID + ", " + StockMovementEntry.COLUMN_KIND + ", "
+            + StockMovementEntry.COLUMN_DELTA + ", " + StockMovementEntry.COLUMN_CREATED_AT + ") ";
+
+    /**
+     * Statement selling copies of a game, only if there are enough of them in stock. The sale is
+     * added to the stock movements, the game itself isn't written. The arguments are the amount,
+     * the id of the game and the time of the sale.
+     */
+    public static final String SQL_SELL_GAME = SQL_INSERT_MOVEMENT + "SELECT " + GameEntry._ID + ", "
+            + StockMovementEntry.KIND_SALE + ", -?1, ?3 FROM " + GameEntry.STOCK_VIEW_NAME
+            + " WHERE " + GameEntry._ID + " = ?2 AND " + GameEntry.COLUMN_QUANTITY + " >= ?1";
+
+    /**
+     * Statement restocking copies of a game, added to the stock movements. The arguments are the
+     * amount, the id of the game and the time of the restock.
+     */
+    public static final String SQL_RESTOCK_GAME = SQL_INSERT_MOVEMENT + "SELECT " + GameEntry._ID + ", "
+            + StockMovementEntry.KIND_RESTOCK + ", ?1, ?3 FROM " + GameEntry.TABLE_NAME
+            + " WHERE " + GameEntry._ID + " = ?2";
+
+    /**
+     * Build the statement setting the stock of the games matching the given condition, by adding a
+     * stock movement for each game whose stock differs. The arguments of the statement are those of
+     * the condition: the stock and the time of the change are inlined, so that they can't be
+     * numbered before the arguments of the condition.
+     */
+    public static String buildAdjustStockStatement(String selection, int stock, long time) {
+        return SQL_INSERT_MOVEMENT + "SELECT " + GameEntry._ID + ", " + StockMovementEntry.KIND_ADJUSTMENT
+                + ", " + stock + " - " + GameEntry.COLUMN_QUANTITY + ", " + time + " FROM " + GameEntry.STOCK_VIEW_NAME
+                + " WHERE " + (selection != null && !selection.isEmpty() ? "(" + selection + ") AND " : "")
+                + GameEntry.COLUMN_QUANTITY + " <> " + stock;
+    }
+
+    /**
+     * Statement setting the stock of a game, by adding a stock movement unless the stock is already
+     * right. The arguments are the stock, the id of the game and the time of the change.
+     */
+    public static final String SQL_ADJUST_STOCK = SQL_INSERT_MOVEMENT + "SELECT " + GameEntry._ID + ", "
+            + StockMovementEntry.KIND_ADJUSTMENT + ", ?1 - " + GameEntry.COLUMN_QUANTITY + ", ?3 FROM "
+            + GameEntry.STOCK_VIEW_NAME + " WHERE " + GameEntry._ID + " = ?2 AND " + GameEntry.COLUMN_QUANTITY + " <> ?1";
+
+    /**
+     * Expression of the id of the last stock movement folded into the quantities of the games
+     */
+    private static final String SQL_LAST_COMPACTED_MOVEMENT = "(SELECT " + StockMovementEntry.COLUMN_LAST_MOVEMENT_ID
+            + " FROM " + StockMovementEntry.COMPACTION_TABLE_NAME + ")";
+
+    /**
+     * Query counting the stock movements that are not folded into the quantities of the games yet
+     */
+    public static final String SQL_COUNT_PENDING_MOVEMENTS = "SELECT COUNT(*) FROM " + StockMovementEntry.TABLE_NAME
+            + " WHERE " + StockMovementEntry._ID + " > " + SQL_LAST_COMPACTED_MOVEMENT;
+
+    /**
+     * Statement folding the pending stock movements into the quantities of their games. Only the
+     * quantity is written, which doesn't change the statistics: they already count the movements.
+     * It must run in the same transaction as {@link #SQL_MARK_STOCK_COMPACTED}.
+     */
+    public static final String SQL_COMPACT_STOCK = "UPDATE " + GameEntry.TABLE_NAME + " SET "
+            + GameEntry.COLUMN_QUANTITY + " = " + GameEntry.COLUMN_QUANTITY + " + "
+            + buildPendingStock(GameEntry.TABLE_NAME + "." + GameEntry._ID)
+            + " WHERE " + GameEntry._ID + " IN (SELECT " + StockMovementEntry.COLUMN_GAME_ID + " FROM "
+            + StockMovementEntry.TABLE_NAME + " WHERE " + StockMovementEntry._ID + " > " + SQL_LAST_COMPACTED_MOVEMENT + ")";
+
+    /**
+     * Statement marking every stock movement as folded into the quantities of the games
+     */
+    public static final String SQL_MARK_STOCK_COMPACTED = "UPDATE " + StockMovementEntry.COMPACTION_TABLE_NAME
+            + " SET " + StockMovementEntry.COLUMN_LAST_MOVEMENT_ID + " = IFNULL((SELECT MAX(" + StockMovementEntry._ID
+            + ") FROM " + StockMovementEntry.TABLE_NAME + "), " + StockMovementEntry.COLUMN_LAST_MOVEMENT_ID + ")";
+
+    /**
+     * Query reading the number of changes of the low stock watchlist, which only grows
+     */
+    public static final String SQL_COUNT_LOW_STOCK_CHANGES = "SELECT " + LowStockEntry.COLUMN_CHANGE_COUNT
+            + " FROM " + LowStockEntry.CHANGES_TABLE_NAME;
+
+    /**
+     * Query reading the ids of the games watched for low stock, in increasing order
+     */
+    public static final String SQL_SELECT_WATCHED_GAMES = "SELECT " + GameEntry._ID + " FROM " + GameEntry.TABLE_NAME
+            + " WHERE " + GameEntry.COLUMN_REORDER_THRESHOLD + " > 0 ORDER BY " + GameEntry._ID;
+
+    /**
+     * Build the expression of the sum of the pending stock movements of the game of the given id.
+     */
+    private static String buildPendingStock(String gameId) {
+        return "IFNULL((SELECT SUM(" + StockMovementEntry.COLUMN_DELTA + ") FROM " + StockMovementEntry.TABLE_NAME
+                + " WHERE " + StockMovementEntry.COLUMN_GAME_ID + " = " + gameId + " AND "
+                + StockMovementEntry._ID + " > " + SQL_LAST_COMPACTED_MOVEMENT + "), 0)";
+    }
+
+    /**
+     * Statement finding the id of the game with the given name and platform, the key of the imported
+     * games. The arguments are the name and the platform. The unary plus keeps SQLite from using the
+     * platform index, which would scan a fifth of the catalog, instead of the name index.
+     */
+    public static final String SQL_FIND_IMPORTED_GAME = "SELECT " + GameEntry._ID + " FROM " + GameEntry.TABLE_NAME
+            + " WHERE " + GameEntry.COLUMN_GAME_NAME + " = ?1 AND +" + GameEntry.COLUMN_GAME_PLATFORM + " = ?2 LIMIT 1";
+
+    /**
+     * Statement updating an imported game that already exists. The arguments are the genre, price,
+     * supplier name and supplier phone, null to keep the current value, and the id of the game; its
+     * stock is set by {@link #SQL_ADJUST_STOCK}. A game whose attributes don't change isn't written,
+     * so importing the same list again is cheap.
+     */
+    public static final String SQL_UPDATE_IMPORTED_GAME = "UPDATE " + GameEntry.TABLE_NAME + " SET "
+            + GameEntry.COLUMN_GAME_GENRE + " = IFNULL(?1, " + GameEntry.COLUMN_GAME_GENRE + "), "
+            + GameEntry.COLUMN_GAME_PRICE + " = IFNULL(?2, " + GameEntry.COLUMN_GAME_PRICE + "), "
+            + GameEntry.COLUMN_SUPPLIER_NAME + " = IFNULL(?3, " + GameEntry.COLUMN_SUPPLIER_NAME + "), "
+            + GameEntry.COLUMN_SUPPLIER_PHONE + " = IFNULL(?4, " + GameEntry.COLUMN_SUPPLIER_PHONE + ")"
+            + " WHERE " + GameEntry._ID + " = ?5 AND ("
+            + "IFNULL(?1, " + GameEntry.COLUMN_GAME_GENRE + ") IS NOT " + GameEntry.COLUMN_GAME_GENRE
+            + " OR IFNULL(?2, " + GameEntry.COLUMN_GAME_PRICE + ") IS NOT " + GameEntry.COLUMN_GAME_PRICE
+            + " OR IFNULL(?3, " + GameEntry.COLUMN_SUPPLIER_NAME + ") IS NOT " + GameEntry.COLUMN_SUPPLIER_NAME
+            + " OR IFNULL(?4, " + GameEntry.COLUMN_SUPPLIER_PHONE + ") IS NOT " + GameEntry.COLUMN_SUPPLIER_PHONE + ")";
+
+    /**
+     * Query reading the id of the last game, 0 if there is none. The ids are never reused, so the
+     * games inserted after it have greater ids.
+     */
+    public static final String SQL_SELECT_LAST_GAME_ID = "SELECT IFNULL(MAX(" + GameEntry._ID + "), 0) FROM "
+            + GameEntry.TABLE_NAME;
+
+    /**
+     * Statement telling the triggers that a batch of imported games is being written, so that they
+     * leave the search table and the statistics alone. It must run in the transaction of the batch,
+     * which runs {@link #SQL_FINISH_IMPORT} before being committed.
+     */
+    public static final String SQL_START_IMPORT = "UPDATE " + GameEntry.IMPORT_TABLE_NAME + " SET "
+            + GameEntry.COLUMN_IMPORTING + " = 1";
+
+    /**
+     * Statement telling the triggers that the batch of imported games is written
+     */
+    public static final String SQL_FINISH_IMPORT = "UPDATE " + GameEntry.IMPORT_TABLE_NAME + " SET "
+            + GameEntry.COLUMN_IMPORTING + " = 0";
+
+    /**
+     * Statement adding the games inserted by an import to the search table, all at once. Its argument
+     * is the id of the last game before the import, as read by {@link #SQL_SELECT_LAST_GAME_ID}.
+     */
+    public static final String SQL_INDEX_IMPORTED_GAMES = "INSERT INTO " + GameEntry.SEARCH_TABLE_NAME
+            + " (docid, " + GameEntry.COLUMN_GAME_NAME + ", " + GameEntry.COLUMN_SUPPLIER_NAME + ") SELECT "
+            + GameEntry._ID + ", " + GameEntry.COLUMN_GAME_NAME + ", " + GameEntry.COLUMN_SUPPLIER_NAME
+            + " FROM " + GameEntry.TABLE_NAME + " WHERE " + GameEntry._ID + " > ?";
+
+    /**
+     * WHEN clause of the triggers skipped while a batch of imported games is written
+     */
+    private static final String SQL_WHEN_NOT_IMPORTING = " WHEN (SELECT " + GameEntry.COLUMN_IMPORTING
+            + " FROM " + GameEntry.IMPORT_TABLE_NAME + ") = 0";
+
+    /**
+     * Sub-query returning the ids of the games matching an FTS match expression
+     */
+    public static final String SQL_SELECT_SEARCH_MATCHES = "SELECT docid FROM " + GameEntry.SEARCH_TABLE_NAME
+            + " WHERE " + GameEntry.SEARCH_TABLE_NAME + " MATCH ?";
+
+    /**
+     * Trigger statement removing the old version of a game from the search table
+     */
+    private static final String SQL_DELETE_SEARCH_ROW = "DELETE FROM " + GameEntry.SEARCH_TABLE_NAME
+            + " WHERE docid = old." + GameEntry._ID + ";";
+
+    /**
+     * Trigger statement adding the new version of a game to the search table
+     */
+    private static final String SQL_INSERT_SEARCH_ROW = "INSERT INTO " + GameEntry.SEARCH_TABLE_NAME
+            + "(docid, " + GameEntry.COLUMN_GAME_NAME + ", " + GameEntry.COLUMN_SUPPLIER_NAME + ") VALUES (new."
+            + GameEntry._ID + ", new." + GameEntry.COLUMN_GAME_NAME + ", new." + GameEntry.COLUMN_SUPPLIER_NAME + ");";
+
+    /**
+     * Dimensions of the inventory statistics of {@link #VERSION_STATS}, with the columns of the group key of a game
+     */
+    private static final String[][] STATS_DIMENSIONS = {
+            {StatsEntry.DIMENSION_TOTAL},
+            {StatsEntry.DIMENSION_GENRE, GameEntry.COLUMN_GAME_GENRE},
+            {StatsEntry.DIMENSION_PLATFORM, GameEntry.COLUMN_GAME_PLATFORM},
+            {StatsEntry.DIMENSION_SUPPLIER, GameEntry.COLUMN_SUPPLIER_NAME}};
+
+    /**
+     * Dimension of the inventory statistics added by {@link #VERSION_FACETS}
+     */
+    private static final String[] GENRE_PLATFORM_DIMENSION =
+            {StatsEntry.DIMENSION_GENRE_PLATFORM, GameEntry.COLUMN_GAME_GENRE, GameEntry.COLUMN_GAME_PLATFORM};
+
+    /**
+     * Dimensions of the inventory statistics of {@link #VERSION_FACETS}
+     */
+    private static final String[][] FACETS_STATS_DIMENSIONS = {
+            STATS_DIMENSIONS[0], STATS_DIMENSIONS[1], STATS_DIMENSIONS[2], STATS_DIMENSIONS[3],
+            GENRE_PLATFORM_DIMENSION};
+
+    /**
+     * Build the expression of the group key of a game in the given dimension, reading the columns
+     * of the game with the given prefix ("new.", "old." or an empty prefix).
+     */
+    private static String buildGroupKey(String[] dimension, String prefix) {
+        switch (dimension.length) {
+            case 1:
+                // The total has a single group
+                return "0";
+            case 2:
+                return prefix + dimension[1];
+            default:
+                // See StatsEntry#buildGenrePlatformKey(int, int)
+                return "(" + prefix + dimension[1] + " * " + StatsEntry.GENRE_PLATFORM_KEY_FACTOR
+                        + " + " + prefix + dimension[2] + ")";
+        }
+    }
+
+    /**
+     * Build the trigger statements adding (sign 1) or removing (sign -1) the "new" or "old" game
+     * to or from its group in every given dimension of the inventory statistics. Empty groups are deleted.
+     */
+    private static String buildStatsStatements(String[][] dimensions, String row, int sign) {
+        return buildStatsStatements(dimensions, row, sign, row + "." + GameEntry.COLUMN_QUANTITY);
+    }
+
+    /**
+     * Build the trigger statements adding or removing the "new" or "old" game to or from its groups,
+     * like {@link #buildStatsStatements(String[][], String, int)}, with the given expression of its stock.
+     */
+    private static String buildStatsStatements(String[][] dimensions, String row, int sign, String stock) {
+        String op = sign > 0 ? " + " : " - ";
+        StringBuilder sql = new StringBuilder();
+        for (String[] dimension : dimensions) {
+            String groupKey = buildGroupKey(dimension, row + ".");
+            String where = " WHERE " + StatsEntry.COLUMN_DIMENSION + " = '" + dimension[0] + "' AND "
+                    + StatsEntry.COLUMN_GROUP_KEY + " = " + groupKey + ";";
+            if (sign > 0) {
+                sql.append("INSERT OR IGNORE INTO ").append(StatsEntry.TABLE_NAME).append(" (")
+                        .append(StatsEntry.COLUMN_DIMENSION).append(", ").append(StatsEntry.COLUMN_GROUP_KEY)
+                        .append(") VALUES ('").append(dimension[0]).append("', ").append(groupKey).append("); ");
+            }
+            sql.append("UPDATE ").append(StatsEntry.TABLE_NAME).append(" SET ")
+                    .append(StatsEntry.COLUMN_GAME_COUNT).append(" = ").append(StatsEntry.COLUMN_GAME_COUNT).append(op).append("1, ")
+                    .append(StatsEntry.COLUMN_TOTAL_STOCK).append(" = ").append(StatsEntry.COLUMN_TOTAL_STOCK).append(op)
+                    .append(stock).append(", ")
+                    .append(StatsEntry.COLUMN_TOTAL_VALUE).append(" = ").append(StatsEntry.COLUMN_TOTAL_VALUE).append(op)
+                    .append(row).append('.').append(GameEntry.COLUMN_GAME_PRICE).append(" * ")
+                    .append(stock)
+                    .append(where).append(' ');
+            if (sign < 0) {
+                sql.append("DELETE FROM ").append(StatsEntry.TABLE_NAME).append(where.replace(";", " AND "))
+                        .append(StatsEntry.COLUMN_GAME_COUNT).append(" = 0; ");
+            }
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Add the statements creating the triggers that move every game in and out of its groups in the
+     * given dimensions, as it is inserted, updated and deleted.
+     */
+    private static void addStatsTriggers(List<String> statements, String[][] dimensions) {
+        statements.add("CREATE TRIGGER games_stats_after_insert AFTER INSERT ON "
+                + GameEntry.TABLE_NAME + " BEGIN "
+                + buildStatsStatements(dimensions, "new", 1) + " END;");
+        statements.add("CREATE TRIGGER games_stats_after_update AFTER UPDATE OF "
+                + GameEntry.COLUMN_GAME_GENRE + ", " + GameEntry.COLUMN_GAME_PLATFORM + ", "
+                + GameEntry.COLUMN_GAME_PRICE + ", " + GameEntry.COLUMN_QUANTITY + ", "
+                + GameEntry.COLUMN_SUPPLIER_NAME + " ON " + GameEntry.TABLE_NAME + " BEGIN "
+                + buildStatsStatements(dimensions, "old", -1) + " "
+                + buildStatsStatements(dimensions, "new", 1) + " END;");
+        statements.add("CREATE TRIGGER games_stats_after_delete AFTER DELETE ON "
+                + GameEntry.TABLE_NAME + " BEGIN "
+                + buildStatsStatements(dimensions, "old", -1) + " END;");
+    }
+
+    /**
+     * Add the statements creating the triggers that maintain the statistics of {@link #VERSION_STOCK_MOVEMENTS},
+     * where the stock of a game is its quantity plus its pending stock movements. Each movement
+     * moves the stock and value of the groups of its game, so folding the movements into the
+     * quantities must not: the update trigger ignores the updates of the quantity alone.
+     */
+    private static void addStockStatsTriggers(List<String> statements, String[][] dimensions) {
+        addStockStatsTriggers(statements, dimensions, "");
+    }
+
+    /**
+     * Add the statements creating the triggers of {@link #addStockStatsTriggers(List, String[][])},
+     * the insert and update triggers of the games and the trigger of the movements only running
+     * with the given WHEN clause.
+     */
+    private static void addStockStatsTriggers(List<String> statements, String[][] dimensions, String when) {
+        String oldStock = "(old." + GameEntry.COLUMN_QUANTITY + " + " + buildPendingStock("old." + GameEntry._ID) + ")";
+        String newStock = "(new." + GameEntry.COLUMN_QUANTITY + " + " + buildPendingStock("new." + GameEntry._ID) + ")";
+
+        // The ids of the games are never reused, so a new game has no pending movement
+        statements.add("CREATE TRIGGER games_stats_after_insert AFTER INSERT ON "
+                + GameEntry.TABLE_NAME + when + " BEGIN "
+                + buildStatsStatements(dimensions, "new", 1) + " END;");
+        statements.add("CREATE TRIGGER games_stats_after_update AFTER UPDATE OF "
+                + GameEntry.COLUMN_GAME_GENRE + ", " + GameEntry.COLUMN_GAME_PLATFORM + ", "
+                + GameEntry.COLUMN_GAME_PRICE + ", " + GameEntry.COLUMN_SUPPLIER_NAME + " ON "
+                + GameEntry.TABLE_NAME + when + " BEGIN "
+                + buildStatsStatements(dimensions, "old", -1, oldStock) + " "
+                + buildStatsStatements(dimensions, "new", 1, newStock) + " END;");
+        // The movements of a deleted game are deleted once its stock is taken out of the statistics
+        statements.add("CREATE TRIGGER games_stats_after_delete AFTER DELETE ON "
+                + GameEntry.TABLE_NAME + " BEGIN "
+                + buildStatsStatements(dimensions, "old", -1, oldStock) + " DELETE FROM "
+                + StockMovementEntry.TABLE_NAME + " WHERE " + StockMovementEntry.COLUMN_GAME_ID
+                + " = old." + GameEntry._ID + "; END;");
+
+        // Move the stock and value of the groups of the game of every new movement
+        String game = " FROM " + GameEntry.TABLE_NAME + " WHERE " + GameEntry._ID + " = new."
+                + StockMovementEntry.COLUMN_GAME_ID + ")";
+        StringBuilder sql = new StringBuilder("CREATE TRIGGER stock_movements_stats_after_insert AFTER INSERT ON ")
+                .append(StockMovementEntry.TABLE_NAME).append(when).append(" BEGIN ");
+        for (String[] dimension : dimensions) {
+            String groupKey = dimension.length == 1 ? buildGroupKey(dimension, "") : "(SELECT " + buildGroupKey(dimension, "") + game;
+            sql.append("UPDATE ").append(StatsEntry.TABLE_NAME).append(" SET ")
+                    .append(StatsEntry.COLUMN_TOTAL_STOCK).append(" = ").append(StatsEntry.COLUMN_TOTAL_STOCK)
+                    .append(" + new.").append(StockMovementEntry.COLUMN_DELTA).append(", ")
+                    .append(StatsEntry.COLUMN_TOTAL_VALUE).append(" = ").append(StatsEntry.COLUMN_TOTAL_VALUE)
+                    .append(" + new.").append(StockMovementEntry.COLUMN_DELTA).append(" * (SELECT ")
+                    .append(GameEntry.COLUMN_GAME_PRICE).append(game)
+                    .append(" WHERE ").append(StatsEntry.COLUMN_DIMENSION).append(" = '").append(dimension[0])
+                    .append("' AND ").append(StatsEntry.COLUMN_GROUP_KEY).append(" = ").append(groupKey).append("; ");
+        }
+        statements.add(sql.append("END;").toString());
+    }
+
+    /**
+     * Build the statements adding (sign 1) or removing (sign -1) the games matching the given selection
+     * to or from their groups, with their current stock, in one statement per dimension. This is what
+     * the statistics triggers do game by game, done at once for a batch of imported games. The groups
+     * left empty are deleted.
+     */
+    public static List<String> buildImportStatsStatements(String selection, int sign) {
+        String op = sign > 0 ? " + " : " - ";
+        List<String> statements = new ArrayList<>();
+        for (String[] dimension : FACETS_STATS_DIMENSIONS) {
+            // The unary plus keeps SQLite from scanning all the games in the order of the index of
+            // the dimension to group them, instead of reading the selected games by id
+            String groupKey = buildGroupKey(dimension, "");
+            statements.add("INSERT OR REPLACE INTO " + StatsEntry.TABLE_NAME + " SELECT '" + dimension[0]
+                    + "', g.k, IFNULL(s." + StatsEntry.COLUMN_GAME_COUNT + ", 0)" + op + "g.c, IFNULL(s."
+                    + StatsEntry.COLUMN_TOTAL_STOCK + ", 0)" + op + "g.q, IFNULL(s." + StatsEntry.COLUMN_TOTAL_VALUE
+                    + ", 0)" + op + "g.v FROM (SELECT " + groupKey + " AS k, COUNT(*) AS c, IFNULL(SUM("
+                    + GameEntry.COLUMN_QUANTITY + "), 0) AS q, IFNULL(SUM(" + GameEntry.COLUMN_GAME_PRICE + " * "
+                    + GameEntry.COLUMN_QUANTITY + "), 0) AS v FROM " + GameEntry.STOCK_VIEW_NAME + " WHERE "
+                    + selection + (dimension.length == 1 ? "" : " GROUP BY +" + groupKey) + ") g LEFT JOIN "
+                    + StatsEntry.TABLE_NAME + " s ON s." + StatsEntry.COLUMN_DIMENSION + " = '" + dimension[0]
+                    + "' AND s." + StatsEntry.COLUMN_GROUP_KEY + " = g.k;");
+        }
+        statements.add("DELETE FROM " + StatsEntry.TABLE_NAME + " WHERE " + StatsEntry.COLUMN_GAME_COUNT + " = 0;");
+        return statements;
+    }
+
+    /**
+     * Build the statement creating the view of the games with their current stock, with the given
+     * columns of the games table: its quantity is the snapshot plus the pending stock movements.
+     * Being computed, the quantity of the view can't be indexed: a condition on it scans the games.
+     */
+    private static String buildCreateStockView(String... columns) {
+        StringBuilder sql = new StringBuilder("CREATE VIEW ").append(GameEntry.STOCK_VIEW_NAME).append(" AS SELECT ");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            if (GameEntry.COLUMN_QUANTITY.equals(columns[i])) {
+                sql.append(GameEntry.COLUMN_QUANTITY).append(" + ")
+                        .append(buildPendingStock(GameEntry.TABLE_NAME + "." + GameEntry._ID))
+                        .append(" AS ").append(GameEntry.COLUMN_QUANTITY);
+            } else {
+                sql.append(columns[i]);
+            }
+        }
+        return sql.append(" FROM ").append(GameEntry.TABLE_NAME).append(';').toString();
+    }
+
+    /**
+     * Build the trigger statements listing the game of the given id in the low stock watchlist with
+     * its current stock if it is below its threshold, and removing it from the list otherwise.
+     */
+    private static String buildLowStockStatements(String gameId) {
+        String lowStock = " FROM " + GameEntry.STOCK_VIEW_NAME + " WHERE " + GameEntry._ID + " = " + gameId
+                + " AND " + GameEntry.COLUMN_QUANTITY + " < " + GameEntry.COLUMN_REORDER_THRESHOLD;
+        return "DELETE FROM " + LowStockEntry.TABLE_NAME + " WHERE " + LowStockEntry._ID + " = " + gameId
+                + " AND NOT EXISTS (SELECT 1" + lowStock + "); "
+                + "INSERT OR REPLACE INTO " + LowStockEntry.TABLE_NAME + " SELECT " + GameEntry._ID + ", "
+                + GameEntry.COLUMN_QUANTITY + ", " + GameEntry.COLUMN_REORDER_THRESHOLD + lowStock + ";";
+    }
+
+    /**
+     * Add the statements creating the triggers that maintain the low stock watchlist of
+     * {@link #VERSION_LOW_STOCK}. Only the games with a threshold are looked at, so the sales of the
+     * other games only cost the lookup of their threshold. Every row written to the watchlist is
+     * counted, for the provider to notify its changes.
+     */
+    private static void addLowStockTriggers(List<String> statements) {
+        // The ids of the games are never reused, so a new game has no pending movement
+        statements.add("CREATE TRIGGER low_stock_after_game_insert AFTER INSERT ON " + GameEntry.TABLE_NAME
+                + " WHEN new." + GameEntry.COLUMN_QUANTITY + " < new." + GameEntry.COLUMN_REORDER_THRESHOLD
+                + " BEGIN INSERT INTO " + LowStockEntry.TABLE_NAME + " VALUES (new." + GameEntry._ID + ", new."
+                + GameEntry.COLUMN_QUANTITY + ", new." + GameEntry.COLUMN_REORDER_THRESHOLD + "); END;");
+        statements.add("CREATE TRIGGER low_stock_after_threshold_update AFTER UPDATE OF "
+                + GameEntry.COLUMN_REORDER_THRESHOLD + " ON " + GameEntry.TABLE_NAME
+                + " WHEN new." + GameEntry.COLUMN_REORDER_THRESHOLD + " IS NOT old." + GameEntry.COLUMN_REORDER_THRESHOLD
+                + " BEGIN " + buildLowStockStatements("new." + GameEntry._ID) + " END;");
+        statements.add("CREATE TRIGGER low_stock_after_game_delete AFTER DELETE ON " + GameEntry.TABLE_NAME
+                + " WHEN old." + GameEntry.COLUMN_REORDER_THRESHOLD + " > 0"
+                + " BEGIN DELETE FROM " + LowStockEntry.TABLE_NAME + " WHERE " + LowStockEntry._ID
+                + " = old." + GameEntry._ID + "; END;");
+
+        // Folding the movements into the quantities doesn't change the current stock, only a new movement does
+        statements.add("CREATE TRIGGER low_stock_after_movement AFTER INSERT ON " + StockMovementEntry.TABLE_NAME
+                + " WHEN (SELECT " + GameEntry.COLUMN_REORDER_THRESHOLD + " FROM " + GameEntry.TABLE_NAME
+                + " WHERE " + GameEntry._ID + " = new." + StockMovementEntry.COLUMN_GAME_ID + ") > 0"
+                + " BEGIN " + buildLowStockStatements("new." + StockMovementEntry.COLUMN_GAME_ID) + " END;");
+
+        // A replaced row is only counted as inserted
+        String countChange = " BEGIN UPDATE " + LowStockEntry.CHANGES_TABLE_NAME + " SET "
+                + LowStockEntry.COLUMN_CHANGE_COUNT + " = " + LowStockEntry.COLUMN_CHANGE_COUNT + " + 1; END;";
+        statements.add("CREATE TRIGGER low_stock_changes_after_insert AFTER INSERT ON "
+                + LowStockEntry.TABLE_NAME + countChange);
+        statements.add("CREATE TRIGGER low_stock_changes_after_delete AFTER DELETE ON "
+                + LowStockEntry.TABLE_NAME + countChange);
+    }
+
+    /**
+     * Add the statements dropping the triggers created by {@link #addStatsTriggers(List, String[][])}.
+     */
+    private static void dropStatsTriggers(List<String> statements) {
+        statements.add("DROP TRIGGER IF EXISTS games_stats_after_insert;");
+        statements.add("DROP TRIGGER IF EXISTS games_stats_after_update;");
+        statements.add("DROP TRIGGER IF EXISTS games_stats_after_delete;");
+    }
+
+    /**
+     * Add the statement aggregating the games that already exist in the given dimension.
+     */
+    private static void addStatsAggregation(List<String> statements, String[] dimension) {
+        String groupKey = buildGroupKey(dimension, "");
+        statements.add("INSERT INTO " + StatsEntry.TABLE_NAME + " SELECT '" + dimension[0] + "', "
+                + groupKey + ", COUNT(*), IFNULL(SUM(" + GameEntry.COLUMN_QUANTITY + "), 0), IFNULL(SUM("
+                + GameEntry.COLUMN_GAME_PRICE + " * " + GameEntry.COLUMN_QUANTITY + "), 0) FROM "
+                + GameEntry.TABLE_NAME + (dimension.length == 1 ? "" : " GROUP BY " + groupKey) + ";");
+    }
+
+    /**
+     * Add the statements creating the secondary indexes of {@link #VERSION_INDEXES}.
+     */
+    private static void addIndexes(List<String> statements) {
+        // Filters on the genre and the platform, alone or together
+        statements.add("CREATE INDEX IF NOT EXISTS " + GameEntry.INDEX_GENRE_PLATFORM + " ON "
+                + GameEntry.TABLE_NAME + " (" + GameEntry.COLUMN_GAME_GENRE + ", "
+                + GameEntry.COLUMN_GAME_PLATFORM + ");");
+        // Filters on the supplier
+        statements.add("CREATE INDEX IF NOT EXISTS " + GameEntry.INDEX_SUPPLIER + " ON "
+                + GameEntry.TABLE_NAME + " (" + GameEntry.COLUMN_SUPPLIER_NAME + ");");
+        // Lookups and ordering by name
+        statements.add("CREATE INDEX IF NOT EXISTS " + GameEntry.INDEX_NAME + " ON "
+                + GameEntry.TABLE_NAME + " (" + GameEntry.COLUMN_GAME_NAME + ");");
+        // Partial index holding only the out of stock games
+        statements.add("CREATE INDEX IF NOT EXISTS " + GameEntry.INDEX_OUT_OF_STOCK + " ON "
+                + GameEntry.TABLE_NAME + " (" + GameEntry.COLUMN_QUANTITY + ") WHERE "
+                + GameEntry.COLUMN_QUANTITY + " = 0;");
+    }
+
+    /**
+     * Add the statements creating the genre and platform indexes of {@link #VERSION_FACETS}.
+     */
+    private static void addFacetIndexes(List<String> statements) {
+        // Filters on the genre or the platform alone, which also return the games sorted by id
+        // because every index entry ends with the rowid
+        statements.add("CREATE INDEX IF NOT EXISTS " + GameEntry.INDEX_GENRE + " ON "
+                + GameEntry.TABLE_NAME + " (" + GameEntry.COLUMN_GAME_GENRE + ");");
+        statements.add("CREATE INDEX IF NOT EXISTS " + GameEntry.INDEX_PLATFORM + " ON "
+                + GameEntry.TABLE_NAME + " (" + GameEntry.COLUMN_GAME_PLATFORM + ");");
+    }
+
+    /**
+     * Add the statements creating the triggers that keep the search table in sync with the games table.
+     * Updates only touch the index when one of the searchable columns changes, so selling a game stays cheap.
+     */
+    private static void addSearchTriggers(List<String> statements) {
+        addSearchTriggers(statements, "", "");
+    }
+
+    /**
+     * Add the statements creating the triggers of {@link #addSearchTriggers(List)}, the update and
+     * insert triggers only running with the given WHEN clauses.
+     */
+    private static void addSearchTriggers(List<String> statements, String updateWhen, String insertWhen) {
+        statements.add("CREATE TRIGGER games_search_before_update BEFORE UPDATE OF "
+                + GameEntry.COLUMN_GAME_NAME + ", " + GameEntry.COLUMN_SUPPLIER_NAME
+                + " ON " + GameEntry.TABLE_NAME + updateWhen + " BEGIN "
+                + SQL_DELETE_SEARCH_ROW + " END;");
+        statements.add("CREATE TRIGGER games_search_before_delete BEFORE DELETE ON "
+                + GameEntry.TABLE_NAME + " BEGIN "
+                + SQL_DELETE_SEARCH_ROW + " END;");
+        statements.add("CREATE TRIGGER games_search_after_update AFTER UPDATE OF "
+                + GameEntry.COLUMN_GAME_NAME + ", " + GameEntry.COLUMN_SUPPLIER_NAME
+                + " ON " + GameEntry.TABLE_NAME + updateWhen + " BEGIN "
+                + SQL_INSERT_SEARCH_ROW + " END;");
+        statements.add("CREATE TRIGGER games_search_after_insert AFTER INSERT ON "
+                + GameEntry.TABLE_NAME + insertWhen + " BEGIN "
+                + SQL_INSERT_SEARCH_ROW + " END;");
+    }
+
+    /**
+     * Add the statements dropping the triggers created by {@link #addSearchTriggers(List)}.
+     */
+    private static void dropSearchTriggers(List<String> statements) {
+        statements.add("DROP TRIGGER IF EXISTS games_search_before_update;");
+        statements.add("DROP TRIGGER IF EXISTS games_search_before_delete;");
+        statements.add("DROP TRIGGER IF EXISTS games_search_after_update;");
+        statements.add("DROP TRIGGER IF EXISTS games_search_after_insert;");
+    }
+
+    /**
+     * Add the statement creating the inventory statistics table, with the given type of total value.
+     */
+    private static void addStatsTable(List<String> statements, String totalValueType) {
+        statements.add("CREATE TABLE " + StatsEntry.TABLE_NAME + " ("
+                + StatsEntry.COLUMN_DIMENSION + " TEXT NOT NULL, "
+                + StatsEntry.COLUMN_GROUP_KEY + " NOT NULL, "
+                + StatsEntry.COLUMN_GAME_COUNT + " INTEGER NOT NULL DEFAULT 0, "
+                + StatsEntry.COLUMN_TOTAL_STOCK + " INTEGER NOT NULL DEFAULT 0, "
+                + StatsEntry.COLUMN_TOTAL_VALUE + " " + totalValueType + " NOT NULL DEFAULT 0, "
+                + "PRIMARY KEY (" + StatsEntry.COLUMN_DIMENSION + ", " + StatsEntry.COLUMN_GROUP_KEY + "));");
+    }
+
+    /**
+     * Add the statements aggregating the games that already exist in every given dimension.
+     */
+    private static void addStatsAggregations(List<String> statements, String[][] dimensions) {
+        for (String[] dimension : dimensions) {
+            addStatsAggregation(statements, dimension);
+        }
+        // The total of an empty table is an empty group
+        statements.add("DELETE FROM " + StatsEntry.TABLE_NAME + " WHERE " + StatsEntry.COLUMN_GAME_COUNT + " = 0;");
+    }
+
+    /**
+     * Returns the statements migrating the schema from the previous version to the given version.
+     */
+    public static List<String> getMigration(int version) {
+        List<String> statements = new ArrayList<>();
+        switch (version) {
+            case VERSION_INDEXES:
+                addIndexes(statements);
+                break;
+            case VERSION_SEARCH:
+                // External content FTS table: it only stores the index, the text stays in the games table
+                statements.add("CREATE VIRTUAL TABLE " + GameEntry.SEARCH_TABLE_NAME + " USING fts4("
+                        + "content=\"" + GameEntry.TABLE_NAME + "\", prefix=\"2,3\", "
+                        + GameEntry.COLUMN_GAME_NAME + ", " + GameEntry.COLUMN_SUPPLIER_NAME + ");");
+
+                // Keep the search table in sync with the games table
+                addSearchTriggers(statements);
+
+                // Index the games that already exist
+                statements.add("INSERT INTO " + GameEntry.SEARCH_TABLE_NAME + "(" + GameEntry.SEARCH_TABLE_NAME
+                        + ") VALUES('rebuild');");
+                break;
+            case VERSION_STATS:
+                addStatsTable(statements, "REAL");
+
+                // Move every game in and out of its groups as it is inserted, updated and deleted
+                addStatsTriggers(statements, STATS_DIMENSIONS);
+
+                // Aggregate the games that already exist
+                addStatsAggregations(statements, STATS_DIMENSIONS);
+                break;
+            case VERSION_FACETS:
+                addFacetIndexes(statements);
+
+                // Also count the games of every genre and platform pair
+                dropStatsTriggers(statements);
+                addStatsTriggers(statements, FACETS_STATS_DIMENSIONS);
+                addStatsAggregation(statements, GENRE_PLATFORM_DIMENSION);
+                break;
+            case VERSION_PRICE_CENTS:
+                // SQLite can't change the type of a column: copy the games to a new table with the
+                // prices converted to cents. Rounding makes the conversion exact for every price
+                // with at most two decimals; the editor never limited them, and the rare prices
+                // with more decimals are rounded to the nearest cent.
+                statements.add(SQL_CREATE_PRICE_CENTS_TABLE);
+                statements.add("INSERT INTO " + PRICE_CENTS_TABLE_NAME + " SELECT "
+                        + GameEntry._ID + ", " + GameEntry.COLUMN_GAME_NAME + ", "
+                        + GameEntry.COLUMN_GAME_GENRE + ", " + GameEntry.COLUMN_GAME_PLATFORM + ", "
+                        + "CAST(ROUND(" + GameEntry.COLUMN_GAME_PRICE + " * 100) AS INTEGER), "
+                        + GameEntry.COLUMN_QUANTITY + ", " + GameEntry.COLUMN_SUPPLIER_NAME + ", "
+                        + GameEntry.COLUMN_SUPPLIER_PHONE + " FROM " + GameEntry.TABLE_NAME + ";");
+                // Keep the ids of the deleted games from being reused
+                statements.add("DELETE FROM sqlite_sequence WHERE name = '" + PRICE_CENTS_TABLE_NAME + "';");
+                statements.add("INSERT INTO sqlite_sequence (name, seq) SELECT '" + PRICE_CENTS_TABLE_NAME
+                        + "', seq FROM sqlite_sequence WHERE name = '" + GameEntry.TABLE_NAME + "';");
+
+                // Dropping the games table also drops its indexes and triggers. The search table
+                // only stores the index, under the same ids, so it stays valid.
+                statements.add("DROP TABLE " + GameEntry.TABLE_NAME + ";");
+                statements.add("ALTER TABLE " + PRICE_CENTS_TABLE_NAME + " RENAME TO " + GameEntry.TABLE_NAME + ";");
+                addIndexes(statements);
+                addFacetIndexes(statements);
+                addSearchTriggers(statements);
+
+                // Sum the stock values as integers too, aggregated again from the converted prices
+                statements.add("DROP TABLE " + StatsEntry.TABLE_NAME + ";");
+                addStatsTable(statements, "INTEGER");
+                addStatsTriggers(statements, FACETS_STATS_DIMENSIONS);
+                addStatsAggregations(statements, FACETS_STATS_DIMENSIONS);
+                break;
+            case VERSION_STOCK_MOVEMENTS:
+                // Append-only ledger of the stock changes, with its index by game: the entries of
+                // an index end with the rowid, so the pending movements of a game are a range of it
+                statements.add("CREATE TABLE " + StockMovementEntry.TABLE_NAME + " ("
+                        + StockMovementEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                        + StockMovementEntry.COLUMN_GAME_ID + " INTEGER NOT NULL, "
+                        + StockMovementEntry.COLUMN_KIND + " INTEGER NOT NULL, "
+                        + StockMovementEntry.COLUMN_DELTA + " INTEGER NOT NULL, "
+                        + StockMovementEntry.COLUMN_CREATED_AT + " INTEGER NOT NULL);");
+                statements.add("CREATE INDEX " + StockMovementEntry.INDEX_GAME + " ON "
+                        + StockMovementEntry.TABLE_NAME + " (" + StockMovementEntry.COLUMN_GAME_ID + ");");
+                statements.add("CREATE TABLE " + StockMovementEntry.COMPACTION_TABLE_NAME + " ("
+                        + StockMovementEntry._ID + " INTEGER PRIMARY KEY CHECK (" + StockMovementEntry._ID + " = 0), "
+                        + StockMovementEntry.COLUMN_LAST_MOVEMENT_ID + " INTEGER NOT NULL);");
+                statements.add("INSERT INTO " + StockMovementEntry.COMPACTION_TABLE_NAME + " VALUES (0, 0);");
+
+                // The games as read by the provider, with their current stock
+                statements.add(buildCreateStockView(GameEntry._ID, GameEntry.COLUMN_GAME_NAME,
+                        GameEntry.COLUMN_GAME_GENRE, GameEntry.COLUMN_GAME_PLATFORM, GameEntry.COLUMN_GAME_PRICE,
+                        GameEntry.COLUMN_QUANTITY, GameEntry.COLUMN_SUPPLIER_NAME, GameEntry.COLUMN_SUPPLIER_PHONE));
+
+                // The quantity of the table is now a snapshot, the out of stock games are found
+                // from the current stock of the view instead
+                statements.add("DROP INDEX IF EXISTS " + GameEntry.INDEX_OUT_OF_STOCK + ";");
+
+                // There is no movement yet, so the statistics stay valid
+                dropStatsTriggers(statements);
+                addStockStatsTriggers(statements, FACETS_STATS_DIMENSIONS);
+                break;
+            case VERSION_LOW_STOCK:
+                // No game is watched yet, so the watchlist starts empty
+                statements.add("ALTER TABLE " + GameEntry.TABLE_NAME + " ADD COLUMN "
+                        + GameEntry.COLUMN_REORDER_THRESHOLD + " INTEGER NOT NULL DEFAULT 0;");
+                statements.add("CREATE TABLE " + LowStockEntry.TABLE_NAME + " ("
+                        + LowStockEntry._ID + " INTEGER PRIMARY KEY, "
+                        + GameEntry.COLUMN_QUANTITY + " INTEGER NOT NULL, "
+                        + GameEntry.COLUMN_REORDER_THRESHOLD + " INTEGER NOT NULL);");
+                statements.add("CREATE INDEX " + LowStockEntry.INDEX_QUANTITY + " ON "
+                        + LowStockEntry.TABLE_NAME + " (" + GameEntry.COLUMN_QUANTITY + ");");
+                statements.add("CREATE TABLE " + LowStockEntry.CHANGES_TABLE_NAME + " ("
+                        + LowStockEntry._ID + " INTEGER PRIMARY KEY CHECK (" + LowStockEntry._ID + " = 0), "
+                        + LowStockEntry.COLUMN_CHANGE_COUNT + " INTEGER NOT NULL);");
+                statements.add("INSERT INTO " + LowStockEntry.CHANGES_TABLE_NAME + " VALUES (0, 0);");
+                statements.add("CREATE INDEX " + GameEntry.INDEX_WATCHED + " ON " + GameEntry.TABLE_NAME
+                        + " (" + GameEntry._ID + ") WHERE " + GameEntry.COLUMN_REORDER_THRESHOLD + " > 0;");
+
+                // The games read by the provider have their threshold
+                statements.add("DROP VIEW " + GameEntry.STOCK_VIEW_NAME + ";");
+                statements.add(buildCreateStockView(GameEntry._ID, GameEntry.COLUMN_GAME_NAME,
+                        GameEntry.COLUMN_GAME_GENRE, GameEntry.COLUMN_GAME_PLATFORM, GameEntry.COLUMN_GAME_PRICE,
+                        GameEntry.COLUMN_QUANTITY, GameEntry.COLUMN_SUPPLIER_NAME, GameEntry.COLUMN_SUPPLIER_PHONE,
+                        GameEntry.COLUMN_REORDER_THRESHOLD));
+
+                // The listed games with the columns of the games, their stock being the listed one
+                statements.add("CREATE VIEW " + LowStockEntry.VIEW_NAME + " AS SELECT l." + LowStockEntry._ID + ", "
+                        + GameEntry.COLUMN_GAME_NAME + ", " + GameEntry.COLUMN_GAME_GENRE + ", "
+                        + GameEntry.COLUMN_GAME_PLATFORM + ", " + GameEntry.COLUMN_GAME_PRICE + ", l."
+                        + GameEntry.COLUMN_QUANTITY + ", " + GameEntry.COLUMN_SUPPLIER_NAME + ", "
+                        + GameEntry.COLUMN_SUPPLIER_PHONE + ", l." + GameEntry.COLUMN_REORDER_THRESHOLD
+                        + " FROM " + LowStockEntry.TABLE_NAME + " l JOIN " + GameEntry.TABLE_NAME + " g ON g."
+                        + GameEntry._ID + " = l." + LowStockEntry._ID + ";");
+                addLowStockTriggers(statements);
+                break;
+            case VERSION_IMPORT:
+                statements.add("CREATE TABLE " + GameEntry.IMPORT_TABLE_NAME + " ("
+                        + GameEntry._ID + " INTEGER PRIMARY KEY CHECK (" + GameEntry._ID + " = 0), "
+                        + GameEntry.COLUMN_IMPORTING + " INTEGER NOT NULL);");
+                statements.add("INSERT INTO " + GameEntry.IMPORT_TABLE_NAME + " VALUES (0, 0);");
+
+                // An import writes the supplier name of every game it updates, which leaves the
+                // search table alone unless the name changes. The imported games are indexed and
+                // counted once per batch, see buildImportStatsStatements(String, int).
+                dropSearchTriggers(statements);
+                addSearchTriggers(statements, " WHEN new." + GameEntry.COLUMN_GAME_NAME + " IS NOT old."
+                        + GameEntry.COLUMN_GAME_NAME + " OR new." + GameEntry.COLUMN_SUPPLIER_NAME + " IS NOT old."
+                        + GameEntry.COLUMN_SUPPLIER_NAME, SQL_WHEN_NOT_IMPORTING);
+                dropStatsTriggers(statements);
+                statements.add("DROP TRIGGER IF EXISTS stock_movements_stats_after_insert;");
+                addStockStatsTriggers(statements, FACETS_STATS_DIMENSIONS, SQL_WHEN_NOT_IMPORTING);
+                break;
+            default:
+                throw new IllegalStateException("No migration to database version " + version);
+        }
+        return statements;
+    }
+}
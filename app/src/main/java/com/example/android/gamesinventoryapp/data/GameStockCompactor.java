@@ -0,0 +1,94 @@
+package com.example.android.gamesinventoryapp.data;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import com.example.android.gamesinventoryapp.data.GameContract.StockMovementEntry;
+
+/**
+ * Folds the pending {@link StockMovementEntry stock movements} into the quantities of the games, on
+ * a background thread. The compaction runs a few seconds after the first movement added since the
+ * last one, so that a burst of sales is folded at once, and the sales themselves only append to the
+ * ledger. The stock read from {@link GameProvider} doesn't change with a compaction, so nothing is
+ * notified.
+ */
+class GameStockCompactor {
+
+    /** Tag for the log messages */
+    private static final String LOG_TAG = GameStockCompactor.class.getSimpleName();
+
+    /**
+     * Number of milliseconds between the first movement added and the compaction
+     */
+    private static final long COMPACTION_DELAY_MILLIS = 5000;
+
+    private final GameDbHelper mDbHelper;
+
+    private final Handler mHandler;
+
+    /**
+     * Whether a compaction is already scheduled
+     */
+    private boolean mCompactionScheduled;
+
+    private final Runnable mCompaction = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (GameStockCompactor.this) {
+                mCompactionScheduled = false;
+            }
+            try {
+                compact();
+            } catch (SQLiteException e) {
+                // The movements stay pending until the next compaction
+                Log.e(LOG_TAG, "Failed to compact the stock movements", e);
+            }
+        }
+    };
+
+    GameStockCompactor(GameDbHelper dbHelper) {
+        mDbHelper = dbHelper;
+        HandlerThread thread = new HandlerThread("GameStockCompactor", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        mHandler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Report that stock movements were added, scheduling a compaction unless one is already scheduled.
+     */
+    synchronized void onMovementsAdded() {
+        if (!mCompactionScheduled) {
+            mCompactionScheduled = true;
+            mHandler.postDelayed(mCompaction, COMPACTION_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Fold the pending stock movements into the quantities of their games in a single transaction,
+     * and return the number of movements folded.
+     */
+    int compact() {
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+        int movementCount;
+        database.beginTransaction();
+        try {
+            movementCount = (int) DatabaseUtils.longForQuery(database, GameSchema.SQL_COUNT_PENDING_MOVEMENTS, null);
+            if (movementCount > 0) {
+                database.execSQL(GameSchema.SQL_COMPACT_STOCK);
+                database.execSQL(GameSchema.SQL_MARK_STOCK_COMPACTED);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        if (movementCount > 0) {
+            Log.v(LOG_TAG, movementCount + " stock movements compacted");
+        }
+        return movementCount;
+    }
+}
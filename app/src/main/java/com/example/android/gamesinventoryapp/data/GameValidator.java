@@ -0,0 +1,117 @@
+package com.example.android.gamesinventoryapp.data;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+
+/**
+ * Validation rules of the game attributes, shared by every write path of {@link GameProvider}.
+ * Each check throws an {@link IllegalArgumentException} if the value is not valid.
+ */
+public final class GameValidator {
+
+    // Empty constructor
+    private GameValidator() {
+    }
+
+    /**
+     * Returns whether or not the given game genre is one of those allowed
+     */
+    public static boolean isValidGenre(int genre) {
+        return genre == GameEntry.GENRE_UNKNOWN || genre == GameEntry.GENRE_ACTION || genre == GameEntry.GENRE_STRATEGY
+                || genre == GameEntry.GENRE_RPG || genre == GameEntry.GENRE_FPS || genre == GameEntry.GENRE_SPORT;
+    }
+
+    /**
+     * Returns whether or not the given platform is one of those allowed
+     */
+    public static boolean isValidPlatform(int platform) {
+        return platform == GameEntry.PLATFORM_PC || platform == GameEntry.PLATFORM_XBOX_ONE || platform == GameEntry.PLATFORM_XBOX_360
+                || platform == GameEntry.PLATFORM_PS3 || platform == GameEntry.PLATFORM_PS4;
+    }
+
+    /**
+     * Check that the name is not null
+     */
+    public static void checkName(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Game requires a name");
+        }
+    }
+
+    /**
+     * Check that the genre is valid
+     */
+    public static void checkGenre(Integer genre) {
+        if (genre == null || !isValidGenre(genre)) {
+            throw new IllegalArgumentException("Game requires a valid genre");
+        }
+    }
+
+    /**
+     * Check that the platform is valid
+     */
+    public static void checkPlatform(Integer platform) {
+        if (platform == null || !isValidPlatform(platform)) {
+            throw new IllegalArgumentException("Game requires a valid platform");
+        }
+    }
+
+    /**
+     * Check that the price, in cents, is valid
+     */
+    public static void checkPrice(long priceCents) {
+        if (priceCents < 0) {
+            throw new IllegalArgumentException("Game requires a valid price");
+        }
+    }
+
+    /**
+     * Check that the price, in cents, is present and valid
+     */
+    public static void checkPrice(Long priceCents) {
+        if (priceCents == null) {
+            throw new IllegalArgumentException("Game requires a valid price");
+        }
+        checkPrice(priceCents.longValue());
+    }
+
+    /**
+     * Check that the quantity is valid
+     */
+    public static void checkQuantity(Integer quantity) {
+        if (quantity == null || quantity < 0) {
+            throw new IllegalArgumentException("Game requires a valid quantity");
+        }
+    }
+
+    /**
+     * Check that the reorder threshold is valid
+     */
+    public static void checkReorderThreshold(Integer reorderThreshold) {
+        if (reorderThreshold == null || reorderThreshold < 0) {
+            throw new IllegalArgumentException("Game requires a valid reorder threshold");
+        }
+    }
+
+    /**
+     * Check that the supplier name is valid
+     */
+    public static void checkSupplierName(String supplierName) {
+        if (supplierName == null || supplierName.isEmpty()) {
+            throw new IllegalArgumentException("Games requires a supplier name");
+        }
+    }
+
+    /**
+     * Check all the required attributes of a new game.
+     * No need to check the supplier phone, any value is valid (including null).
+     */
+    public static void checkGame(String name, Integer genre, Integer platform, Long priceCents, Integer quantity,
+                                 String supplierName) {
+        checkName(name);
+        checkGenre(genre);
+        checkPlatform(platform);
+        checkPrice(priceCents);
+        checkQuantity(quantity);
+        checkSupplierName(supplierName);
+    }
+}
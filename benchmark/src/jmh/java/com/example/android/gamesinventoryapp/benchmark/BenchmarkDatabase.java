@@ -0,0 +1,93 @@
+package com.example.android.gamesinventoryapp.benchmark;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameSchema;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A games database on disk, with the same schema and settings as the app's database, or with the
+ * schema of one of its previous versions.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    /**
+     * Number of games inserted per transaction when loading the database
+     */
+    private static final int LOAD_BATCH_SIZE = 10000;
+
+    /**
+     * Statement inserting a game in the schemas before {@link GameSchema#VERSION_LOW_STOCK}, which
+     * have no reorder threshold, with the other arguments of {@link GameSchema#SQL_INSERT_GAME}
+     */
+    private static final String SQL_INSERT_UNWATCHED_GAME = "INSERT INTO " + GameEntry.TABLE_NAME + " ("
+            + GameEntry.COLUMN_GAME_NAME + ", " + GameEntry.COLUMN_GAME_GENRE + ", " + GameEntry.COLUMN_GAME_PLATFORM + ", "
+            + GameEntry.COLUMN_GAME_PRICE + ", " + GameEntry.COLUMN_QUANTITY + ", " + GameEntry.COLUMN_SUPPLIER_NAME + ", "
+            + GameEntry.COLUMN_SUPPLIER_PHONE + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final File mFile;
+
+    /**
+     * Version of the schema of the database
+     */
+    private final int mVersion;
+
+    final Connection connection;
+
+    BenchmarkDatabase() throws IOException, SQLException {
+        this(GameSchema.DATABASE_VERSION);
+    }
+
+    BenchmarkDatabase(int version) throws IOException, SQLException {
+        mVersion = version;
+        mFile = File.createTempFile("inventory", ".db");
+        connection = DriverManager.getConnection("jdbc:sqlite:" + mFile.getPath());
+        try (Statement statement = connection.createStatement()) {
+            // Same settings as GameDbHelper
+            statement.execute("PRAGMA journal_mode = WAL");
+            statement.execute("PRAGMA synchronous = NORMAL");
+
+            // Create the initial schema and replay every migration, like GameDbHelper.onCreate
+            statement.execute(GameSchema.SQL_CREATE_GAMES_TABLE);
+            for (int step = GameSchema.VERSION_INITIAL + 1; step <= version; step++) {
+                for (String sql : GameSchema.getMigration(step)) {
+                    statement.execute(sql);
+                }
+            }
+        }
+    }
+
+    /**
+     * Insert the given number of generated games, in transactions of {@link #LOAD_BATCH_SIZE} games.
+     */
+    void load(GameDataGenerator generator, int count) throws SQLException {
+        connection.setAutoCommit(false);
+        String sql = mVersion < GameSchema.VERSION_LOW_STOCK ? SQL_INSERT_UNWATCHED_GAME : GameSchema.SQL_INSERT_GAME;
+        try (PreparedStatement insert = connection.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                generator.bindNext(insert, mVersion);
+                insert.executeUpdate();
+                if ((i + 1) % LOAD_BATCH_SIZE == 0) {
+                    connection.commit();
+                }
+            }
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        connection.close();
+        new File(mFile.getPath() + "-wal").delete();
+        new File(mFile.getPath() + "-shm").delete();
+        mFile.delete();
+    }
+}
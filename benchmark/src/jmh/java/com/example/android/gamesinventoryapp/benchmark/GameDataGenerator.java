@@ -0,0 +1,78 @@
+package com.example.android.gamesinventoryapp.benchmark;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameSchema;
+import com.example.android.gamesinventoryapp.data.GameValidator;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Random;
+
+/**
+ * Generates reproducible games: the same seed always produces the same sequence of games,
+ * so results can be compared between releases.
+ */
+final class GameDataGenerator {
+
+    /**
+     * Seed used by the benchmarks
+     */
+    static final long DEFAULT_SEED = 42L;
+
+    /**
+     * Number of distinct suppliers of the generated games
+     */
+    static final int SUPPLIER_COUNT = 200;
+
+    private static final String[] WORDS = {"Legend", "Empire", "Racing", "Shadow", "Galaxy", "Warfare",
+            "Football", "Dungeon", "Kingdom", "Strike", "Quest", "Tactics", "Odyssey", "Arena", "Chronicles"};
+
+    private final Random mRandom;
+
+    private int mCount;
+
+    GameDataGenerator(long seed) {
+        mRandom = new Random(seed);
+    }
+
+    /**
+     * Validate the next game with the provider's rules and bind it to a
+     * {@link GameSchema#SQL_INSERT_GAME} statement of the current schema.
+     */
+    void bindNext(PreparedStatement insert) throws SQLException {
+        bindNext(insert, GameSchema.DATABASE_VERSION);
+    }
+
+    /**
+     * Validate the next game with the provider's rules and bind it to a
+     * {@link GameSchema#SQL_INSERT_GAME} statement of the given schema version. The versions before
+     * {@link GameSchema#VERSION_PRICE_CENTS} store the price as a floating point amount, and those
+     * before {@link GameSchema#VERSION_LOW_STOCK} have no reorder threshold.
+     */
+    void bindNext(PreparedStatement insert, int schemaVersion) throws SQLException {
+        int i = mCount++;
+        String name = WORDS[mRandom.nextInt(WORDS.length)] + " " + WORDS[mRandom.nextInt(WORDS.length)] + " " + i;
+        int genre = mRandom.nextInt(GameEntry.GENRE_SPORT + 1);
+        int platform = mRandom.nextInt(GameEntry.PLATFORM_PS4 + 1);
+        long priceCents = mRandom.nextInt(10000);
+        int quantity = mRandom.nextInt(100);
+        String supplierName = "Supplier " + mRandom.nextInt(SUPPLIER_COUNT);
+
+        GameValidator.checkGame(name, genre, platform, priceCents, quantity, supplierName);
+
+        insert.setString(1, name);
+        insert.setInt(2, genre);
+        insert.setInt(3, platform);
+        if (schemaVersion < GameSchema.VERSION_PRICE_CENTS) {
+            insert.setDouble(4, priceCents / 100.0);
+        } else {
+            insert.setLong(4, priceCents);
+        }
+        insert.setInt(5, quantity);
+        insert.setString(6, supplierName);
+        insert.setString(7, "+1 (000) 000-" + String.format("%04d", i % 10000));
+        if (schemaVersion >= GameSchema.VERSION_LOW_STOCK) {
+            insert.setInt(8, 0);
+        }
+    }
+}
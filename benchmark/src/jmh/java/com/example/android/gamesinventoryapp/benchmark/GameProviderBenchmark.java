@@ -0,0 +1,197 @@
+package com.example.android.gamesinventoryapp.benchmark;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameSchema;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the statements run by the GameProvider write and read paths, on catalogs of
+ * different sizes. The games are generated with a fixed seed so runs are reproducible.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GameProviderBenchmark {
+
+    /**
+     * Number of games in the catalog before the benchmark starts
+     */
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    /**
+     * Number of games inserted by {@link #bulkLoad()}
+     */
+    private static final int BULK_LOAD_SIZE = 1000;
+
+    /**
+     * Columns shown by the catalog
+     */
+    private static final String CATALOG_COLUMNS = GameEntry._ID + ", " + GameEntry.COLUMN_GAME_NAME + ", "
+            + GameEntry.COLUMN_GAME_GENRE + ", " + GameEntry.COLUMN_GAME_PLATFORM + ", "
+            + GameEntry.COLUMN_GAME_PRICE + ", " + GameEntry.COLUMN_QUANTITY;
+
+    private BenchmarkDatabase mDatabase;
+    private GameDataGenerator mGenerator;
+    private Random mRandom;
+
+    private PreparedStatement mInsert;
+    private PreparedStatement mQueryById;
+    private PreparedStatement mFullScan;
+    private PreparedStatement mFilteredQuery;
+    private PreparedStatement mSell;
+    private PreparedStatement mRestock;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        mDatabase = new BenchmarkDatabase();
+        mGenerator = new GameDataGenerator(GameDataGenerator.DEFAULT_SEED);
+        mRandom = new Random(GameDataGenerator.DEFAULT_SEED);
+        mDatabase.load(mGenerator, rows);
+
+        mInsert = mDatabase.connection.prepareStatement(GameSchema.SQL_INSERT_GAME);
+        mQueryById = mDatabase.connection.prepareStatement("SELECT * FROM " + GameEntry.STOCK_VIEW_NAME
+                + " WHERE " + GameEntry._ID + " = ?");
+        mFullScan = mDatabase.connection.prepareStatement("SELECT " + CATALOG_COLUMNS + " FROM " + GameEntry.STOCK_VIEW_NAME);
+        mFilteredQuery = mDatabase.connection.prepareStatement("SELECT " + CATALOG_COLUMNS + " FROM " + GameEntry.STOCK_VIEW_NAME
+                + " WHERE " + GameEntry.COLUMN_GAME_GENRE + " = ? AND " + GameEntry.COLUMN_GAME_PLATFORM + " = ?");
+        mSell = mDatabase.connection.prepareStatement(GameSchema.SQL_SELL_GAME);
+        mRestock = mDatabase.connection.prepareStatement(GameSchema.SQL_RESTOCK_GAME);
+    }
+
+    /**
+     * Fold the stock movements of the sales into the quantities, like the background compaction of
+     * GameProvider, so that the reads of the next iteration don't sum them.
+     */
+    @TearDown(Level.Iteration)
+    public void compactStock() throws SQLException {
+        mDatabase.connection.setAutoCommit(false);
+        try (Statement statement = mDatabase.connection.createStatement()) {
+            statement.execute(GameSchema.SQL_COMPACT_STOCK);
+            statement.execute(GameSchema.SQL_MARK_STOCK_COMPACTED);
+            mDatabase.connection.commit();
+        } finally {
+            mDatabase.connection.setAutoCommit(true);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        mDatabase.close();
+    }
+
+    private long randomId() {
+        return 1 + mRandom.nextInt(rows);
+    }
+
+    /**
+     * Read every column of every row of the given query.
+     */
+    private static void consume(ResultSet resultSet, Blackhole blackhole) throws SQLException {
+        try {
+            int columnCount = resultSet.getMetaData().getColumnCount();
+            while (resultSet.next()) {
+                for (int column = 1; column <= columnCount; column++) {
+                    blackhole.consume(resultSet.getObject(column));
+                }
+            }
+        } finally {
+            resultSet.close();
+        }
+    }
+
+    /**
+     * A single validated game inserted in its own transaction, like GameProvider.insert
+     */
+    @Benchmark
+    public int singleInsert() throws SQLException {
+        mGenerator.bindNext(mInsert);
+        return mInsert.executeUpdate();
+    }
+
+    /**
+     * {@link #BULK_LOAD_SIZE} validated games inserted in one transaction, like GameProvider.bulkInsert
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void bulkLoad() throws SQLException {
+        mDatabase.connection.setAutoCommit(false);
+        try {
+            for (int i = 0; i < BULK_LOAD_SIZE; i++) {
+                mGenerator.bindNext(mInsert);
+                mInsert.executeUpdate();
+            }
+            mDatabase.connection.commit();
+        } finally {
+            mDatabase.connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * A single game read by id, like the editor
+     */
+    @Benchmark
+    public void queryById(Blackhole blackhole) throws SQLException {
+        mQueryById.setLong(1, randomId());
+        consume(mQueryById.executeQuery(), blackhole);
+    }
+
+    /**
+     * The whole catalog read with the catalog projection
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void fullScan(Blackhole blackhole) throws SQLException {
+        consume(mFullScan.executeQuery(), blackhole);
+    }
+
+    /**
+     * The games of one genre on one platform
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void filteredQuery(Blackhole blackhole) throws SQLException {
+        mFilteredQuery.setInt(1, mRandom.nextInt(GameEntry.GENRE_SPORT + 1));
+        mFilteredQuery.setInt(2, mRandom.nextInt(GameEntry.PLATFORM_PS4 + 1));
+        consume(mFilteredQuery.executeQuery(), blackhole);
+    }
+
+    /**
+     * One copy of a game sold, like GameProvider on the sell URI: a stock movement is added.
+     * Out of stock games are restocked.
+     */
+    @Benchmark
+    public int sell() throws SQLException {
+        long id = randomId();
+        long now = System.currentTimeMillis();
+        mSell.setInt(1, 1);
+        mSell.setLong(2, id);
+        mSell.setLong(3, now);
+        int rowsUpdated = mSell.executeUpdate();
+        if (rowsUpdated == 0) {
+            mRestock.setInt(1, 100);
+            mRestock.setLong(2, id);
+            mRestock.setLong(3, now);
+            mRestock.executeUpdate();
+        }
+        return rowsUpdated;
+    }
+}
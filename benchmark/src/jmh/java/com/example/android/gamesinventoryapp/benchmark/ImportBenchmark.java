@@ -0,0 +1,249 @@
+package com.example.android.gamesinventoryapp.benchmark;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameCsvParser;
+import com.example.android.gamesinventoryapp.data.GameSchema;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the import of a supplier price list, parsed by {@link GameCsvParser} and written
+ * with the statements of the provider, in transactions of a given number of games. The games are
+ * either all new, or all in the catalog already with another price. Like the provider, each batch
+ * adds its games to the search table and the statistics once, after writing them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ImportBenchmark {
+
+    /**
+     * Number of rows of the price list
+     */
+    @Param({"50000"})
+    public int rows;
+
+    /**
+     * Number of games written by each transaction, GameImporter writing 500
+     */
+    @Param({"1", "500", "5000"})
+    public int batchSize;
+
+    /**
+     * Whether the games of the price list are already in the catalog
+     */
+    @Param({"false", "true"})
+    public boolean update;
+
+    private String mPriceList;
+    private String mPreviousPriceList;
+
+    private BenchmarkDatabase mDatabase;
+
+    @Setup(Level.Trial)
+    public void generatePriceLists() {
+        mPriceList = generatePriceList(rows, 0);
+        mPreviousPriceList = generatePriceList(rows, 1);
+    }
+
+    /**
+     * Returns a price list of the given number of games, their prices raised by the given amount.
+     */
+    private static String generatePriceList(int rows, int priceIncrease) {
+        StringBuilder csv = new StringBuilder("Name,Genre,Platform,Price,Quantity,Supplier Name,Supplier Phone\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append("\"Game ").append(i).append("\",").append(i % 6).append(',').append(i % 5).append(',')
+                    .append(i % 100 + priceIncrease).append(".99,").append(i % 50).append(",Supplier ")
+                    .append(i % 20).append(",+1 (000) 000-").append(String.format("%04d", i % 10000)).append('\n');
+        }
+        return csv.toString();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        mDatabase = new BenchmarkDatabase();
+        if (update) {
+            importPriceList(mPreviousPriceList, rows);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws SQLException {
+        mDatabase.close();
+    }
+
+    /**
+     * Row of the price list
+     */
+    private static final class ImportedGame {
+        String name;
+        int genre;
+        int platform;
+        long priceCents;
+        int quantity;
+        String supplierName;
+        String supplierPhone;
+    }
+
+    /**
+     * Import the given price list, in batches of the given number of games.
+     *
+     * @return The number of games inserted or changed
+     */
+    private int importPriceList(String priceList, int batchSize) throws IOException, SQLException {
+        int rowsWritten = 0;
+        try (GameCsvParser parser = new GameCsvParser(new StringReader(priceList))) {
+            List<ImportedGame> batch = new ArrayList<>(batchSize);
+            while (parser.next()) {
+                if (parser.getError() != null) {
+                    throw new IllegalStateException("Line " + parser.getLineNumber() + ": " + parser.getError());
+                }
+                ImportedGame game = new ImportedGame();
+                game.name = parser.getName();
+                game.genre = parser.getGenre();
+                game.platform = parser.getPlatform();
+                game.priceCents = parser.getPriceCents();
+                game.quantity = parser.getQuantity();
+                game.supplierName = parser.getSupplierName();
+                game.supplierPhone = parser.hasValue(GameEntry.COLUMN_SUPPLIER_PHONE) ? parser.getSupplierPhone() : null;
+                batch.add(game);
+                if (batch.size() == batchSize) {
+                    rowsWritten += importBatch(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                rowsWritten += importBatch(batch);
+            }
+        }
+        return rowsWritten;
+    }
+
+    /**
+     * Write the given games in a transaction, like GameProvider does for each batch of GameImporter.
+     *
+     * @return The number of games inserted or changed
+     */
+    private int importBatch(List<ImportedGame> batch) throws SQLException {
+        Connection connection = mDatabase.connection;
+        int rowsWritten = 0;
+        long now = System.currentTimeMillis();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement();
+             PreparedStatement find = connection.prepareStatement(GameSchema.SQL_FIND_IMPORTED_GAME);
+             PreparedStatement updateGame = connection.prepareStatement(GameSchema.SQL_UPDATE_IMPORTED_GAME);
+             PreparedStatement adjustStock = connection.prepareStatement(GameSchema.SQL_ADJUST_STOCK);
+             PreparedStatement insertGame = connection.prepareStatement(GameSchema.SQL_INSERT_GAME);
+             PreparedStatement index = connection.prepareStatement(GameSchema.SQL_INDEX_IMPORTED_GAMES)) {
+            statement.executeUpdate(GameSchema.SQL_START_IMPORT);
+            long lastId;
+            try (ResultSet resultSet = statement.executeQuery(GameSchema.SQL_SELECT_LAST_GAME_ID)) {
+                resultSet.next();
+                lastId = resultSet.getLong(1);
+            }
+
+            long[] ids = new long[batch.size()];
+            StringBuilder existingIds = new StringBuilder();
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = findGame(find, batch.get(i));
+                if (ids[i] != -1) {
+                    existingIds.append(existingIds.length() == 0 ? "" : ",").append(ids[i]);
+                }
+            }
+            String existing = GameEntry._ID + " IN (" + existingIds + ")";
+            if (existingIds.length() != 0) {
+                for (String sql : GameSchema.buildImportStatsStatements(existing, -1)) {
+                    statement.executeUpdate(sql);
+                }
+            }
+
+            for (int i = 0; i < ids.length; i++) {
+                ImportedGame game = batch.get(i);
+                long id = ids[i] != -1 ? ids[i] : findGame(find, game);
+                if (id == -1) {
+                    insertGame.setString(1, game.name);
+                    insertGame.setInt(2, game.genre);
+                    insertGame.setInt(3, game.platform);
+                    insertGame.setLong(4, game.priceCents);
+                    insertGame.setInt(5, game.quantity);
+                    insertGame.setString(6, game.supplierName);
+                    insertGame.setString(7, game.supplierPhone);
+                    insertGame.setInt(8, 0);
+                    rowsWritten += insertGame.executeUpdate();
+                } else {
+                    updateGame.setInt(1, game.genre);
+                    updateGame.setLong(2, game.priceCents);
+                    updateGame.setString(3, game.supplierName);
+                    if (game.supplierPhone != null) {
+                        updateGame.setString(4, game.supplierPhone);
+                    } else {
+                        updateGame.setNull(4, Types.VARCHAR);
+                    }
+                    updateGame.setLong(5, id);
+                    boolean changed = updateGame.executeUpdate() != 0;
+                    adjustStock.setInt(1, game.quantity);
+                    adjustStock.setLong(2, id);
+                    adjustStock.setLong(3, now);
+                    if (adjustStock.executeUpdate() != 0 || changed) {
+                        rowsWritten++;
+                    }
+                }
+            }
+
+            index.setLong(1, lastId);
+            index.executeUpdate();
+            String imported = GameEntry._ID + " > " + lastId;
+            if (existingIds.length() != 0) {
+                imported = existing + " OR " + imported;
+            }
+            for (String sql : GameSchema.buildImportStatsStatements(imported, 1)) {
+                statement.executeUpdate(sql);
+            }
+            statement.executeUpdate(GameSchema.SQL_FINISH_IMPORT);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        return rowsWritten;
+    }
+
+    /**
+     * Return the id of the game with the name and platform of the given one, -1 if there is none.
+     */
+    private static long findGame(PreparedStatement find, ImportedGame game) throws SQLException {
+        find.setString(1, game.name);
+        find.setInt(2, game.platform);
+        try (ResultSet resultSet = find.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : -1;
+        }
+    }
+
+    @Benchmark
+    public int importPriceList() throws IOException, SQLException {
+        return importPriceList(mPriceList, batchSize);
+    }
+}
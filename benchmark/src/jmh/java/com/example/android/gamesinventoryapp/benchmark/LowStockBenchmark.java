@@ -0,0 +1,148 @@
+package com.example.android.gamesinventoryapp.benchmark;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameContract.LowStockEntry;
+import com.example.android.gamesinventoryapp.data.GameSchema;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the low stock watchlist: reading the list maintained by the triggers against
+ * scanning the games for those below their threshold, and the cost of the triggers on a sale.
+ * One game out of {@link #WATCHED_GAMES_RATIO} has a reorder threshold.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LowStockBenchmark {
+
+    /**
+     * Number of games in the catalog
+     */
+    @Param({"500000"})
+    public int rows;
+
+    /**
+     * One game out of this number is watched
+     */
+    private static final int WATCHED_GAMES_RATIO = 10;
+
+    /**
+     * Reorder threshold of the watched games, the generated stocks being between 0 and 99
+     */
+    private static final int REORDER_THRESHOLD = 10;
+
+    private BenchmarkDatabase mDatabase;
+    private Random mRandom;
+
+    private PreparedStatement mWatchlist;
+    private PreparedStatement mWatchlistScan;
+    private PreparedStatement mSell;
+    private PreparedStatement mRestock;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        mDatabase = new BenchmarkDatabase();
+        mRandom = new Random(GameDataGenerator.DEFAULT_SEED);
+        mDatabase.load(new GameDataGenerator(GameDataGenerator.DEFAULT_SEED), rows);
+        try (Statement statement = mDatabase.connection.createStatement()) {
+            statement.execute("UPDATE " + GameEntry.TABLE_NAME + " SET " + GameEntry.COLUMN_REORDER_THRESHOLD
+                    + " = " + REORDER_THRESHOLD + " WHERE " + GameEntry._ID + " % " + WATCHED_GAMES_RATIO + " = 0");
+        }
+
+        mWatchlist = mDatabase.connection.prepareStatement("SELECT * FROM " + LowStockEntry.VIEW_NAME
+                + " ORDER BY " + GameEntry.COLUMN_QUANTITY + ", " + LowStockEntry._ID);
+        mWatchlistScan = mDatabase.connection.prepareStatement("SELECT * FROM " + GameEntry.STOCK_VIEW_NAME
+                + " WHERE " + GameEntry.COLUMN_QUANTITY + " < " + GameEntry.COLUMN_REORDER_THRESHOLD
+                + " ORDER BY " + GameEntry.COLUMN_QUANTITY + ", " + GameEntry._ID);
+        mSell = mDatabase.connection.prepareStatement(GameSchema.SQL_SELL_GAME);
+        mRestock = mDatabase.connection.prepareStatement(GameSchema.SQL_RESTOCK_GAME);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        mDatabase.close();
+    }
+
+    private static void consume(ResultSet resultSet, Blackhole blackhole) throws SQLException {
+        try {
+            int columnCount = resultSet.getMetaData().getColumnCount();
+            while (resultSet.next()) {
+                for (int column = 1; column <= columnCount; column++) {
+                    blackhole.consume(resultSet.getObject(column));
+                }
+            }
+        } finally {
+            resultSet.close();
+        }
+    }
+
+    /**
+     * The watchlist read from the table maintained by the triggers, like GameProvider
+     */
+    @Benchmark
+    public void readWatchlist(Blackhole blackhole) throws SQLException {
+        consume(mWatchlist.executeQuery(), blackhole);
+    }
+
+    /**
+     * The watchlist computed by scanning every game with its current stock
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void scanWatchlist(Blackhole blackhole) throws SQLException {
+        consume(mWatchlistScan.executeQuery(), blackhole);
+    }
+
+    /**
+     * One copy of a watched game sold, the triggers updating the watchlist
+     */
+    @Benchmark
+    public int sellWatchedGame() throws SQLException {
+        return sell(WATCHED_GAMES_RATIO * (1 + mRandom.nextInt(rows / WATCHED_GAMES_RATIO)));
+    }
+
+    /**
+     * One copy of a game without threshold sold, the triggers only looking its threshold up
+     */
+    @Benchmark
+    public int sellUnwatchedGame() throws SQLException {
+        long id = 1 + mRandom.nextInt(rows);
+        return sell(id % WATCHED_GAMES_RATIO == 0 ? id - 1 : id);
+    }
+
+    /**
+     * Sell a copy of the given game, restocking it once it is out of stock.
+     */
+    private int sell(long id) throws SQLException {
+        long now = System.currentTimeMillis();
+        mSell.setInt(1, 1);
+        mSell.setLong(2, id);
+        mSell.setLong(3, now);
+        int rowsUpdated = mSell.executeUpdate();
+        if (rowsUpdated == 0) {
+            mRestock.setInt(1, 100);
+            mRestock.setLong(2, id);
+            mRestock.setLong(3, now);
+            mRestock.executeUpdate();
+        }
+        return rowsUpdated;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.android.gamesinventoryapp.benchmark;
+
+import com.example.android.gamesinventoryapp.data.GameContract.GameEntry;
+import com.example.android.gamesinventoryapp.data.GameSchema;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the stock value aggregations, with the prices stored as floating point amounts
+ * (schema version 5) and as integer cents (schema version 6). Both catalogs hold the same games.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PriceAggregationBenchmark {
+
+    /**
+     * Number of games in the catalog
+     */
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    /**
+     * Version of the schema: {@link GameSchema#VERSION_FACETS} or {@link GameSchema#VERSION_PRICE_CENTS}
+     */
+    @Param({"5", "6"})
+    public int schemaVersion;
+
+    private static final String STOCK_VALUE = "SUM(" + GameEntry.COLUMN_GAME_PRICE + " * " + GameEntry.COLUMN_QUANTITY + ")";
+
+    private BenchmarkDatabase mDatabase;
+
+    private PreparedStatement mTotalValue;
+    private PreparedStatement mValueByGenre;
+    private PreparedStatement mPrices;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        mDatabase = new BenchmarkDatabase(schemaVersion);
+        mDatabase.load(new GameDataGenerator(GameDataGenerator.DEFAULT_SEED), rows);
+
+        mTotalValue = mDatabase.connection.prepareStatement("SELECT " + STOCK_VALUE + " FROM " + GameEntry.TABLE_NAME);
+        mValueByGenre = mDatabase.connection.prepareStatement("SELECT " + GameEntry.COLUMN_GAME_GENRE + ", "
+                + STOCK_VALUE + " FROM " + GameEntry.TABLE_NAME + " GROUP BY " + GameEntry.COLUMN_GAME_GENRE);
+        mPrices = mDatabase.connection.prepareStatement("SELECT " + GameEntry.COLUMN_GAME_PRICE + ", "
+                + GameEntry.COLUMN_QUANTITY + " FROM " + GameEntry.TABLE_NAME);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        mDatabase.close();
+    }
+
+    private boolean hasPriceCents() {
+        return schemaVersion >= GameSchema.VERSION_PRICE_CENTS;
+    }
+
+    /**
+     * Read the value column of every row of the given query, as the stored type.
+     */
+    private void consumeValues(ResultSet resultSet, int column, Blackhole blackhole) throws SQLException {
+        try {
+            while (resultSet.next()) {
+                if (hasPriceCents()) {
+                    blackhole.consume(resultSet.getLong(column));
+                } else {
+                    blackhole.consume(resultSet.getDouble(column));
+                }
+            }
+        } finally {
+            resultSet.close();
+        }
+    }
+
+    /**
+     * The total value of the stock, like the aggregation of the statistics by a migration
+     */
+    @Benchmark
+    public void totalValue(Blackhole blackhole) throws SQLException {
+        consumeValues(mTotalValue.executeQuery(), 1, blackhole);
+    }
+
+    /**
+     * The value of the stock of each genre
+     */
+    @Benchmark
+    public void valueByGenre(Blackhole blackhole) throws SQLException {
+        consumeValues(mValueByGenre.executeQuery(), 2, blackhole);
+    }
+
+    /**
+     * The total value of the stock summed by the app from the prices and quantities it read
+     */
+    @Benchmark
+    public void totalValueInApp(Blackhole blackhole) throws SQLException {
+        ResultSet resultSet = mPrices.executeQuery();
+        try {
+            if (hasPriceCents()) {
+                long totalCents = 0;
+                while (resultSet.next()) {
+                    totalCents += resultSet.getLong(1) * resultSet.getInt(2);
+                }
+                blackhole.consume(totalCents);
+            } else {
+                double total = 0;
+                while (resultSet.next()) {
+                    total += resultSet.getDouble(1) * resultSet.getInt(2);
+                }
+                blackhole.consume(total);
+            }
+        } finally {
+            resultSet.close();
+        }
+    }
+}